@@ -230,6 +230,72 @@ tmc_uninstall() {
 	rm "$TMC_FILE"
 }
 
+## Daemon client
+
+tmc_daemon_file() {
+	local CONFIG_HOME=${XDG_CONFIG_HOME-}
+
+	if [ -z "$CONFIG_HOME" ]; then
+		CONFIG_HOME="$HOME/.config"
+	fi
+	echo "$CONFIG_HOME/tmc-cli/daemon"
+}
+
+tmc_start_daemon() {
+	tmc_debug "Starting the tmc daemon"
+	nohup "$JAVA_BIN" -jar "$(tmc_get_binary)" -d daemon &> /dev/null &
+}
+
+# Run the command in the daemon. If the daemon isn't running then start
+# it for the next commands and let the caller run this command.
+# The exit status of the command is stored in TMC_DAEMON_STATUS.
+tmc_run_in_daemon() {
+	local DAEMON_FILE="$(tmc_daemon_file)"
+	local PORT TOKEN INPUT_PID STATUS_FILE ERROR_FILE= STATUS=
+
+	if [[ ! -r $DAEMON_FILE ]] || ! read -r PORT TOKEN < "$DAEMON_FILE"; then
+		tmc_start_daemon
+		return 1
+	fi
+	if ! STATUS_FILE="$(mktemp "${TMPDIR:-/tmp}/tmc-status.XXXXXX")"; then
+		return 1
+	fi
+	# keep the errors out of the output when another program reads it
+	if [[ ! -t 1 ]] && ! ERROR_FILE="$(mktemp "${TMPDIR:-/tmp}/tmc-error.XXXXXX")"; then
+		rm -f "$STATUS_FILE"
+		return 1
+	fi
+	if ! { exec 3<> "/dev/tcp/127.0.0.1/$PORT"; } 2> /dev/null; then
+		tmc_debug "The tmc daemon isn't running anymore"
+		rm -f "$DAEMON_FILE" "$STATUS_FILE" "$ERROR_FILE"
+		tmc_start_daemon
+		return 1
+	fi
+
+	printf '%s\n' "$TOKEN" "$PWD" "${COLUMNS-}" "${TMC_OUTPUT_TTY-}" "$STATUS_FILE" \
+		"$ERROR_FILE" "$#" "$@" >&3
+	# forward the standard input for the prompts of the command
+	exec 4<&0
+	cat <&4 >&3 &
+	INPUT_PID=$!
+	cat <&3
+	kill "$INPUT_PID" &> /dev/null || true
+	exec 3<&- 4<&-
+
+	# the daemon writes the status only after the command has finished
+	read -r STATUS < "$STATUS_FILE" || true
+	rm -f "$STATUS_FILE"
+	if [[ -n $ERROR_FILE ]]; then
+		cat "$ERROR_FILE" >&2
+		rm -f "$ERROR_FILE"
+	fi
+	if [[ -z $STATUS ]]; then
+		echo "The tmc daemon stopped before the command finished." >&2
+		STATUS=1
+	fi
+	TMC_DAEMON_STATUS=$STATUS
+}
+
 tmc_main() {
 	local TMC_FLAGS=
 
@@ -256,6 +322,15 @@ tmc_main() {
 	#EMBED_UNIT_TESTS_SH
 
 	export COLUMNS=$(tput cols)
+	# java can only tell if both the input and the output are terminals
+	if [[ -t 1 ]]; then
+		export TMC_OUTPUT_TTY=1
+	else
+		export TMC_OUTPUT_TTY=0
+	fi
+	if [[ ${TMC_DAEMON-} == 1 ]] && tmc_run_in_daemon $TMC_FLAGS "$@"; then
+		exit "$TMC_DAEMON_STATUS"
+	fi
 	exec "$JAVA_BIN" -jar "$(tmc_get_binary)" $TMC_FLAGS "$@"
 
 	exit 0
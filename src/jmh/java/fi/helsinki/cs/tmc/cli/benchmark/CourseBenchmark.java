@@ -0,0 +1,71 @@
+package fi.helsinki.cs.tmc.cli.benchmark;
+
+import fi.helsinki.cs.tmc.cli.backend.CourseInfo;
+import fi.helsinki.cs.tmc.cli.backend.CourseInfoIo;
+import fi.helsinki.cs.tmc.cli.io.WorkDir;
+
+import fi.helsinki.cs.tmc.core.domain.Exercise;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of reading the local course information.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class CourseBenchmark {
+
+    @Param({"100", "1000"})
+    private int exerciseCount;
+
+    // whether the .tmc.bin index is next to the .tmc.json file
+    @Param({"true", "false"})
+    private boolean snapshot;
+
+    private CourseFixture fixture;
+
+    @Setup
+    public void setUp() throws IOException {
+        fixture = new CourseFixture(exerciseCount);
+        if (!snapshot) {
+            Files.delete(fixture.getCourseDirectory().resolve(".tmc.bin"));
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        fixture.delete();
+    }
+
+    @Benchmark
+    public CourseInfo loadCourseInfo() {
+        return CourseInfoIo.load(fixture.getConfigFile());
+    }
+
+    /**
+     * The commands that are given a single exercise only use that exercise.
+     */
+    @Benchmark
+    public Exercise loadSingleExercise() {
+        return CourseInfoIo.load(fixture.getConfigFile()).getExercise("week02-exercise042");
+    }
+
+    @Benchmark
+    public List<Exercise> getExercises() {
+        return new WorkDir(fixture.getCourseDirectory()).getExercises();
+    }
+}
@@ -0,0 +1,54 @@
+package fi.helsinki.cs.tmc.cli.benchmark;
+
+import fi.helsinki.cs.tmc.cli.backend.Account;
+import fi.helsinki.cs.tmc.cli.backend.CourseInfoIo;
+
+import fi.helsinki.cs.tmc.core.domain.Course;
+import fi.helsinki.cs.tmc.core.domain.Exercise;
+
+import org.apache.commons.io.FileUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Course directory with a large .tmc.json file for the benchmarks.
+ */
+public class CourseFixture {
+
+    public static final String COURSE_NAME = "benchmark-course";
+
+    private final Path parentDir;
+
+    public CourseFixture(int exerciseCount) throws IOException {
+        parentDir = Files.createTempDirectory("tmc-cli-benchmark");
+
+        List<Exercise> exercises = new ArrayList<>();
+        for (int i = 0; i < exerciseCount; i++) {
+            Exercise exercise = new Exercise(String.format("week%02d-exercise%03d", i / 20, i));
+            exercises.add(exercise);
+        }
+        Course course = new Course(COURSE_NAME);
+        course.setExercises(exercises);
+        CourseInfoIo.createNewCourse(course, new Account("benchmark"), parentDir);
+
+        for (Exercise exercise : exercises) {
+            Files.createDirectories(getCourseDirectory().resolve(exercise.getName()));
+        }
+    }
+
+    public Path getCourseDirectory() {
+        return parentDir.resolve(COURSE_NAME);
+    }
+
+    public Path getConfigFile() {
+        return getCourseDirectory().resolve(CourseInfoIo.COURSE_CONFIG);
+    }
+
+    public void delete() throws IOException {
+        FileUtils.deleteDirectory(parentDir.toFile());
+    }
+}
@@ -0,0 +1,64 @@
+package fi.helsinki.cs.tmc.cli.benchmark;
+
+import fi.helsinki.cs.tmc.cli.backend.CourseInfo;
+import fi.helsinki.cs.tmc.cli.backend.CourseInfoIo;
+
+import com.google.gson.Gson;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of writing the local course information after a command.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class CourseInfoSaveBenchmark {
+
+    @Param({"100", "1000"})
+    private int exerciseCount;
+
+    private CourseFixture fixture;
+    private CourseInfo info;
+
+    @Setup
+    public void setUp() throws IOException {
+        fixture = new CourseFixture(exerciseCount);
+        info = CourseInfoIo.load(fixture.getConfigFile());
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        fixture.delete();
+    }
+
+    /**
+     * The way the course info was saved before the streaming writer.
+     */
+    @Benchmark
+    public void saveThroughString() throws IOException {
+        byte[] json = new Gson().toJson(info).getBytes();
+        Files.write(fixture.getConfigFile(), json);
+    }
+
+    @Benchmark
+    public Boolean save() {
+        return CourseInfoIo.save(info, fixture.getConfigFile());
+    }
+
+    @Benchmark
+    public Boolean saveIfChangedWithoutChanges() {
+        return CourseInfoIo.saveIfChanged(info, fixture.getConfigFile());
+    }
+}
@@ -0,0 +1,30 @@
+package fi.helsinki.cs.tmc.cli.benchmark;
+
+import fi.helsinki.cs.tmc.cli.io.Io;
+
+/**
+ * Io that throws away the output, so that the benchmarks don't measure the terminal.
+ */
+public class NullIo extends Io {
+
+    @Override
+    public void print(String str) {}
+
+    @Override
+    public void error(String str) {}
+
+    @Override
+    public String readLine(String prompt) {
+        return null;
+    }
+
+    @Override
+    public String readPassword(String prompt) {
+        return null;
+    }
+
+    @Override
+    public boolean readConfirmation(String prompt, boolean defaultToYes) {
+        return defaultToYes;
+    }
+}
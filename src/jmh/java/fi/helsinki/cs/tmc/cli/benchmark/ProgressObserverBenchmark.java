@@ -0,0 +1,54 @@
+package fi.helsinki.cs.tmc.cli.benchmark;
+
+import fi.helsinki.cs.tmc.cli.io.CliProgressObserver;
+import fi.helsinki.cs.tmc.cli.io.Color;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of the progress callbacks that tmc-core sends during a download.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ProgressObserverBenchmark {
+
+    @Param({"1000", "10000"})
+    private int callbackCount;
+
+    private NullIo io;
+
+    @Setup
+    public void setUp() {
+        io = new NullIo();
+    }
+
+    @Benchmark
+    public void reportProgress() {
+        CliProgressObserver progobs = new CliProgressObserver(io, Color.CYAN, Color.CYAN);
+        for (int i = 0; i <= callbackCount; i++) {
+            progobs.progress(0, i / (double) callbackCount, "Downloading exercises");
+        }
+        progobs.end(0);
+    }
+
+    @Benchmark
+    public void reportParallelProgress() {
+        CliProgressObserver progobs = new CliProgressObserver(io, Color.CYAN, Color.CYAN);
+        for (int i = 0; i <= callbackCount; i++) {
+            progobs.progress(1 + i % 4, i / (double) callbackCount, "exercise: Downloading");
+        }
+        for (int id = 1; id <= 4; id++) {
+            progobs.end(id);
+        }
+    }
+}
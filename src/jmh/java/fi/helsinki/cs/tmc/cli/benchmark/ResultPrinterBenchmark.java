@@ -0,0 +1,54 @@
+package fi.helsinki.cs.tmc.cli.benchmark;
+
+import fi.helsinki.cs.tmc.cli.io.Color;
+import fi.helsinki.cs.tmc.cli.shared.ResultPrinter;
+
+import fi.helsinki.cs.tmc.langs.domain.RunResult;
+import fi.helsinki.cs.tmc.langs.domain.RunResult.Status;
+import fi.helsinki.cs.tmc.langs.domain.TestResult;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of rendering the test results.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ResultPrinterBenchmark {
+
+    @Param({"10", "200"})
+    private int testCount;
+
+    private NullIo io;
+    private RunResult runResult;
+
+    @Setup
+    public void setUp() {
+        io = new NullIo();
+        ImmutableList.Builder<TestResult> tests = ImmutableList.builder();
+        for (int i = 0; i < testCount; i++) {
+            boolean passed = i % 3 != 0;
+            tests.add(new TestResult("test" + i, passed, passed ? "" : "Expected 1 but was 2"));
+        }
+        runResult = new RunResult(
+                Status.TESTS_FAILED, tests.build(), ImmutableMap.<String, byte[]>of());
+    }
+
+    @Benchmark
+    public boolean printLocalTestResult() {
+        ResultPrinter printer = new ResultPrinter(io, true, true, Color.GREEN, Color.RED);
+        return printer.printLocalTestResult(runResult, null, true);
+    }
+}
@@ -0,0 +1,50 @@
+package fi.helsinki.cs.tmc.cli.benchmark;
+
+import fi.helsinki.cs.tmc.cli.Application;
+import fi.helsinki.cs.tmc.cli.backend.Settings;
+import fi.helsinki.cs.tmc.cli.core.CliContext;
+import fi.helsinki.cs.tmc.cli.io.WorkDir;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of the work that every tmc command does before running the command.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class StartupBenchmark {
+
+    private NullIo io;
+    private Application app;
+
+    @Setup
+    public void setUp() {
+        io = new NullIo();
+        app = new Application(new CliContext(io, null, new WorkDir(), new Settings(), null));
+    }
+
+    @Benchmark
+    public CliContext createContext() {
+        return new CliContext(io, null, new WorkDir(), new Settings(), null);
+    }
+
+    @Benchmark
+    public Application createApplication() {
+        return new Application(new CliContext(io, null, new WorkDir(), new Settings(), null));
+    }
+
+    @Benchmark
+    public void parseArgs() {
+        // the version flag stops the run right after the argument parsing
+        app.run(new String[] {"--no-update", "--version"});
+    }
+}
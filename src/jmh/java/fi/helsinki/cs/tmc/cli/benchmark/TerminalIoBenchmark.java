@@ -0,0 +1,68 @@
+package fi.helsinki.cs.tmc.cli.benchmark;
+
+import fi.helsinki.cs.tmc.cli.io.BufferedTerminalIo;
+import fi.helsinki.cs.tmc.cli.io.BufferedTerminalIo.FlushPolicy;
+import fi.helsinki.cs.tmc.cli.io.Io;
+import fi.helsinki.cs.tmc.cli.io.StreamIo;
+
+import org.apache.commons.io.output.NullOutputStream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of printing many short lines, like the test results of a large exercise.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class TerminalIoBenchmark {
+
+    @Param({"100", "2000"})
+    private int lineCount;
+
+    private Io unbuffered;
+    private Io lineBuffered;
+    private Io blockBuffered;
+
+    @Setup
+    public void setUp() {
+        // the auto flushing stream works like the standard output
+        PrintStream out = new PrintStream(NullOutputStream.NULL_OUTPUT_STREAM, true);
+        unbuffered = new StreamIo(null, out);
+        lineBuffered = new BufferedTerminalIo(null, out, FlushPolicy.LINE);
+        blockBuffered = new BufferedTerminalIo(null, out, FlushPolicy.BLOCK);
+    }
+
+    @Benchmark
+    public void printUnbuffered() throws IOException {
+        printLines(unbuffered);
+    }
+
+    @Benchmark
+    public void printLineBuffered() throws IOException {
+        printLines(lineBuffered);
+    }
+
+    @Benchmark
+    public void printBlockBuffered() throws IOException {
+        printLines(blockBuffered);
+    }
+
+    private void printLines(Io io) throws IOException {
+        for (int i = 0; i < lineCount; i++) {
+            io.print("Passed: ");
+            io.println("test" + i);
+        }
+        io.flush();
+    }
+}
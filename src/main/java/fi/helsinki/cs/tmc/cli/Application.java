@@ -3,16 +3,21 @@ package fi.helsinki.cs.tmc.cli;
 import fi.helsinki.cs.tmc.cli.analytics.AnalyticsFacade;
 import fi.helsinki.cs.tmc.cli.analytics.TimeTracker;
 import fi.helsinki.cs.tmc.cli.backend.CourseInfo;
+import fi.helsinki.cs.tmc.cli.backend.RequestCounter;
 import fi.helsinki.cs.tmc.cli.backend.Settings;
+import fi.helsinki.cs.tmc.cli.backend.SettingsIo;
 import fi.helsinki.cs.tmc.cli.command.SubmitCommand;
 import fi.helsinki.cs.tmc.cli.core.AbstractCommand;
 import fi.helsinki.cs.tmc.cli.core.CliContext;
+import fi.helsinki.cs.tmc.cli.core.Metrics;
+import fi.helsinki.cs.tmc.cli.core.StartupTrace;
 import fi.helsinki.cs.tmc.cli.io.ShutdownHandler;
 import fi.helsinki.cs.tmc.cli.io.Io;
 import fi.helsinki.cs.tmc.cli.io.EnvironmentUtil;
 import fi.helsinki.cs.tmc.cli.io.HelpGenerator;
 import fi.helsinki.cs.tmc.cli.io.WorkDir;
 import fi.helsinki.cs.tmc.cli.updater.AutoUpdater;
+import fi.helsinki.cs.tmc.cli.updater.ReleaseInfo;
 import fi.helsinki.cs.tmc.cli.core.CommandFactory;
 
 
@@ -33,7 +38,14 @@ import org.apache.commons.cli.ParseException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 /**
  * The application class for the program.
@@ -41,7 +53,12 @@ import java.util.*;
 public class Application {
     private static final Logger logger = LoggerFactory.getLogger(Application.class);
     private static final String previousUpdateDateKey = "update-date";
+    private static final String metricsLogKey = "metrics-log";
     private static final long defaultUpdateInterval = 60 * 60 * 1000;
+    // ANALYTICS_TIMEOUT is how long the analytics may delay the exit after the command
+    private static final long ANALYTICS_TIMEOUT = 3000;
+    // UPDATE_CHECK_TIMEOUT is how long the update check may delay the exit after the command
+    private static final long UPDATE_CHECK_TIMEOUT = 1000;
     private static final String usage = "tmc [args] COMMAND [command-args]";
 
     private ShutdownHandler shutdownHandler;
@@ -52,8 +69,12 @@ public class Application {
     private final GnuParser parser;
     private String commandName;
     private boolean noAutoUpdate;
+    private boolean traceStartup;
+    private boolean printMetrics;
+    private boolean printMetricsJson;
 
     private TimeTracker timeTracker;
+    private Future<ReleaseInfo> updateCheck;
 
     public Application(CliContext context) {
         this.timeTracker = new TimeTracker(context);
@@ -71,6 +92,18 @@ public class Application {
         options.addOption("v", "version", false, "Give the version of the tmc-cli");
         options.addOption("u", "force-update", false, "Force the auto-update");
         options.addOption("d", "no-update", false, "Disable temporarily the auto-update");
+        options.addOption(
+                OptionBuilder.withLongOpt("trace-startup")
+                        .withDescription("Print the time used by each startup phase")
+                        .create());
+        options.addOption(
+                OptionBuilder.withLongOpt("metrics")
+                        .withDescription("Print the time used by the server operations")
+                        .create());
+        options.addOption(
+                OptionBuilder.withLongOpt("metrics-json")
+                        .withDescription("Print the metrics of the server operations as JSON")
+                        .create());
 
         Set<String> helpCategories = CommandFactory.getCommandCategories();
         for (String category : helpCategories) {
@@ -84,10 +117,11 @@ public class Application {
         }
 
         //TODO implement the inTests as context.property
-        if (!context.inTests()) {
+        if (!context.inTests() && !context.inDaemon()) {
             shutdownHandler = new ShutdownHandler(context.getIo());
             shutdownHandler.enable();
         }
+        StartupTrace.mark("commands");
     }
 
     private boolean runCommand(String name, String[] args) {
@@ -97,37 +131,35 @@ public class Application {
             io.errorln("Command " + name + " doesn't exist.");
             return false;
         }
-        Optional<Thread> thread = sendAnalytics(command);
+        sendAnalytics(command);
 
-        command.execute(context, args);
-        joinNewThread(thread);
+        try {
+            command.execute(context, args);
+        } finally {
+            // write the account changes of the command at once, even if the command failed
+            SettingsIo.flush();
+        }
+        AnalyticsFacade analytics = context.getAnalyticsFacade();
+        if (analytics != null) {
+            analytics.flush();
+            analytics.awaitCompletion(ANALYTICS_TIMEOUT, TimeUnit.MILLISECONDS);
+        }
         return true;
     }
 
-    private Optional<Thread> sendAnalytics(AbstractCommand command) {
-        Optional<Thread> thread = Optional.empty();
+    private void sendAnalytics(AbstractCommand command) {
         if (command instanceof SubmitCommand || timeTracker.anHourHasPassedSinceLastSubmit()) {
             this.context.loadUserInformation(true);
             // get course info returns null
             CourseInfo courseInfo = this.context.getCourseInfo();
             if (courseInfo == null) {
-                return Optional.empty();
+                return;
             }
             TmcSettingsHolder.get().setCourse(OptionalToGoptional.convert(Optional.of(courseInfo.getCourse())));
-            thread = this.context.getAnalyticsFacade().sendAnalytics();
+            // the events are sent in the background while the command is running
+            this.context.getAnalyticsFacade().sendAnalytics();
             timeTracker.restart();
         }
-        return thread;
-    }
-
-    private void joinNewThread(Optional<Thread> thread) {
-        thread.ifPresent(t -> {
-            try {
-                t.join();
-            } catch (InterruptedException e) {
-                logger.warn("Analytics thread interrupted");
-            }
-        });
     }
 
     private String[] parseArgs(String[] args) {
@@ -155,6 +187,9 @@ public class Application {
         boolean showVersion = line.hasOption("v");
         boolean forceUpdate = line.hasOption("u");
         this.noAutoUpdate = line.hasOption("d");
+        this.traceStartup = line.hasOption("trace-startup");
+        this.printMetrics = line.hasOption("metrics");
+        this.printMetricsJson = line.hasOption("metrics-json");
 
         if (forceUpdate && this.noAutoUpdate) {
             io.errorln("You can't use --force-update and --no-update at same time.");
@@ -200,37 +235,112 @@ public class Application {
         context.setApp(this);
 
         String[] commandArgs = parseArgs(args);
+        StartupTrace.mark("arguments");
         if (commandArgs == null) {
+            printStartupTrace();
             return;
         }
 
-        if (!context.inTests() && !noAutoUpdate && versionCheck()) {
-            return;
+        if (!context.inTests() && !context.inDaemon() && !noAutoUpdate) {
+            if (announceUpdate()) {
+                printStartupTrace();
+                return;
+            }
+            startUpdateCheck();
         }
+        StartupTrace.mark("update check");
 
+        Metrics.reset();
         runCommand(commandName, commandArgs);
+        StartupTrace.mark("command");
+        finishUpdateCheck();
+        printStartupTrace();
+        reportMetrics();
 
-        if (!context.inTests()) {
+        if (shutdownHandler != null) {
             shutdownHandler.disable();
         }
     }
 
+    private void printStartupTrace() {
+        if (traceStartup) {
+            StartupTrace.print(io);
+            Map<String, Integer> requests = RequestCounter.getInstance().getRequests();
+            if (!requests.isEmpty()) {
+                io.errorln("Requests:");
+                for (Map.Entry<String, Integer> entry : requests.entrySet()) {
+                    io.errorln(String.format("  %-30s %6d", entry.getKey(), entry.getValue()));
+                }
+            }
+        }
+    }
+
+    private void reportMetrics() {
+        if (printMetrics) {
+            Metrics.print(io);
+        }
+        if (printMetricsJson) {
+            io.errorln(Metrics.toJson(commandName));
+        }
+        if (Boolean.parseBoolean(context.getProperties().get(metricsLogKey))
+                && !Metrics.isEmpty()) {
+            Metrics.appendToLog(
+                    SettingsIo.getConfigDirectory().resolve(Metrics.LOG_FILE), commandName);
+        }
+    }
+
     public static void main(String[] args) {
+        StartupTrace.start();
         Settings settings = new Settings();
         TaskExecutor tmcLangs = new TaskExecutorImpl();
         TmcCore core = new TmcCore(settings, tmcLangs);
+        StartupTrace.mark("tmc-core");
         EventSendBuffer eventSendBuffer = new EventSendBuffer(new EventStore());
         AnalyticsFacade analyticsFacade = new AnalyticsFacade(eventSendBuffer);
-        Application app = new Application(new CliContext(null, core, new WorkDir(), settings, analyticsFacade));
+        StartupTrace.mark("analytics");
+        CliContext context = new CliContext(null, core, new WorkDir(), settings, analyticsFacade);
+        StartupTrace.mark("context");
+        Application app = new Application(context);
         app.run(args);
+        try {
+            context.getIo().flush();
+        } catch (IOException e) {
+            logger.warn("Failed to flush the output", e);
+        }
         // Because of EventSendBuffer
         TmcRequestProcessor.instance.shutdown();
     }
 
-    private boolean versionCheck() {
+    /**
+     * Offer the release that was found by the background check of an earlier run.
+     *
+     * @return true if the new version was installed instead of running the command
+     */
+    private boolean announceUpdate() {
+        Map<String, String> properties = context.getProperties();
+        ReleaseInfo release = ReleaseInfo.fromProperties(properties);
+        if (release == null) {
+            return false;
+        }
+        // the release is announced only once
+        ReleaseInfo.removeFrom(properties);
+        context.saveProperties();
+
+        AutoUpdater updater =
+                AutoUpdater.createUpdater(
+                        io, EnvironmentUtil.getVersion(), EnvironmentUtil.isWindows());
+        return updater.install(release);
+    }
+
+    /**
+     * Start checking the latest release in the background if the previous check
+     * was done over an hour ago. The command is run while the check is running.
+     * The date of the check is saved right away, so a check that fails or doesn't
+     * finish in time isn't tried again on every run.
+     */
+    private void startUpdateCheck() {
         Map<String, String> properties = context.getProperties();
         String previousTimestamp = properties.get(previousUpdateDateKey);
-        Date previous = null;
 
         if (previousTimestamp != null) {
             long time;
@@ -239,14 +349,60 @@ public class Application {
             } catch (NumberFormatException ex) {
                 io.errorln("The previous update date isn't a number.");
                 logger.warn("The previous update date isn't a number.", ex);
-                return false;
+                return;
+            }
+            if (time + defaultUpdateInterval > new Date().getTime()) {
+                return;
             }
-            previous = new Date(time);
         }
 
-        Date now = new Date();
-        return !(previous != null && previous.getTime() + defaultUpdateInterval > now.getTime())
-                && runAutoUpdate();
+        properties.put(previousUpdateDateKey, Long.toString(new Date().getTime()));
+        context.saveProperties();
+
+        AutoUpdater updater =
+                AutoUpdater.createUpdater(
+                        io, EnvironmentUtil.getVersion(), EnvironmentUtil.isWindows());
+        String etag = properties.get(ReleaseInfo.ETAG_KEY);
+        ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "tmc-update-check");
+            thread.setDaemon(true);
+            return thread;
+        });
+        updateCheck = executor.submit(() -> updater.fetchLatestRelease(etag));
+        executor.shutdown();
+    }
+
+    /**
+     * Store the result of the background update check. The check may delay the
+     * exit only for a moment, after that it is tried again after the next interval.
+     */
+    private void finishUpdateCheck() {
+        if (updateCheck == null) {
+            return;
+        }
+        ReleaseInfo release;
+        try {
+            release = updateCheck.get(UPDATE_CHECK_TIMEOUT, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException ex) {
+            logger.info("The update check didn't finish in time");
+            updateCheck.cancel(true);
+            return;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return;
+        } catch (ExecutionException ex) {
+            logger.warn("The update check failed", ex);
+            return;
+        } finally {
+            updateCheck = null;
+        }
+        if (release == null) {
+            return;
+        }
+
+        Map<String, String> properties = context.getProperties();
+        release.saveTo(properties);
+        context.saveProperties();
     }
 
     public boolean runAutoUpdate() {
@@ -259,6 +415,7 @@ public class Application {
 
         long timestamp = now.getTime();
         properties.put(previousUpdateDateKey, Long.toString(timestamp));
+        ReleaseInfo.removeFrom(properties);
         context.saveProperties();
         return updated;
     }
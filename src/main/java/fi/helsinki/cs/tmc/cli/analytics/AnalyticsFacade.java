@@ -5,49 +5,159 @@ import fi.helsinki.cs.tmc.core.domain.Exercise;
 import fi.helsinki.cs.tmc.snapshots.EventSendBuffer;
 import fi.helsinki.cs.tmc.snapshots.LoggableEvent;
 import org.slf4j.LoggerFactory;
-import java.util.Optional;
 
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Collects the analytics events of the commands and saves and sends them in the background.
+ *
+ * <p>The events are kept in memory until the command has finished, or until there
+ * are too many of them or they have waited for too long. Identical events of a single
+ * command are saved only once. The events are saved in one daemon thread and sent
+ * in another, so the commands don't wait for either of them and a slow server
+ * can't keep the events from being saved.
+ */
 public class AnalyticsFacade {
     private static final org.slf4j.Logger logger = LoggerFactory.getLogger(AnalyticsFacade.class);
 
-    private EventSendBuffer eventSendBuffer;
+    // FLUSH_EVENT_COUNT also limits the number of the events in memory
+    private static final int FLUSH_EVENT_COUNT = 50;
+    private static final long FLUSH_DELAY = TimeUnit.SECONDS.toMillis(10);
+    private static final long SAVE_TIMEOUT = 1000;
+
+    private final EventSendBuffer eventSendBuffer;
+    private final ExecutorService saveExecutor;
+    private final ExecutorService sendExecutor;
+    private volatile Future<?> lastSend;
+
+    private final Map<String, LoggableEvent> pendingEvents;
+    private long oldestPendingEvent;
 
     public AnalyticsFacade(EventSendBuffer eventSendBuffer) {
         this.eventSendBuffer = eventSendBuffer;
+        this.pendingEvents = new LinkedHashMap<>();
+        this.saveExecutor = createExecutor("tmc-analytics");
+        this.sendExecutor = createExecutor("tmc-analytics-send");
+    }
+
+    private static ExecutorService createExecutor(String name) {
+        return Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, name);
+            thread.setDaemon(true);
+            return thread;
+        });
     }
 
     public void saveAnalytics(String command) {
         LoggableEvent event = LoggableEventCreator.createEvent(command);
-        saveEvent(event);
+        saveEvent(command, event);
     }
 
     public void saveAnalytics(String courseName, String command) {
         LoggableEvent event = LoggableEventCreator.createEvent(courseName, command);
-        saveEvent(event);
+        saveEvent(command + "\n" + courseName, event);
     }
 
     public void saveAnalytics(Course course, String command) {
         LoggableEvent event = LoggableEventCreator.createEvent(course, command);
-        saveEvent(event);
+        saveEvent(command + "\n" + course.getName(), event);
     }
 
     public void saveAnalytics(Exercise exercise, String command) {
         LoggableEvent event = LoggableEventCreator.createEvent(exercise, command);
-        saveEvent(event);
+        saveEvent(command + "\n" + exercise.getName(), event);
+    }
+
+    /**
+     * Send the saved events to the server in the background.
+     *
+     * @return the sending task
+     */
+    public Future<?> sendAnalytics() {
+        Future<?> send = sendExecutor.submit(() -> {
+            try {
+                eventSendBuffer.sendNow();
+            } catch (Exception e) {
+                logger.warn("Failed to send events", e);
+            }
+        });
+        lastSend = send;
+        return send;
     }
 
-    public Optional<Thread> sendAnalytics() {
-        Thread t = new Thread(() -> this.eventSendBuffer.sendNow());
-        t.run();
-        return Optional.of(t);
+    /**
+     * Save the pending events in the background.
+     * This is called after every command.
+     */
+    public void flush() {
+        List<LoggableEvent> events;
+        synchronized (pendingEvents) {
+            if (pendingEvents.isEmpty()) {
+                return;
+            }
+            events = new ArrayList<>(pendingEvents.values());
+            pendingEvents.clear();
+        }
+        saveExecutor.submit(() -> {
+            try {
+                for (LoggableEvent event : events) {
+                    eventSendBuffer.receiveEvent(event);
+                }
+                eventSendBuffer.saveNow(SAVE_TIMEOUT);
+            } catch (Exception e) {
+                logger.warn("Failed to save events", e);
+            }
+        });
     }
 
-    private void saveEvent(LoggableEvent event) {
-        this.eventSendBuffer.receiveEvent(event);
+    /**
+     * Wait until the events have been saved and sent, but at most the given time.
+     * The saving is waited for first, so the time is spent on it before the sending.
+     *
+     * @return true if everything was done in time
+     */
+    public boolean awaitCompletion(long timeout, TimeUnit unit) {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
         try {
-            eventSendBuffer.saveNow(1000);
-        } catch (Exception e) {
-            logger.warn("Failed to save events: ", e.getStackTrace());
+            // the executor has only one thread, so this runs after all the earlier tasks
+            saveExecutor.submit(() -> { }).get(timeout, unit);
+            Future<?> send = lastSend;
+            if (send != null) {
+                send.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            }
+            return true;
+        } catch (TimeoutException e) {
+            logger.warn("Analytics weren't saved in time");
+        } catch (InterruptedException e) {
+            logger.warn("Analytics thread interrupted");
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            logger.warn("Failed to wait for the analytics", e);
+        }
+        return false;
+    }
+
+    private void saveEvent(String key, LoggableEvent event) {
+        boolean flushNow;
+        synchronized (pendingEvents) {
+            if (pendingEvents.isEmpty()) {
+                oldestPendingEvent = System.currentTimeMillis();
+            }
+            pendingEvents.put(key, event);
+            flushNow = pendingEvents.size() >= FLUSH_EVENT_COUNT
+                    || System.currentTimeMillis() - oldestPendingEvent >= FLUSH_DELAY;
+        }
+        if (flushNow) {
+            flush();
         }
     }
 }
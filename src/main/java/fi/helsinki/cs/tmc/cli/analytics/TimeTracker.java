@@ -1,5 +1,4 @@
 package fi.helsinki.cs.tmc.cli.analytics;
-import fi.helsinki.cs.tmc.cli.backend.Settings;
 import fi.helsinki.cs.tmc.cli.backend.SettingsIo;
 import fi.helsinki.cs.tmc.cli.core.CliContext;
 
@@ -21,7 +20,8 @@ public class TimeTracker {
     }
 
     public boolean anHourHasPassedSinceLastSubmit() {
-        String submitProperty = SettingsIo.loadProperties().get(PROPERTY_KEY);
+        // the properties of the context are the same that restart() saves
+        String submitProperty = properties.get(PROPERTY_KEY);
         if (submitProperty == null) {
             return false;
         }
@@ -13,6 +13,13 @@ public class AccountList implements Iterable<Account> {
         this.accountArray = new ArrayList<>();
     }
 
+    /**
+     * Copy the list. The accounts themselves are shared with the original list.
+     */
+    public AccountList(AccountList list) {
+        this.accountArray = new ArrayList<>(list.accountArray);
+    }
+
     public Account getAccount() {
         if (this.accountArray.size() > 0) {
             // Get last used account by default
@@ -0,0 +1,128 @@
+package fi.helsinki.cs.tmc.cli.backend;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Locked and atomic writes of the files that several tmc processes may change at the
+ * same time, such as the accounts file and the course config files.
+ *
+ * <p>The writers of a file are serialized with an advisory lock on a separate lock file,
+ * so a writer can read the latest version of the file and merge its own changes into
+ * it. The lock files are kept in the config directory instead of next to the files,
+ * so they don't show up in the course directories. They aren't deleted after use,
+ * because another process may already be waiting for the lock of the same file.
+ * The file is replaced with a completely written temporary file, so the readers never
+ * see a partially written file and don't need the lock.
+ */
+public class AtomicFiles {
+
+    private static final String LOCK_DIRECTORY = "locks";
+    private static final String LOCK_SUFFIX = ".lock";
+
+    // file locks are held by the whole process, so the threads must be serialized separately
+    private static final ConcurrentMap<Path, ReentrantLock> threadLocks =
+            new ConcurrentHashMap<>();
+
+    @FunctionalInterface
+    public interface LockedAction<T> {
+        T run() throws IOException;
+    }
+
+    @FunctionalInterface
+    public interface StreamWriter {
+        void write(OutputStream out) throws IOException;
+    }
+
+    /**
+     * Run the action while holding the lock of the file.
+     * The lock is reentrant within the thread, but not between processes.
+     */
+    public static <T> T locked(Path file, LockedAction<T> action) throws IOException {
+        Path normalized = file.toAbsolutePath().normalize();
+        ReentrantLock threadLock =
+                threadLocks.computeIfAbsent(normalized, path -> new ReentrantLock());
+        threadLock.lock();
+        try {
+            if (threadLock.getHoldCount() > 1) {
+                // this thread already holds the file lock
+                return action.run();
+            }
+            Files.createDirectories(normalized.getParent());
+            Path lockFile = getLockFile(normalized);
+            try (FileChannel channel = FileChannel.open(lockFile,
+                            StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+                    FileLock lock = channel.lock()) {
+                return action.run();
+            }
+        } finally {
+            threadLock.unlock();
+        }
+    }
+
+    /**
+     * Get the lock file of the file. The name has a digest of the whole path, so the
+     * files of different course directories have their own locks.
+     */
+    static Path getLockFile(Path file) throws IOException {
+        Path directory = SettingsIo.getConfigDirectory().resolve(LOCK_DIRECTORY);
+        Files.createDirectories(directory);
+        String path = file.toAbsolutePath().normalize().toString();
+        String key;
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-1");
+            StringBuilder builder = new StringBuilder();
+            for (byte b : digest.digest(path.getBytes(StandardCharsets.UTF_8))) {
+                builder.append(String.format("%02x", b));
+            }
+            key = builder.toString();
+        } catch (NoSuchAlgorithmException e) {
+            key = Integer.toHexString(path.hashCode());
+        }
+        return directory.resolve(file.getFileName() + "-" + key + LOCK_SUFFIX);
+    }
+
+    /**
+     * Replace the file with the given content.
+     * This doesn't take the lock, so it's usually called inside {@link #locked}.
+     */
+    public static void replace(Path file, byte[] data) throws IOException {
+        replace(file, out -> out.write(data));
+    }
+
+    /**
+     * Replace the file with the content written by the writer.
+     * The file isn't changed if the writer fails.
+     */
+    public static void replace(Path file, StreamWriter writer) throws IOException {
+        Files.createDirectories(file.getParent());
+        Path tempFile = Files.createTempFile(
+                file.getParent(), file.getFileName().toString(), ".tmp");
+        try {
+            try (OutputStream out = Files.newOutputStream(tempFile)) {
+                writer.write(out);
+            }
+            try {
+                Files.move(tempFile, file,
+                        StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+}
@@ -5,9 +5,15 @@ import fi.helsinki.cs.tmc.core.domain.Course;
 import fi.helsinki.cs.tmc.core.domain.Exercise;
 import fi.helsinki.cs.tmc.core.domain.Organization;
 
+import java.util.AbstractList;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.Set;
 
 /**
  * This is a class for storing course information in .tmc.json files.
@@ -21,6 +27,27 @@ public class CourseInfo {
     private List<String> localCompletedExercises;
     private HashMap<String, String> properties;
 
+    /* Lookup tables that aren't saved in the json file.
+     * Gson doesn't set transient fields, so these are rebuilt on first use after loading.
+     */
+    private transient Map<String, Integer> exerciseIndex;
+    private transient List<Exercise> indexedExercises;
+    private transient String[] sortedExerciseNames;
+    private transient Set<String> localCompletedSet;
+    // The lists returned to the callers, they drop the lookup tables when they are modified.
+    private transient ChangeTrackingList<Exercise> exerciseView;
+    private transient ChangeTrackingList<String> localCompletedView;
+    // Digest of the json in the config file, used for skipping unchanged saves.
+    private transient byte[] savedDigest;
+    /* The state of the config file when it was loaded or saved. Another process may
+     * change the file in the meantime, so only the changes done after this are merged
+     * into the file when it is saved.
+     */
+    private transient Set<String> savedCompleted;
+    private transient HashMap<String, String> savedProperties;
+    private transient List<Exercise> savedExercises;
+    private transient boolean exercisesReplaced;
+
     public CourseInfo(Account account, Course course) {
         this.username = account.getUsername().orNull();
         this.serverAddress = account.getServerAddress();
@@ -42,6 +69,11 @@ public class CourseInfo {
         return this.course.getName();
     }
 
+    /**
+     * Get the course. The exercises of the course must be modified through
+     * {@link #getExercises()} or {@link #setExercises(List)}, because the lookup tables
+     * of this object don't see the changes done directly to the list of the course.
+     */
     public Course getCourse() {
         return this.course;
     }
@@ -52,11 +84,52 @@ public class CourseInfo {
         if (this.localCompletedExercises == null) {
             this.localCompletedExercises = new ArrayList<>();
         }
-        return this.localCompletedExercises;
+        if (localCompletedView == null || !localCompletedView.wraps(localCompletedExercises)) {
+            localCompletedView = new ChangeTrackingList<>(
+                    localCompletedExercises, () -> localCompletedSet = null);
+        }
+        return localCompletedView;
+    }
+
+    public boolean isLocallyCompleted(String exerciseName) {
+        return getLocalCompletedSet().contains(exerciseName);
+    }
+
+    /**
+     * Mark the exercise as locally completed if it isn't already.
+     */
+    public void addLocalCompletedExercise(String exerciseName) {
+        if (getLocalCompletedSet().add(exerciseName)) {
+            this.localCompletedExercises.add(exerciseName);
+        }
+    }
+
+    public void removeLocalCompletedExercise(String exerciseName) {
+        if (getLocalCompletedSet().remove(exerciseName)) {
+            this.localCompletedExercises.remove(exerciseName);
+        }
+    }
+
+    private Set<String> getLocalCompletedSet() {
+        List<String> completed = getLocalCompletedExercises();
+        if (localCompletedSet == null) {
+            localCompletedSet = new HashSet<>(completed);
+        }
+        return localCompletedSet;
     }
 
     public List<Exercise> getExercises() {
-        return this.course.getExercises();
+        List<Exercise> exercises = this.course.getExercises();
+        if (exercises == null) {
+            return null;
+        }
+        if (exerciseView == null || !exerciseView.wraps(exercises)) {
+            exerciseView = new ChangeTrackingList<>(exercises, () -> {
+                exerciseIndex = null;
+                exercisesReplaced = true;
+            });
+        }
+        return exerciseView;
     }
 
     /**
@@ -74,20 +147,91 @@ public class CourseInfo {
     }
 
     public List<String> getExerciseNames() {
+        List<Exercise> exercises = this.course.getExercises();
         List<String> names = new ArrayList<>();
-        for (Exercise ex : this.course.getExercises()) {
-            names.add(ex.getName());
+        for (int i = 0; i < exercises.size(); i++) {
+            names.add(getExerciseName(exercises, i));
         }
         return names;
     }
 
     public Exercise getExercise(String name) {
-        for (Exercise exercise : this.course.getExercises()) {
-            if (exercise.getName().equals(name)) {
-                return exercise;
+        int index = indexOf(name);
+        return index >= 0 ? getExercises().get(index) : null;
+    }
+
+    /**
+     * Get the exercises whose names start with the prefix or are prefixes of it.
+     * The exercises are returned in the same order as they are in the course.
+     */
+    public List<Exercise> getExercisesMatchingPrefix(String prefix) {
+        List<Exercise> exercises = getExercises();
+        String[] names = getSortedExerciseNames();
+        List<Integer> positions = new ArrayList<>();
+
+        // the names starting with the prefix are next to each other in the sorted array
+        int start = Arrays.binarySearch(names, prefix);
+        if (start < 0) {
+            start = -start - 1;
+        }
+        for (int i = start; i < names.length && names[i].startsWith(prefix); i++) {
+            addPosition(positions, names[i]);
+        }
+        // and the names that are shorter than the prefix can be looked up directly
+        for (int length = 1; length < prefix.length(); length++) {
+            addPosition(positions, prefix.substring(0, length));
+        }
+
+        positions.sort(null);
+        List<Exercise> matching = new ArrayList<>();
+        for (int position : positions) {
+            matching.add(exercises.get(position));
+        }
+        return matching;
+    }
+
+    private void addPosition(List<Integer> positions, String name) {
+        int index = indexOf(name);
+        if (index >= 0) {
+            positions.add(index);
+        }
+    }
+
+    private String[] getSortedExerciseNames() {
+        Map<String, Integer> index = getExerciseIndex();
+        if (sortedExerciseNames == null) {
+            sortedExerciseNames = index.keySet().toArray(new String[index.size()]);
+            Arrays.sort(sortedExerciseNames);
+        }
+        return sortedExerciseNames;
+    }
+
+    private int indexOf(String name) {
+        Integer index = getExerciseIndex().get(name);
+        return index != null ? index : -1;
+    }
+
+    private Map<String, Integer> getExerciseIndex() {
+        List<Exercise> exercises = this.course.getExercises();
+        if (exerciseIndex == null || indexedExercises != exercises) {
+            exerciseIndex = new HashMap<>();
+            for (int i = 0; i < exercises.size(); i++) {
+                exerciseIndex.putIfAbsent(getExerciseName(exercises, i), i);
             }
+            indexedExercises = exercises;
+            sortedExerciseNames = null;
+        }
+        return exerciseIndex;
+    }
+
+    /**
+     * Get the name without parsing the exercise if it was loaded from the snapshot.
+     */
+    private static String getExerciseName(List<Exercise> exercises, int index) {
+        if (exercises instanceof LazyExerciseList) {
+            return ((LazyExerciseList) exercises).getName(index);
         }
-        return null;
+        return exercises.get(index).getName();
     }
 
     public static String getExerciseDeadline(Exercise exercise) {
@@ -99,31 +243,27 @@ public class CourseInfo {
 
     public void setExercises(List<Exercise> exercises) {
         this.course.setExercises(exercises);
+        this.exerciseIndex = null;
+        this.exercisesReplaced = true;
     }
 
     /**
      * Replaces an old identically named exercise with a new one. Adds if no old exercise is found.
      */
     public void replaceOldExercise(Exercise newExercise) {
-        List<Exercise> exercises = getExercises();
+        // the index is updated here, so the list of the course is modified directly
+        List<Exercise> exercises = this.course.getExercises();
         String exerciseName = newExercise.getName();
 
-        Exercise oldExercise = null;
-        for (Exercise exercise : exercises) {
-            if (exercise.getName().equals(exerciseName)) {
-                oldExercise = exercise;
-                break;
-            }
-        }
-
-        if (oldExercise == null) {
+        exercisesReplaced = true;
+        int index = indexOf(exerciseName);
+        if (index < 0) {
             exercises.add(newExercise);
+            getExerciseIndex().put(exerciseName, exercises.size() - 1);
+            sortedExerciseNames = null;
         } else {
-            int index = exercises.indexOf(oldExercise);
             exercises.set(index, newExercise);
         }
-
-        setExercises(exercises);
     }
 
     public void replaceOldExercises(List<Exercise> newExercises) {
@@ -132,6 +272,72 @@ public class CourseInfo {
         }
     }
 
+    byte[] getSavedDigest() {
+        return savedDigest;
+    }
+
+    /**
+     * Remember the digest and the state of the config file after it was loaded or saved.
+     */
+    void setSavedDigest(byte[] savedDigest) {
+        this.savedDigest = savedDigest;
+        this.savedCompleted = new HashSet<>(getLocalCompletedExercises());
+        this.savedProperties = new HashMap<>(getProperties());
+        this.savedExercises = this.course != null ? this.course.getExercises() : null;
+        this.exercisesReplaced = false;
+    }
+
+    /**
+     * Apply the changes done after the last load or save on top of the course info that
+     * another process has saved in the meantime.
+     *
+     * <p>The locally completed exercises and the properties are merged by applying only
+     * the changed values. The exercises of the other process are used unless they were
+     * replaced here, but an exercise stays attempted or completed if either process
+     * marked it so.
+     */
+    void mergeFrom(CourseInfo saved) {
+        if (savedCompleted == null) {
+            // this wasn't loaded from the file, so there is nothing to merge
+            return;
+        }
+        List<String> completed = new ArrayList<>(saved.getLocalCompletedExercises());
+        Set<String> current = new HashSet<>(getLocalCompletedExercises());
+        completed.removeIf(name -> savedCompleted.contains(name) && !current.contains(name));
+        for (String name : getLocalCompletedExercises()) {
+            if (!savedCompleted.contains(name) && !completed.contains(name)) {
+                completed.add(name);
+            }
+        }
+        this.localCompletedExercises = completed;
+        this.localCompletedSet = null;
+
+        this.properties = SettingsIo.mergeProperties(
+                getProperties(), savedProperties, saved.getProperties());
+
+        boolean replaced = exercisesReplaced || course.getExercises() != savedExercises;
+        if (!replaced && saved.getCourse() != null) {
+            List<Exercise> exercises = new ArrayList<>(saved.getExercises());
+            for (Exercise exercise : exercises) {
+                Exercise own = getExercise(exercise.getName());
+                if (own != null) {
+                    exercise.setAttempted(exercise.isAttempted() || own.isAttempted());
+                    exercise.setCompleted(exercise.isCompleted() || own.isCompleted());
+                }
+            }
+            this.course.setExercises(exercises);
+            this.exerciseIndex = null;
+        }
+    }
+
+    private HashMap<String, String> getProperties() {
+        // old .tmc.json files don't have the properties
+        if (this.properties == null) {
+            this.properties = new HashMap<>();
+        }
+        return this.properties;
+    }
+
     public Organization getOrganization() {
         return organization;
     }
@@ -163,4 +369,52 @@ public class CourseInfo {
     public int getPropertyInt(String prop) {
         return Integer.parseInt(this.properties.get(prop));
     }
+
+    /**
+     * A list that tells when its elements are added, removed or replaced. All the
+     * modifying methods of {@link AbstractList} go through the methods overridden here.
+     */
+    static class ChangeTrackingList<E> extends AbstractList<E> implements RandomAccess {
+        private final List<E> list;
+        private final Runnable onChange;
+
+        ChangeTrackingList(List<E> list, Runnable onChange) {
+            this.list = list;
+            this.onChange = onChange;
+        }
+
+        boolean wraps(List<E> list) {
+            return this.list == list;
+        }
+
+        @Override
+        public E get(int index) {
+            return list.get(index);
+        }
+
+        @Override
+        public int size() {
+            return list.size();
+        }
+
+        @Override
+        public E set(int index, E element) {
+            E old = list.set(index, element);
+            onChange.run();
+            return old;
+        }
+
+        @Override
+        public void add(int index, E element) {
+            list.add(index, element);
+            onChange.run();
+        }
+
+        @Override
+        public E remove(int index) {
+            E old = list.remove(index);
+            onChange.run();
+            return old;
+        }
+    }
 }
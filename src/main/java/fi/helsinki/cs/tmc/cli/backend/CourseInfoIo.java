@@ -5,16 +5,28 @@ import fi.helsinki.cs.tmc.cli.command.OrganizationCommand;
 import fi.helsinki.cs.tmc.core.domain.Course;
 
 import com.google.gson.Gson;
+import com.google.gson.JsonIOException;
+import com.google.gson.JsonParseException;
+import com.google.gson.stream.JsonWriter;
 import fi.helsinki.cs.tmc.core.domain.Organization;
 import fi.helsinki.cs.tmc.core.holders.TmcSettingsHolder;
+import org.apache.commons.io.output.NullOutputStream;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
 import java.io.Reader;
 import java.nio.charset.Charset;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.security.DigestInputStream;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 
 /**
  * Class for reading and writing to course config files (.tmc.json)
@@ -28,13 +40,31 @@ public class CourseInfoIo {
     // Contains username, server and course name.
     public static final String COURSE_CONFIG = ".tmc.json";
 
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    /**
+     * Save the course info.
+     * If another process has saved the file after it was loaded, the changes done after
+     * loading are merged into the saved version instead of overwriting it.
+     */
     public static Boolean save(CourseInfo course, Path courseInfoFile) {
         Gson gson = new Gson();
-        byte[] json = gson.toJson(course).getBytes();
         try {
-            Files.createDirectories(courseInfoFile.getParent());
-            Files.write(courseInfoFile, json);
-        } catch (IOException e) {
+            AtomicFiles.locked(courseInfoFile, () -> {
+                mergeSavedChanges(course, courseInfoFile);
+                MessageDigest digest = createDigest();
+                // stream the json into the file instead of building it in memory
+                AtomicFiles.replace(courseInfoFile, out -> {
+                    try (JsonWriter writer = new JsonWriter(new BufferedWriter(
+                            new OutputStreamWriter(new DigestOutputStream(out, digest), UTF8)))) {
+                        gson.toJson(course, CourseInfo.class, writer);
+                    }
+                });
+                course.setSavedDigest(digest.digest());
+                CourseInfoSnapshot.write(course, courseInfoFile, course.getSavedDigest());
+                return null;
+            });
+        } catch (IOException | JsonIOException e) {
             //TODO print to user
             logger.error("Could not create course file", e);
             return false;
@@ -42,21 +72,72 @@ public class CourseInfoIo {
         return true;
     }
 
+    private static void mergeSavedChanges(CourseInfo course, Path courseInfoFile)
+            throws IOException {
+        byte[] savedDigest = course.getSavedDigest();
+        if (savedDigest == null || !Files.exists(courseInfoFile)) {
+            return;
+        }
+        byte[] currentDigest = createDigest().digest(Files.readAllBytes(courseInfoFile));
+        if (MessageDigest.isEqual(savedDigest, currentDigest)) {
+            return;
+        }
+        logger.info("Merging the changes of another process into " + courseInfoFile);
+        CourseInfo saved = load(courseInfoFile);
+        if (saved != null) {
+            course.mergeFrom(saved);
+        }
+    }
+
+    /**
+     * Save the course info only if it has changed after it was loaded or saved.
+     * The json is generated without writing it anywhere to find out if it has
+     * changed, so the file isn't rewritten when the course info is the same.
+     */
+    public static Boolean saveIfChanged(CourseInfo course, Path courseInfoFile) {
+        byte[] savedDigest = course.getSavedDigest();
+        if (savedDigest != null && Files.exists(courseInfoFile)) {
+            MessageDigest digest = createDigest();
+            try (JsonWriter writer = new JsonWriter(new OutputStreamWriter(
+                    new DigestOutputStream(NullOutputStream.NULL_OUTPUT_STREAM, digest), UTF8))) {
+                new Gson().toJson(course, CourseInfo.class, writer);
+            } catch (IOException | JsonIOException e) {
+                logger.warn("Could not compare the course file", e);
+            }
+            if (MessageDigest.isEqual(savedDigest, digest.digest())) {
+                return true;
+            }
+        }
+        return save(course, courseInfoFile);
+    }
+
+    /**
+     * Load the course info from the config file.
+     * The binary snapshot of the file is used instead of the json if it's up to date.
+     */
     public static CourseInfo load(Path courseInfoFile) {
         Gson gson = new Gson();
         if (!Files.exists(courseInfoFile)) {
             //Return null if file is not found, this is normal behaviour
             return null;
         }
-        Reader reader;
-        try {
-            reader = Files.newBufferedReader(courseInfoFile, Charset.forName("UTF-8"));
-        } catch (IOException e) {
+        CourseInfo info = CourseInfoSnapshot.load(courseInfoFile);
+        if (info != null) {
+            return info;
+        }
+        MessageDigest digest = createDigest();
+        try (Reader reader = new BufferedReader(new InputStreamReader(
+                new DigestInputStream(Files.newInputStream(courseInfoFile), digest), UTF8))) {
+            info = gson.fromJson(reader, CourseInfo.class);
+        } catch (IOException | JsonParseException e) {
             //TODO print to user
             logger.error("Course file located, but failed to read from it", e);
             return null;
         }
-        return gson.fromJson(reader, CourseInfo.class);
+        if (info != null) {
+            info.setSavedDigest(digest.digest());
+        }
+        return info;
     }
 
     public static void createNewCourse(Course course, Account account, Path parentDir) {
@@ -70,6 +151,7 @@ public class CourseInfoIo {
     public static void deleteConfigDirectory(Course course, Path parentDir) {
         Path configFile = parentDir.resolve(course.getName()).resolve(CourseInfoIo.COURSE_CONFIG);
         delete(configFile);
+        CourseInfoSnapshot.delete(configFile);
     }
 
     private static void delete(Path courseInfoFile) {
@@ -79,4 +161,13 @@ public class CourseInfoIo {
             logger.error("Could not delete course file", e);
         }
     }
+
+    private static MessageDigest createDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException e) {
+            // every java platform is required to support SHA-1
+            throw new IllegalStateException(e);
+        }
+    }
 }
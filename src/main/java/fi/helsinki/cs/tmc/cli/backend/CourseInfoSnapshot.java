@@ -0,0 +1,310 @@
+package fi.helsinki.cs.tmc.cli.backend;
+
+import fi.helsinki.cs.tmc.core.domain.Exercise;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Binary index of the course config file, stored next to it in .tmc.bin.
+ *
+ * <p>The json file stays as the source of truth. The index has the position of
+ * every exercise in the json file, so loading the course info parses only the json
+ * around the exercises and the exercises are parsed when they are first used.
+ * The index is used only if the size, modification time and hash of the json file
+ * are the same as when the index was written.
+ */
+class CourseInfoSnapshot {
+
+    private static final Logger logger = LoggerFactory.getLogger(CourseInfoSnapshot.class);
+
+    // SNAPSHOT_FILE is stored in the same directory as the COURSE_CONFIG file.
+    static final String SNAPSHOT_FILE = ".tmc.bin";
+
+    private static final int MAGIC = 0x544d4342;
+    private static final int VERSION = 1;
+    private static final int MAX_DIGEST_LENGTH = 64;
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    static final Gson gson = new Gson();
+
+    static Path getSnapshotFile(Path courseInfoFile) {
+        return courseInfoFile.resolveSibling(SNAPSHOT_FILE);
+    }
+
+    /**
+     * Write the index of the json file that was just saved.
+     *
+     * @param info the saved course info
+     * @param courseInfoFile the saved json file
+     * @param digest SHA-1 of the json file
+     */
+    static void write(CourseInfo info, Path courseInfoFile, byte[] digest) {
+        Path snapshotFile = getSnapshotFile(courseInfoFile);
+        try {
+            byte[] json = Files.readAllBytes(courseInfoFile);
+            List<Exercise> exercises = info.getExercises();
+            int[] positions = new JsonScanner(json).findExercises();
+            if (exercises == null || positions == null
+                    || positions.length != 2 + 2 * exercises.size()) {
+                // the course can't be indexed, so use only the json
+                Files.deleteIfExists(snapshotFile);
+                return;
+            }
+
+            Path tempFile = snapshotFile.resolveSibling(SNAPSHOT_FILE + ".tmp");
+            try (DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(tempFile)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeLong(json.length);
+                out.writeLong(Files.getLastModifiedTime(courseInfoFile).toMillis());
+                out.writeInt(digest.length);
+                out.write(digest);
+                out.writeInt(positions[0]);
+                out.writeInt(positions[1]);
+                out.writeInt(exercises.size());
+                for (int i = 0; i < exercises.size(); i++) {
+                    out.writeUTF(String.valueOf(exercises.get(i).getName()));
+                    out.writeInt(positions[2 + 2 * i]);
+                    out.writeInt(positions[3 + 2 * i]);
+                }
+            }
+            Files.move(tempFile, snapshotFile, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Could not write the course snapshot", e);
+        }
+    }
+
+    /**
+     * Load the course info by using the index.
+     *
+     * @return the course info or null if there is no valid index for the json file
+     */
+    static CourseInfo load(Path courseInfoFile) {
+        Path snapshotFile = getSnapshotFile(courseInfoFile);
+        if (!Files.exists(snapshotFile)) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(Files.newInputStream(snapshotFile)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                return null;
+            }
+            long size = in.readLong();
+            long modified = in.readLong();
+            if (size != Files.size(courseInfoFile)
+                    || modified != Files.getLastModifiedTime(courseInfoFile).toMillis()) {
+                return null;
+            }
+            int digestLength = in.readInt();
+            if (digestLength < 0 || digestLength > MAX_DIGEST_LENGTH) {
+                return null;
+            }
+            byte[] digest = new byte[digestLength];
+            in.readFully(digest);
+            byte[] json = Files.readAllBytes(courseInfoFile);
+            if (!MessageDigest.isEqual(digest, MessageDigest.getInstance("SHA-1").digest(json))) {
+                return null;
+            }
+
+            int arrayStart = in.readInt();
+            int arrayEnd = in.readInt();
+            int count = in.readInt();
+            if (arrayStart < 0 || arrayStart >= arrayEnd || arrayEnd > json.length || count < 0) {
+                return null;
+            }
+            List<String> names = new ArrayList<>(count);
+            int[] starts = new int[count];
+            int[] ends = new int[count];
+            for (int i = 0; i < count; i++) {
+                names.add(in.readUTF());
+                starts[i] = in.readInt();
+                ends[i] = in.readInt();
+                if (starts[i] <= arrayStart || starts[i] >= ends[i] || ends[i] >= arrayEnd) {
+                    return null;
+                }
+            }
+
+            // parse everything except the exercises, which is only a small part of the file
+            String json1 = new String(json, 0, arrayStart, UTF8);
+            String json2 = new String(json, arrayEnd, json.length - arrayEnd, UTF8);
+            CourseInfo info = gson.fromJson(json1 + "[]" + json2, CourseInfo.class);
+            if (info == null || info.getCourse() == null) {
+                return null;
+            }
+            info.getCourse().setExercises(new LazyExerciseList(json, names, starts, ends));
+            info.setSavedDigest(digest);
+            return info;
+        } catch (IOException | JsonParseException | NoSuchAlgorithmException e) {
+            logger.warn("Could not read the course snapshot", e);
+            return null;
+        }
+    }
+
+    static void delete(Path courseInfoFile) {
+        try {
+            Files.deleteIfExists(getSnapshotFile(courseInfoFile));
+        } catch (IOException e) {
+            logger.warn("Could not delete the course snapshot", e);
+        }
+    }
+
+    /**
+     * Finds the positions of the exercises in the course config file.
+     * The positions are byte offsets, which is fine because all the json
+     * syntax characters are single bytes in UTF-8.
+     */
+    private static class JsonScanner {
+
+        private final byte[] json;
+        private int pos;
+
+        JsonScanner(byte[] json) {
+            this.json = json;
+        }
+
+        /**
+         * Get the start and end of the exercise array followed by the start and end
+         * of every exercise in it.
+         *
+         * @return the positions or null if the array wasn't found
+         */
+        int[] findExercises() {
+            try {
+                if (!findKey("course") || !findKey("exercises")) {
+                    return null;
+                }
+                return readObjectArray();
+            } catch (ArrayIndexOutOfBoundsException e) {
+                return null;
+            }
+        }
+
+        /**
+         * Move to the value of the key in the object starting at the current position.
+         */
+        private boolean findKey(String key) {
+            skipWhitespace();
+            if (json[pos] != '{') {
+                return false;
+            }
+            pos++;
+            while (true) {
+                skipWhitespace();
+                if (json[pos] != '"') {
+                    return false;
+                }
+                int keyStart = pos + 1;
+                skipString();
+                String name = new String(json, keyStart, pos - keyStart - 1, UTF8);
+                skipWhitespace();
+                if (json[pos] != ':') {
+                    return false;
+                }
+                pos++;
+                skipWhitespace();
+                if (name.equals(key)) {
+                    return true;
+                }
+                skipValue();
+                skipWhitespace();
+                if (json[pos] != ',') {
+                    return false;
+                }
+                pos++;
+            }
+        }
+
+        private int[] readObjectArray() {
+            if (json[pos] != '[') {
+                return null;
+            }
+            List<Integer> positions = new ArrayList<>();
+            positions.add(pos);
+            positions.add(0);
+            pos++;
+            skipWhitespace();
+            if (json[pos] == ']') {
+                pos++;
+            }
+            while (json[pos - 1] != ']') {
+                skipWhitespace();
+                if (json[pos] != '{') {
+                    return null;
+                }
+                positions.add(pos);
+                skipValue();
+                positions.add(pos);
+                skipWhitespace();
+                if (json[pos] != ',' && json[pos] != ']') {
+                    return null;
+                }
+                pos++;
+            }
+            positions.set(1, pos);
+
+            int[] result = new int[positions.size()];
+            for (int i = 0; i < result.length; i++) {
+                result[i] = positions.get(i);
+            }
+            return result;
+        }
+
+        private void skipValue() {
+            byte first = json[pos];
+            if (first == '"') {
+                skipString();
+            } else if (first == '{' || first == '[') {
+                int depth = 0;
+                do {
+                    byte next = json[pos];
+                    if (next == '"') {
+                        skipString();
+                        continue;
+                    }
+                    if (next == '{' || next == '[') {
+                        depth++;
+                    } else if (next == '}' || next == ']') {
+                        depth--;
+                    }
+                    pos++;
+                } while (depth > 0);
+            } else {
+                while (",}] \t\r\n".indexOf(json[pos]) < 0) {
+                    pos++;
+                }
+            }
+        }
+
+        private void skipString() {
+            pos++;
+            while (json[pos] != '"') {
+                pos += json[pos] == '\\' ? 2 : 1;
+            }
+            pos++;
+        }
+
+        private void skipWhitespace() {
+            while (" \t\r\n".indexOf(json[pos]) >= 0) {
+                pos++;
+            }
+        }
+    }
+}
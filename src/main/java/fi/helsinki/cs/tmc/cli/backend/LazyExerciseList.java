@@ -0,0 +1,100 @@
+package fi.helsinki.cs.tmc.cli.backend;
+
+import fi.helsinki.cs.tmc.core.domain.Exercise;
+
+import java.nio.charset.Charset;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * Exercise list of the course snapshot that parses the exercises from the json
+ * file only when they are used.
+ * The names of the exercises are known without parsing the exercises.
+ */
+class LazyExerciseList extends AbstractList<Exercise> implements RandomAccess {
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private byte[] json;
+    private final List<String> names;
+    private final int[] starts;
+    private final int[] ends;
+    private final List<Exercise> exercises;
+    private boolean parsedAll;
+
+    LazyExerciseList(byte[] json, List<String> names, int[] starts, int[] ends) {
+        this.json = json;
+        this.names = names;
+        this.starts = starts;
+        this.ends = ends;
+        this.exercises = new ArrayList<>(Collections.<Exercise>nCopies(names.size(), null));
+    }
+
+    /**
+     * Get the name of the exercise without parsing the exercise.
+     */
+    String getName(int index) {
+        if (parsedAll) {
+            return exercises.get(index).getName();
+        }
+        return names.get(index);
+    }
+
+    @Override
+    public Exercise get(int index) {
+        Exercise exercise = exercises.get(index);
+        if (exercise == null) {
+            String exerciseJson =
+                    new String(json, starts[index], ends[index] - starts[index], UTF8);
+            exercise = CourseInfoSnapshot.gson.fromJson(exerciseJson, Exercise.class);
+            exercises.set(index, exercise);
+        }
+        return exercise;
+    }
+
+    @Override
+    public int size() {
+        return exercises.size();
+    }
+
+    @Override
+    public Exercise set(int index, Exercise exercise) {
+        Exercise old = get(index);
+        exercises.set(index, exercise);
+        if (!parsedAll) {
+            names.set(index, exercise.getName());
+        }
+        return old;
+    }
+
+    @Override
+    public void add(int index, Exercise exercise) {
+        parseAll();
+        modCount++;
+        exercises.add(index, exercise);
+    }
+
+    @Override
+    public Exercise remove(int index) {
+        parseAll();
+        modCount++;
+        return exercises.remove(index);
+    }
+
+    /**
+     * The positions of the exercises can't be used after the list is changed.
+     */
+    private void parseAll() {
+        if (parsedAll) {
+            return;
+        }
+        for (int i = 0; i < exercises.size(); i++) {
+            get(i);
+        }
+        parsedAll = true;
+        json = null;
+    }
+}
@@ -0,0 +1,258 @@
+package fi.helsinki.cs.tmc.cli.backend;
+
+import fi.helsinki.cs.tmc.core.domain.Course;
+import fi.helsinki.cs.tmc.core.domain.Organization;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.gson.reflect.TypeToken;
+import org.apache.commons.io.FileUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.lang.reflect.Type;
+import java.nio.charset.Charset;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Local cache for the course and organization metadata fetched from the tmc server.
+ *
+ * <p>The cache is stored in the cache sub-directory of the config directory, and
+ * every account has its own directory in it. Entries expire after the time to live and
+ * the least recently used entries are removed when the cache grows over its size limit.
+ * The cache is disabled if it's created without a directory.
+ */
+public class MetadataCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(MetadataCache.class);
+
+    // CACHE_DIR is the sub-directory of the CONFIG_DIR that contains the cached responses.
+    public static final String CACHE_DIR = "cache";
+
+    public static final String COURSES = "courses";
+    public static final String ORGANIZATIONS = "organizations";
+    // COURSE_INDEX remembers the courses by name, so that their details can be
+    // fetched without listing all the courses first.
+    public static final String COURSE_INDEX = "course-index";
+
+    public static final Type COURSE_LIST_TYPE = new TypeToken<List<Course>>() {}.getType();
+    public static final Type ORGANIZATION_LIST_TYPE =
+            new TypeToken<List<Organization>>() {}.getType();
+    public static final Type COURSE_INDEX_TYPE = new TypeToken<Map<String, Course>>() {}.getType();
+
+    // NEVER_EXPIRES is the time to live of the entries that are only removed by the size limit
+    public static final long NEVER_EXPIRES = Long.MAX_VALUE;
+
+    private static final long DEFAULT_TIME_TO_LIVE = TimeUnit.MINUTES.toMillis(10);
+    private static final long DEFAULT_MAX_SIZE = 8 * 1024 * 1024;
+    private static final String ENTRY_SUFFIX = ".json";
+
+    private final Path cacheDirectory;
+    private final long timeToLive;
+    private final long maxSize;
+    private final Gson gson;
+
+    public MetadataCache(Path cacheDirectory) {
+        this(cacheDirectory, DEFAULT_TIME_TO_LIVE, DEFAULT_MAX_SIZE);
+    }
+
+    public MetadataCache(Path cacheDirectory, long timeToLive, long maxSize) {
+        this.cacheDirectory = cacheDirectory;
+        this.timeToLive = timeToLive;
+        this.maxSize = maxSize;
+        this.gson = new Gson();
+    }
+
+    public boolean isEnabled() {
+        return cacheDirectory != null;
+    }
+
+    /**
+     * Get the name of the cache entry that contains the details of the course.
+     */
+    public static String courseDetails(String courseName) {
+        return "course-" + courseName;
+    }
+
+    /**
+     * Get a cached value of the account.
+     *
+     * @return the cached value or null if it isn't cached or has expired
+     */
+    public <T> T get(Settings settings, String name, Type type) {
+        return get(settings, name, type, timeToLive);
+    }
+
+    /**
+     * Get a cached value of the account with a different time to live.
+     *
+     * @param timeToLive time to live in milliseconds or NEVER_EXPIRES
+     * @return the cached value or null if it isn't cached or has expired
+     */
+    public <T> T get(Settings settings, String name, Type type, long timeToLive) {
+        if (!isEnabled()) {
+            return null;
+        }
+        Path file = getEntryFile(settings, name);
+        if (!Files.exists(file)) {
+            return null;
+        }
+
+        try (Reader reader = Files.newBufferedReader(file, Charset.forName("UTF-8"))) {
+            JsonObject entry = new JsonParser().parse(reader).getAsJsonObject();
+            long savedAt = entry.get("saved").getAsLong();
+            if (System.currentTimeMillis() - savedAt > timeToLive) {
+                return null;
+            }
+            T value = gson.fromJson(entry.get("value"), type);
+            // the modification time is used for finding the least recently used entries
+            Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+            return value;
+        } catch (Exception e) {
+            logger.warn("Failed to read the cache entry " + file, e);
+            invalidate(settings, name);
+            return null;
+        }
+    }
+
+    /**
+     * Store a value of the account into the cache.
+     */
+    public void put(Settings settings, String name, Object value) {
+        if (!isEnabled() || value == null) {
+            return;
+        }
+        Path file = getEntryFile(settings, name);
+
+        JsonObject entry = new JsonObject();
+        entry.addProperty("saved", System.currentTimeMillis());
+        entry.add("value", gson.toJsonTree(value));
+        byte[] json = gson.toJson(entry).getBytes(Charset.forName("UTF-8"));
+        try {
+            Files.createDirectories(file.getParent());
+            Path tempFile =
+                    Files.createTempFile(file.getParent(), file.getFileName().toString(), ".tmp");
+            Files.write(tempFile, json);
+            Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            logger.warn("Failed to write the cache entry " + file, e);
+            return;
+        }
+        evictOldEntries();
+    }
+
+    /**
+     * Remove a cached value of the account.
+     * This must be called after the value has been changed on the server.
+     */
+    public void invalidate(Settings settings, String name) {
+        if (!isEnabled()) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(getEntryFile(settings, name));
+        } catch (IOException e) {
+            logger.warn("Failed to remove the cache entry " + name, e);
+        }
+    }
+
+    /**
+     * Remove the cached details of the course.
+     */
+    public void invalidateCourse(Settings settings, String courseName) {
+        invalidate(settings, courseDetails(courseName));
+    }
+
+    /**
+     * Remove every cached value of every account.
+     */
+    public void clear() {
+        if (!isEnabled()) {
+            return;
+        }
+        try {
+            FileUtils.deleteDirectory(cacheDirectory.toFile());
+        } catch (IOException e) {
+            logger.warn("Failed to remove the cache directory", e);
+        }
+    }
+
+    private Path getEntryFile(Settings settings, String name) {
+        String fileName = name.replaceAll("[^a-zA-Z0-9_.-]", "_") + ENTRY_SUFFIX;
+        return cacheDirectory.resolve(getAccountKey(settings)).resolve(fileName);
+    }
+
+    /**
+     * The entries are stored separately for every server, user and organization.
+     */
+    private static String getAccountKey(Settings settings) {
+        String key = settings.getServerAddress()
+                + "\n" + settings.getUsername().or("")
+                + "\n" + (settings.getOrganization().isPresent()
+                        ? settings.getOrganization().get().getSlug() : "");
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-1");
+            StringBuilder builder = new StringBuilder();
+            for (byte b : digest.digest(key.getBytes(Charset.forName("UTF-8")))) {
+                builder.append(String.format("%02x", b));
+            }
+            return builder.toString();
+        } catch (NoSuchAlgorithmException e) {
+            return Integer.toHexString(key.hashCode());
+        }
+    }
+
+    private void evictOldEntries() {
+        List<Path> entries = new ArrayList<>();
+        long totalSize = 0;
+        try (DirectoryStream<Path> accounts = Files.newDirectoryStream(cacheDirectory)) {
+            for (Path account : accounts) {
+                if (!Files.isDirectory(account)) {
+                    continue;
+                }
+                try (DirectoryStream<Path> files = Files.newDirectoryStream(account)) {
+                    for (Path file : files) {
+                        entries.add(file);
+                        totalSize += Files.size(file);
+                    }
+                }
+            }
+            if (totalSize <= maxSize) {
+                return;
+            }
+
+            entries.sort(Comparator.comparingLong(MetadataCache::lastModified));
+            for (Path file : entries) {
+                if (totalSize <= maxSize) {
+                    break;
+                }
+                totalSize -= Files.size(file);
+                Files.deleteIfExists(file);
+            }
+        } catch (IOException e) {
+            logger.warn("Failed to remove old cache entries", e);
+        }
+    }
+
+    private static long lastModified(Path file) {
+        try {
+            return Files.getLastModifiedTime(file).toMillis();
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+}
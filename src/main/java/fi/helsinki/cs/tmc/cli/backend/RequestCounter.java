@@ -0,0 +1,63 @@
+package fi.helsinki.cs.tmc.cli.backend;
+
+import org.apache.http.HttpException;
+import org.apache.http.HttpHost;
+import org.apache.http.HttpRequest;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.impl.conn.SystemDefaultRoutePlanner;
+import org.apache.http.protocol.HttpContext;
+
+import java.net.ProxySelector;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Route planner that counts the http requests made by tmc-core.
+ *
+ * <p>The routes are planned like the http client does by default, using the system
+ * proxy settings. The counts are printed with the --trace-startup flag, which shows
+ * how many round trips a command needs.
+ */
+public class RequestCounter extends SystemDefaultRoutePlanner {
+
+    private static final RequestCounter instance = new RequestCounter();
+
+    private final Map<String, Integer> requests = new TreeMap<>();
+
+    private RequestCounter() {
+        super(ProxySelector.getDefault());
+    }
+
+    public static RequestCounter getInstance() {
+        return instance;
+    }
+
+    @Override
+    public HttpRoute determineRoute(HttpHost host, HttpRequest request, HttpContext context)
+            throws HttpException {
+        if (host != null) {
+            synchronized (requests) {
+                requests.merge(host.toHostString(), 1, Integer::sum);
+            }
+        }
+        return super.determineRoute(host, request, context);
+    }
+
+    /**
+     * Forget the counted requests. The daemon runs many commands in the same process.
+     */
+    public void reset() {
+        synchronized (requests) {
+            requests.clear();
+        }
+    }
+
+    /**
+     * Get the number of the requests to each host during this run.
+     */
+    public Map<String, Integer> getRequests() {
+        synchronized (requests) {
+            return new TreeMap<>(requests);
+        }
+    }
+}
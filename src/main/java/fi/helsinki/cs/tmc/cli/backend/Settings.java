@@ -37,6 +37,14 @@ public class Settings implements TmcSettings {
         this.account = new Account(username, password, organization);
     }
 
+    /**
+     * Create settings that use the account without migrating or saving it.
+     * @param account account that has the login info
+     */
+    public Settings(Account account) {
+        this.account = account;
+    }
+
     /**
      * This method is used for changing the main settings object.
      * @param account account that has the login info
@@ -187,7 +195,7 @@ public class Settings implements TmcSettings {
 
     @Override
     public SystemDefaultRoutePlanner proxy() {
-        return null;
+        return RequestCounter.getInstance();
     }
 
     @Override
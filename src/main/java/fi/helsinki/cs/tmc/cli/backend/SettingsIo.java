@@ -2,28 +2,50 @@ package fi.helsinki.cs.tmc.cli.backend;
 
 import fi.helsinki.cs.tmc.cli.io.EnvironmentUtil;
 
+import com.google.common.base.Optional;
 import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
-import java.io.Reader;
 import java.nio.charset.Charset;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
 
 /**
  * Reads and writes to config files on the system.
+ *
+ * <p>Every config file is parsed only once per process and kept in memory until the
+ * file is changed by another process. The account changes done by
+ * {@link #saveCurrentSettingsToAccountList} are written only once by {@link #flush}
+ * after the command has finished. Several tmc processes may run at the same time, so
+ * the files are written with {@link AtomicFiles} and the changes are merged into the
+ * latest version of the file instead of overwriting the changes of other processes.
  */
 public class SettingsIo {
 
     private static final Logger logger = LoggerFactory.getLogger(SettingsIo.class);
 
+    private static final Gson gson = new Gson();
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private static final Map<Path, CachedFile<AccountList>> accountLists = new HashMap<>();
+    private static final Map<Path, CachedFile<HashMap<String, String>>> propertyMaps =
+            new HashMap<>();
+    // pendingAccounts are the changed accounts that haven't been written yet
+    private static final Map<Path, List<Account>> pendingAccounts = new HashMap<>();
+
     // CONFIG_DIR is the sub-directory located within the system specific
     // configuration folder, ex. /home/user/.config/CONFIG_DIR/
     public static final String CONFIG_DIR = "tmc-cli";
@@ -42,25 +64,62 @@ public class SettingsIo {
         return loadAccountList(getConfigDirectory());
     }
 
-    public static AccountList loadAccountList(Path configRoot) {
+    /**
+     * Load the accounts.
+     * The callers get their own copy of the list, so the cached list changes only
+     * when the list is saved.
+     */
+    public static synchronized AccountList loadAccountList(Path configRoot) {
         Path file = getAccountsFile(configRoot);
+        CachedFile<AccountList> cached = accountLists.get(file);
+        if (cached != null && (cached.dirty || cached.isCurrent(file))) {
+            return new AccountList(cached.value);
+        }
         if (!Files.exists(file)) {
             return new AccountList();
         }
-        return getHolderFromJson(file);
+        AccountList list = getHolderFromJson(file);
+        if (list == null) {
+            return null;
+        }
+        accountLists.put(file, new CachedFile<>(list, file));
+        return new AccountList(list);
     }
 
     public static boolean saveAccountList(AccountList list) {
         return saveAccountList(list, getConfigDirectory());
     }
 
-    public static boolean saveAccountList(AccountList list, Path configRoot) {
+    /**
+     * Save the accounts.
+     * The accounts that another process has added into the file are kept.
+     */
+    public static synchronized boolean saveAccountList(AccountList list, Path configRoot) {
         Path file = getAccountsFile(configRoot);
-        return saveHolderToJson(list, file);
+        AccountList merged;
+        try {
+            merged = AtomicFiles.locked(file, () -> {
+                byte[] content = readContent(file);
+                AccountList saved = content != null ? accountsFromJson(content) : null;
+                AccountList result = mergeAccounts(list, saved);
+                replaceIfChanged(file, content, toJson(result));
+                return result;
+            });
+        } catch (IOException e) {
+            //TODO print error to user
+            logger.error("Could not write account to accounts file", e);
+            return false;
+        }
+        pendingAccounts.remove(file);
+        // the caller may keep changing its list after saving it
+        accountLists.put(file, new CachedFile<>(new AccountList(merged), file));
+        return true;
     }
 
-    public static boolean delete() {
+    public static synchronized boolean delete() {
         Path file = getAccountsFile(getConfigDirectory());
+        accountLists.remove(file);
+        pendingAccounts.remove(file);
         try {
             Files.deleteIfExists(file);
         } catch (IOException e) {
@@ -70,11 +129,56 @@ public class SettingsIo {
         return true;
     }
 
-    public static void saveCurrentSettingsToAccountList(Settings settings) {
+    /**
+     * Replace the account of the settings in the account list.
+     * The list is written by {@link #flush}, so that several changes cause only one write.
+     */
+    public static synchronized void saveCurrentSettingsToAccountList(Settings settings) {
+        Path file = getAccountsFile(getConfigDirectory());
         AccountList list = loadAccountList();
+        replaceAccount(list, settings.getAccount());
+
+        CachedFile<AccountList> cached = new CachedFile<>(list, file);
+        cached.dirty = true;
+        accountLists.put(file, cached);
+        pendingAccounts.computeIfAbsent(file, key -> new ArrayList<>()).add(settings.getAccount());
+    }
+
+    /**
+     * Write the changed accounts into their files.
+     * The changes are applied to the latest version of the file, so the accounts changed
+     * by other processes are kept. This is called after every command.
+     */
+    public static synchronized void flush() {
+        for (Map.Entry<Path, List<Account>> entry : pendingAccounts.entrySet()) {
+            Path file = entry.getKey();
+            CachedFile<AccountList> cached = accountLists.get(file);
+            try {
+                AccountList merged = AtomicFiles.locked(file, () -> {
+                    byte[] content = readContent(file);
+                    AccountList list = content != null ? accountsFromJson(content) : null;
+                    if (list == null) {
+                        list = cached != null ? cached.value : new AccountList();
+                    }
+                    for (Account account : entry.getValue()) {
+                        replaceAccount(list, account);
+                    }
+                    replaceIfChanged(file, content, toJson(list));
+                    return list;
+                });
+                accountLists.put(file, new CachedFile<>(merged, file));
+            } catch (IOException e) {
+                //TODO print error to user
+                logger.error("Could not write account to accounts file", e);
+            }
+        }
+        pendingAccounts.clear();
+    }
+
+    private static void replaceAccount(AccountList list, Account newAccount) {
         Set<Account> deletables = new HashSet<>();
         list.forEach(account -> {
-            if (account.getUsername().equals(settings.getAccount().getUsername())) {
+            if (account.getUsername().equals(newAccount.getUsername())) {
                 if (!account.getUsername().isPresent()) {
                     logger.error("Savable account doesn't exist");
                     return;
@@ -83,31 +187,116 @@ public class SettingsIo {
             }
         });
         deletables.stream().forEach(d -> list.deleteAccount(d.getUsername().get()));
-        list.addAccount(settings.getAccount());
-        saveAccountList(list);
+        list.addAccount(newAccount);
+    }
+
+    /**
+     * Add the accounts that are only in the saved list after the accounts of the list.
+     */
+    private static AccountList mergeAccounts(AccountList list, AccountList saved) {
+        if (saved == null) {
+            return list;
+        }
+        List<Account> accounts = new ArrayList<>();
+        Set<Optional<String>> usernames = new HashSet<>();
+        for (Account account : list) {
+            accounts.add(account);
+            usernames.add(account.getUsername());
+        }
+        for (Account account : saved) {
+            if (usernames.add(account.getUsername())) {
+                accounts.add(account);
+            }
+        }
+        AccountList merged = new AccountList();
+        // addAccount adds to the beginning of the list
+        for (int i = accounts.size() - 1; i >= 0; i--) {
+            merged.addAccount(accounts.get(i));
+        }
+        return merged;
     }
 
     public static HashMap<String, String> loadProperties() {
         return loadPropertiesFrom(getConfigDirectory());
     }
 
-    public static HashMap<String, String> loadPropertiesFrom(Path path) {
+    /**
+     * Load the properties.
+     * The callers get their own copy of the properties that they can modify.
+     */
+    public static synchronized HashMap<String, String> loadPropertiesFrom(Path path) {
         Path file = getPropertiesFile(path);
-        HashMap<String, String> properties = getPropertiesFromJson(file);
-        if (properties != null) {
-            return properties;
-        } else {
-            return new HashMap<>();
+        CachedFile<HashMap<String, String>> cached = propertyMaps.get(file);
+        if (cached == null || !cached.isCurrent(file)) {
+            HashMap<String, String> properties = getPropertiesFromJson(file);
+            if (properties == null) {
+                return new HashMap<>();
+            }
+            cached = new CachedFile<>(properties, file);
+            propertyMaps.put(file, cached);
         }
+        return new HashMap<>(cached.value);
     }
 
     public static boolean saveProperties(HashMap<String, String> properties) {
         return savePropertiesTo(properties, getConfigDirectory());
     }
 
-    public static boolean savePropertiesTo(HashMap<String, String> properties, Path path) {
+    /**
+     * Save the properties.
+     * Only the properties that have changed after they were loaded are written, so the
+     * properties changed by other processes are kept. The file isn't rewritten if the
+     * properties haven't changed.
+     */
+    public static synchronized boolean savePropertiesTo(
+            HashMap<String, String> properties, Path path) {
         Path file = getPropertiesFile(path);
-        return savePropertiesToJson(properties, file);
+        CachedFile<HashMap<String, String>> cached = propertyMaps.get(file);
+        if (cached != null && cached.value.equals(properties) && cached.isCurrent(file)) {
+            return true;
+        }
+        HashMap<String, String> merged;
+        try {
+            merged = AtomicFiles.locked(file, () -> {
+                byte[] content = readContent(file);
+                HashMap<String, String> saved =
+                        content != null ? propertiesFromJson(content) : null;
+                HashMap<String, String> result = cached != null && saved != null
+                        ? mergeProperties(properties, cached.value, saved)
+                        : new HashMap<>(properties);
+                replaceIfChanged(file, content, toJson(result));
+                return result;
+            });
+        } catch (IOException e) {
+            //TODO print error to user
+            logger.error("Could not write properties to file", e);
+            return false;
+        }
+        propertyMaps.put(file, new CachedFile<>(merged, file));
+        return true;
+    }
+
+    /**
+     * Apply the changes between the loaded and the current properties to the saved ones.
+     * This is also used for the properties of the course config files.
+     */
+    static HashMap<String, String> mergeProperties(HashMap<String, String> properties,
+            HashMap<String, String> loaded, HashMap<String, String> saved) {
+        HashMap<String, String> result = new HashMap<>(saved);
+        Set<String> keys = new HashSet<>(loaded.keySet());
+        keys.addAll(properties.keySet());
+        for (String key : keys) {
+            String value = properties.get(key);
+            if (Objects.equals(value, loaded.get(key))) {
+                continue;
+            }
+            if (value == null) {
+                result.remove(key);
+            } else {
+                result.put(key, value);
+            }
+        }
+        return result;
     }
 
     /**
@@ -171,56 +360,112 @@ public class SettingsIo {
     }
 
     private static AccountList getHolderFromJson(Path file) {
-        Gson gson = new Gson();
-        Reader reader;
+        byte[] content = readContent(file);
+        return content != null ? accountsFromJson(content) : null;
+    }
+
+    private static AccountList accountsFromJson(byte[] content) {
         try {
-            reader = Files.newBufferedReader(file, Charset.forName("UTF-8"));
-        } catch (IOException e) {
+            return gson.fromJson(new String(content, UTF8), AccountList.class);
+        } catch (JsonParseException e) {
             //TODO print error to user
             logger.error("Accounts file located, but failed to read from it", e);
             return null;
         }
-        return gson.fromJson(reader, AccountList.class);
     }
 
-    private static boolean saveHolderToJson(AccountList holder, Path file) {
-        Gson gson = new Gson();
-        byte[] json = gson.toJson(holder).getBytes();
-        try {
-            Files.write(file, json);
-        } catch (IOException e) {
-            //TODO print error to user
-            logger.error("Could not write account to accounts file", e);
-            return false;
-        }
-        return true;
+    private static HashMap<String, String> getPropertiesFromJson(Path file) {
+        byte[] content = readContent(file);
+        return content != null ? propertiesFromJson(content) : null;
     }
 
-    private static HashMap<String, String> getPropertiesFromJson(Path file) {
-        Gson gson = new Gson();
-        Reader reader;
+    private static HashMap<String, String> propertiesFromJson(byte[] content) {
         try {
-            reader = Files.newBufferedReader(file, Charset.forName("UTF-8"));
-        } catch (IOException e) {
+            @SuppressWarnings("unchecked")
+            HashMap<String, String> map = gson.fromJson(new String(content, UTF8), HashMap.class);
+            return map;
+        } catch (JsonParseException e) {
             //TODO print error to user
             logger.error("Properties file located, but failed to read from it", e);
             return null;
         }
-        @SuppressWarnings("unchecked")
-        HashMap<String, String> map = gson.fromJson(reader, HashMap.class);
-        return map;
     }
 
-    private static boolean savePropertiesToJson(HashMap<String, String> properties, Path file) {
-        Gson gson = new Gson();
-        byte[] json = gson.toJson(properties).getBytes();
+    /**
+     * Read the config file.
+     *
+     * @return the content or null if the file doesn't exist or can't be read
+     */
+    private static byte[] readContent(Path file) {
+        if (!Files.exists(file)) {
+            return null;
+        }
         try {
-            Files.write(file, json);
+            return Files.readAllBytes(file);
         } catch (IOException e) {
             //TODO print error to user
-            logger.error("Could not write properties to file", e);
-            return false;
+            logger.error("Config file located, but failed to read from it", e);
+            return null;
+        }
+    }
+
+    /**
+     * Write the new content unless the file already has it. An unchanged file keeps its
+     * modification time, so the other processes don't need to parse it again.
+     * This must be called inside {@link AtomicFiles#locked}.
+     */
+    private static void replaceIfChanged(Path file, byte[] content, byte[] newContent)
+            throws IOException {
+        if (!Arrays.equals(content, newContent)) {
+            AtomicFiles.replace(file, newContent);
+        }
+    }
+
+    private static byte[] toJson(Object value) {
+        return gson.toJson(value).getBytes(UTF8);
+    }
+
+    /**
+     * Parsed config file and the state of the file when it was read or written.
+     *
+     * <p>The modification time and the size of the file tell that the file has changed
+     * without reading it. A file rewritten within the resolution of the modification
+     * time with the same size goes unnoticed until the next save, but the saves read
+     * the file inside the lock and merge into its current content anyway.
+     */
+    private static class CachedFile<T> {
+        private final T value;
+        private final long modified;
+        private final long size;
+        private boolean dirty;
+
+        CachedFile(T value, Path file) {
+            this.value = value;
+            this.modified = lastModified(file);
+            this.size = sizeOf(file);
+        }
+
+        /**
+         * Check whether the file is the same as it was when it was cached.
+         */
+        boolean isCurrent(Path file) {
+            return modified == lastModified(file) && size == sizeOf(file);
+        }
+
+        private static long lastModified(Path file) {
+            try {
+                return Files.getLastModifiedTime(file).toMillis();
+            } catch (IOException e) {
+                return -1;
+            }
+        }
+
+        private static long sizeOf(Path file) {
+            try {
+                return Files.size(file);
+            } catch (IOException e) {
+                return -1;
+            }
         }
-        return true;
     }
 }
@@ -0,0 +1,274 @@
+package fi.helsinki.cs.tmc.cli.backend;
+
+import fi.helsinki.cs.tmc.core.domain.Exercise;
+
+import com.google.gson.Gson;
+import org.apache.commons.io.FileUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Local store of the exercise templates, keyed by the checksum of the exercise.
+ *
+ * <p>Every freshly extracted exercise is copied into the store, so the same version of
+ * the exercise can be extracted again without downloading it, for example when the
+ * course is downloaded into another directory. The least recently used templates are
+ * removed when the store grows over its size limit. The store is disabled if it's
+ * created without a directory.
+ */
+public class TemplateStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(TemplateStore.class);
+
+    // TEMPLATE_DIR is the sub-directory of the CONFIG_DIR that contains the templates.
+    public static final String TEMPLATE_DIR = "templates";
+
+    public static final long DEFAULT_MAX_SIZE = 512L * 1024 * 1024;
+
+    private static final String FILES_DIR = "files";
+    private static final String INFO_FILE = "template.json";
+    private static final String TEMP_PREFIX = ".tmp-";
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private final Path storeDirectory;
+    private final long maxSize;
+    private final Gson gson;
+
+    public TemplateStore(Path storeDirectory) {
+        this(storeDirectory, DEFAULT_MAX_SIZE);
+    }
+
+    public TemplateStore(Path storeDirectory, long maxSize) {
+        this.storeDirectory = storeDirectory;
+        this.maxSize = maxSize;
+        this.gson = new Gson();
+    }
+
+    public boolean isEnabled() {
+        return storeDirectory != null;
+    }
+
+    public long getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * Check whether the template of this version of the exercise is stored.
+     */
+    public boolean contains(Exercise exercise) {
+        Path entry = getEntryDirectory(exercise);
+        return entry != null && Files.isDirectory(entry.resolve(FILES_DIR));
+    }
+
+    /**
+     * Extract the stored template of the exercise into a directory that doesn't exist yet.
+     *
+     * @return true if the template was extracted
+     */
+    public boolean extract(Exercise exercise, Path target) {
+        if (!contains(exercise) || Files.exists(target)) {
+            return false;
+        }
+        Path entry = getEntryDirectory(exercise);
+        Path temp = target.resolveSibling(TEMP_PREFIX + target.getFileName());
+        try {
+            Files.createDirectories(target.getParent());
+            // the files are copied instead of linked, because the students edit them
+            FileUtils.copyDirectory(entry.resolve(FILES_DIR).toFile(), temp.toFile());
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+            // the modification time is used for finding the least recently used templates
+            Files.setLastModifiedTime(entry, FileTime.fromMillis(System.currentTimeMillis()));
+            return true;
+        } catch (IOException e) {
+            logger.warn("Failed to extract the template of " + exercise.getName(), e);
+            FileUtils.deleteQuietly(temp.toFile());
+            return false;
+        }
+    }
+
+    /**
+     * Store the template of a freshly extracted exercise.
+     *
+     * @param source the exercise directory that doesn't contain any changes of the student
+     */
+    public void store(Exercise exercise, Path source) {
+        Path entry = getEntryDirectory(exercise);
+        if (entry == null || contains(exercise) || !Files.isDirectory(source)) {
+            return;
+        }
+        Path temp = null;
+        try {
+            Files.createDirectories(storeDirectory);
+            temp = Files.createTempDirectory(storeDirectory, TEMP_PREFIX);
+            FileUtils.copyDirectory(source.toFile(), temp.resolve(FILES_DIR).toFile());
+            Entry info = new Entry(exercise.getName(), exercise.getChecksum(),
+                    FileUtils.sizeOfDirectory(temp.toFile()), 0);
+            try (Writer writer = Files.newBufferedWriter(temp.resolve(INFO_FILE), UTF8)) {
+                gson.toJson(info, writer);
+            }
+            Files.move(temp, entry, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            // the template was stored by another worker or the disk is full
+            logger.warn("Failed to store the template of " + exercise.getName(), e);
+            if (temp != null) {
+                FileUtils.deleteQuietly(temp.toFile());
+            }
+            return;
+        }
+        prune(maxSize);
+    }
+
+    /**
+     * Get the stored templates, the most recently used first.
+     */
+    public List<Entry> list() {
+        List<Entry> entries = new ArrayList<>();
+        if (!isEnabled() || !Files.isDirectory(storeDirectory)) {
+            return entries;
+        }
+        try (DirectoryStream<Path> dirs = Files.newDirectoryStream(storeDirectory)) {
+            for (Path dir : dirs) {
+                if (dir.getFileName().toString().startsWith(TEMP_PREFIX)) {
+                    continue;
+                }
+                Entry entry = readEntry(dir);
+                if (entry != null) {
+                    entries.add(entry);
+                }
+            }
+        } catch (IOException e) {
+            logger.warn("Failed to list the templates", e);
+        }
+        entries.sort(Comparator.comparingLong(Entry::getLastUsed).reversed());
+        return entries;
+    }
+
+    /**
+     * Get the total size of the stored templates in bytes.
+     */
+    public long getSize() {
+        long size = 0;
+        for (Entry entry : list()) {
+            size += entry.getSize();
+        }
+        return size;
+    }
+
+    /**
+     * Remove the least recently used templates until the store fits into the size.
+     *
+     * @return the number of the removed templates
+     */
+    public synchronized int prune(long size) {
+        List<Entry> entries = list();
+        long totalSize = 0;
+        for (Entry entry : entries) {
+            totalSize += entry.getSize();
+        }
+        int removed = 0;
+        for (int i = entries.size() - 1; i >= 0 && totalSize > size; i--) {
+            Entry entry = entries.get(i);
+            try {
+                FileUtils.deleteDirectory(storeDirectory.resolve(entry.getChecksum()).toFile());
+                totalSize -= entry.getSize();
+                removed++;
+            } catch (IOException e) {
+                logger.warn("Failed to remove the template of " + entry.getName(), e);
+            }
+        }
+        return removed;
+    }
+
+    /**
+     * Remove every stored template.
+     */
+    public void clear() {
+        if (!isEnabled()) {
+            return;
+        }
+        try {
+            FileUtils.deleteDirectory(storeDirectory.toFile());
+        } catch (IOException e) {
+            logger.warn("Failed to remove the template directory", e);
+        }
+    }
+
+    private Entry readEntry(Path dir) {
+        Path file = dir.resolve(INFO_FILE);
+        if (!Files.exists(file)) {
+            return null;
+        }
+        try (Reader reader = Files.newBufferedReader(file, UTF8)) {
+            Entry entry = gson.fromJson(reader, Entry.class);
+            if (entry == null || entry.getChecksum() == null) {
+                return null;
+            }
+            return new Entry(entry.getName(), entry.getChecksum(), entry.getSize(),
+                    Files.getLastModifiedTime(dir).toMillis());
+        } catch (Exception e) {
+            logger.warn("Invalid template in " + dir, e);
+            return null;
+        }
+    }
+
+    private Path getEntryDirectory(Exercise exercise) {
+        String checksum = exercise.getChecksum();
+        // the checksum must be usable as a file name
+        if (!isEnabled() || checksum == null || !checksum.matches("[a-zA-Z0-9]+")) {
+            return null;
+        }
+        return storeDirectory.resolve(checksum);
+    }
+
+    /**
+     * A stored template.
+     */
+    public static class Entry {
+        private final String name;
+        private final String checksum;
+        private final long size;
+        private final transient long lastUsed;
+
+        Entry(String name, String checksum, long size, long lastUsed) {
+            this.name = name;
+            this.checksum = checksum;
+            this.size = size;
+            this.lastUsed = lastUsed;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public String getChecksum() {
+            return checksum;
+        }
+
+        /**
+         * Get the size of the template in bytes.
+         */
+        public long getSize() {
+            return size;
+        }
+
+        /**
+         * Get the time when the template was stored or extracted the last time.
+         */
+        public long getLastUsed() {
+            return lastUsed;
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package fi.helsinki.cs.tmc.cli.backend;
 
 import fi.helsinki.cs.tmc.cli.core.CliContext;
+import fi.helsinki.cs.tmc.cli.core.Metrics;
 import fi.helsinki.cs.tmc.cli.io.Io;
 
 import fi.helsinki.cs.tmc.core.TmcCore;
@@ -27,10 +28,14 @@ import org.slf4j.LoggerFactory;
 import java.net.InetAddress;
 import java.net.UnknownHostException;
 import java.net.URI;
+import java.net.URISyntaxException;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.Callable;
+import java.util.function.Function;
 
 public class TmcUtil {
 
@@ -39,9 +44,11 @@ public class TmcUtil {
     /**
      * Check if we have internet connection.
      * This is done with making dns lookup
-     * for the www.mooc.fi domain. This isn't
+     * for the domain of the tmc server. This isn't
      * 100% exact way to check internet access,
-     * but it's good enough.
+     * but it's good enough. The lookup is cached by
+     * the JVM, so the requests to the server after
+     * this don't need to wait for the dns.
      * TODO the method could be changed into requireConnection(),
      *      which also would print error message.
      *
@@ -50,7 +57,7 @@ public class TmcUtil {
      */
     public static boolean hasConnection(CliContext ctx) {
         try {
-            InetAddress.getByName("www.mooc.fi");
+            InetAddress.getByName(getServerHost(ctx));
         } catch (Exception e) {
             TmcUtil.logger.warn("No internet", e.getCause());
             return false;
@@ -58,13 +65,27 @@ public class TmcUtil {
         return true;
     }
 
+    private static String getServerHost(CliContext ctx) {
+        Settings settings = ctx.getSettings();
+        String address = settings != null ? settings.getServerAddress() : null;
+        if (address != null) {
+            try {
+                String host = new URI(address).getHost();
+                if (host != null) {
+                    return host;
+                }
+            } catch (URISyntaxException e) {
+                logger.warn("Invalid server address " + address, e);
+            }
+        }
+        return "www.mooc.fi";
+    }
+
     public static boolean tryToLogin(CliContext ctx, Account account, String password) {
         TmcCore core = ctx.getTmcCore();
         ctx.useAccount(account);
-        Callable<Void> callable = core.authenticate(ProgressObserver.NULL_OBSERVER, password);
-
         try {
-            callable.call();
+            call(ctx, "authenticate", observer -> core.authenticate(observer, password));
             return true;
         } catch (Exception e) {
             if (isAuthenticationError(e)) {
@@ -77,9 +98,19 @@ public class TmcUtil {
     }
 
     public static List<Course> listCourses(CliContext ctx) {
-        Callable<List<Course>> callable = ctx.getTmcCore().listCourses(ProgressObserver.NULL_OBSERVER);
+        MetadataCache cache = ctx.getMetadataCache();
+        List<Course> cached = cache.get(
+                ctx.getSettings(), MetadataCache.COURSES, MetadataCache.COURSE_LIST_TYPE);
+        if (cached != null) {
+            return cached;
+        }
+
         try {
-            return callable.call();
+            List<Course> courses = call(ctx, "list courses",
+                    observer -> ctx.getTmcCore().listCourses(observer));
+            cache.put(ctx.getSettings(), MetadataCache.COURSES, courses);
+            rememberCourses(ctx, courses);
+            return courses;
         } catch (Exception e) {
             TmcUtil.handleTmcExceptions(ctx, e);
             TmcUtil.logger.warn("Failed to get courses to list the exercises", e);
@@ -88,11 +119,20 @@ public class TmcUtil {
     }
 
     public static List<Organization> getOrganizationsFromServer(CliContext ctx) {
-        Callable<List<Organization>> callable;
-        callable = ctx.getTmcCore().getOrganizations(ProgressObserver.NULL_OBSERVER);
+        MetadataCache cache = ctx.getMetadataCache();
+        List<Organization> cached = cache.get(
+                ctx.getSettings(),
+                MetadataCache.ORGANIZATIONS,
+                MetadataCache.ORGANIZATION_LIST_TYPE);
+        if (cached != null) {
+            return cached;
+        }
 
         try {
-            return callable.call();
+            List<Organization> organizations = call(ctx, "list organizations",
+                    observer -> ctx.getTmcCore().getOrganizations(observer));
+            cache.put(ctx.getSettings(), MetadataCache.ORGANIZATIONS, organizations);
+            return organizations;
         } catch (Exception e) {
             TmcUtil.handleTmcExceptions(ctx, e);
             TmcUtil.logger.error("Failed to get organizations from server", e);
@@ -101,9 +141,15 @@ public class TmcUtil {
     }
 
     private static Course getDetails(CliContext ctx, Course course) {
+        MetadataCache cache = ctx.getMetadataCache();
+        String cacheEntry = MetadataCache.courseDetails(course.getName());
+        Course cached = cache.get(ctx.getSettings(), cacheEntry, Course.class);
+        if (cached != null) {
+            return cached;
+        }
+
         try {
-            TmcCore core = ctx.getTmcCore();
-            return core.getCourseDetails(ProgressObserver.NULL_OBSERVER, course).call();
+            return fetchDetails(ctx, course);
         } catch (Exception e) {
             TmcUtil.handleTmcExceptions(ctx, e);
             logger.warn("Failed to get course details to list the exercises", e);
@@ -111,7 +157,51 @@ public class TmcUtil {
         }
     }
 
+    private static Course fetchDetails(CliContext ctx, Course course) throws Exception {
+        Course details = call(ctx, "course details",
+                observer -> ctx.getTmcCore().getCourseDetails(observer, course));
+        ctx.getMetadataCache().put(
+                ctx.getSettings(), MetadataCache.courseDetails(course.getName()), details);
+        return details;
+    }
+
+    /**
+     * Fetch the latest details of the course without listing the courses first.
+     * The details are not taken from the cache, because they are used for updating
+     * the course config file.
+     *
+     * @param course course from the course config file
+     * @return the course details or null if they couldn't be fetched
+     */
+    public static Course refreshCourse(CliContext ctx, Course course) {
+        try {
+            return fetchDetails(ctx, course);
+        } catch (Exception e) {
+            logger.warn("Failed to refresh the course " + course.getName()
+                    + ", searching it from the course list", e);
+        }
+        ctx.getMetadataCache().invalidateCourse(ctx.getSettings(), course.getName());
+        return findCourse(ctx, course.getName());
+    }
+
     public static Course findCourse(CliContext ctx, String name) {
+        MetadataCache cache = ctx.getMetadataCache();
+        Course cached = cache.get(
+                ctx.getSettings(), MetadataCache.courseDetails(name), Course.class);
+        if (cached != null) {
+            return cached;
+        }
+
+        Course known = findKnownCourse(ctx, name);
+        if (known != null) {
+            try {
+                return fetchDetails(ctx, known);
+            } catch (Exception e) {
+                // the course may have been removed or renamed after it was remembered
+                logger.warn("Failed to get the details of the known course " + name, e);
+            }
+        }
+
         List<Course> courses;
         courses = TmcUtil.listCourses(ctx);
 
@@ -123,11 +213,32 @@ public class TmcUtil {
         return null;
     }
 
+    /**
+     * Get the course that was seen in an earlier course list of the account.
+     */
+    private static Course findKnownCourse(CliContext ctx, String name) {
+        Map<String, Course> index = ctx.getMetadataCache().get(ctx.getSettings(),
+                MetadataCache.COURSE_INDEX, MetadataCache.COURSE_INDEX_TYPE,
+                MetadataCache.NEVER_EXPIRES);
+        return index != null ? index.get(name) : null;
+    }
+
+    private static void rememberCourses(CliContext ctx, List<Course> courses) {
+        MetadataCache cache = ctx.getMetadataCache();
+        if (!cache.isEnabled() || courses == null) {
+            return;
+        }
+        Map<String, Course> index = new HashMap<>();
+        for (Course course : courses) {
+            index.put(course.getName(), course);
+        }
+        cache.put(ctx.getSettings(), MetadataCache.COURSE_INDEX, index);
+    }
+
     public static List<Exercise> downloadExercises(
             CliContext ctx, List<Exercise> exercises, ProgressObserver progobs) {
         try {
-            TmcCore core = ctx.getTmcCore();
-            return core.downloadOrUpdateExercises(progobs, exercises).call();
+            return tryDownloadExercises(ctx, exercises, progobs);
         } catch (Exception e) {
             TmcUtil.handleTmcExceptions(ctx, e);
             logger.warn("Failed to download exercises", e);
@@ -135,6 +246,19 @@ public class TmcUtil {
         }
     }
 
+    /**
+     * Download the exercises and leave showing the error to the caller. The parallel
+     * downloads use this, so that the same error isn't shown by every worker.
+     *
+     * @throws Exception the error of tmc-core
+     */
+    public static List<Exercise> tryDownloadExercises(
+            CliContext ctx, List<Exercise> exercises, ProgressObserver progobs) throws Exception {
+        TmcCore core = ctx.getTmcCore();
+        return call(ctx, "download exercises", progobs, exercises.size(),
+                observer -> core.downloadOrUpdateExercises(observer, exercises));
+    }
+
     public static List<Exercise> downloadAllExercises(
             CliContext ctx, Course course, ProgressObserver progobs) {
         if (!course.isExercisesLoaded()) {
@@ -147,7 +271,7 @@ public class TmcUtil {
     public static SubmissionResult submitExercise(CliContext ctx, Exercise exercise) {
         try {
             TmcCore core = ctx.getTmcCore();
-            return core.submit(ProgressObserver.NULL_OBSERVER, exercise).call();
+            return call(ctx, "submit", observer -> core.submit(observer, exercise));
         } catch (Exception e) {
             TmcUtil.handleTmcExceptions(ctx, e);
             logger.warn("Failed to submit the exercise", e);
@@ -158,7 +282,8 @@ public class TmcUtil {
     public static UpdateResult getUpdatableExercises(CliContext ctx, Course course) {
         try {
             TmcCore core = ctx.getTmcCore();
-            return core.getExerciseUpdates(ProgressObserver.NULL_OBSERVER, course).call();
+            return call(ctx, "exercise updates",
+                    observer -> core.getExerciseUpdates(observer, course));
         } catch (Exception e) {
             TmcUtil.handleTmcExceptions(ctx, e);
             logger.warn("Failed to get exercise updates.", e);
@@ -169,7 +294,8 @@ public class TmcUtil {
     public static URI sendPaste(CliContext ctx, Exercise exercise, String message) {
         try {
             TmcCore core = ctx.getTmcCore();
-            return core.pasteWithComment(ProgressObserver.NULL_OBSERVER, exercise, message).call();
+            return call(ctx, "paste",
+                    observer -> core.pasteWithComment(observer, exercise, message));
 
         } catch (Exception e) {
             TmcUtil.handleTmcExceptions(ctx, e);
@@ -180,9 +306,7 @@ public class TmcUtil {
 
     public static RunResult runLocalTests(CliContext ctx, Exercise exercise) {
         try {
-            TmcCore core = ctx.getTmcCore();
-            return core.runTests(ProgressObserver.NULL_OBSERVER, exercise).call();
-
+            return tryRunLocalTests(ctx, exercise);
         } catch (Exception e) {
             TmcUtil.handleTmcExceptions(ctx, e);
             logger.error("Failed to run local tests", e);
@@ -190,21 +314,52 @@ public class TmcUtil {
         }
     }
 
+    /**
+     * Run the tests and leave showing the error to the caller. The parallel test runs
+     * use this, so that the errors are printed in the place of their exercise.
+     *
+     * @throws Exception the error of tmc-core
+     */
+    public static RunResult tryRunLocalTests(CliContext ctx, Exercise exercise)
+            throws Exception {
+        TmcCore core = ctx.getTmcCore();
+        return call(ctx, "run tests", observer -> core.runTests(observer, exercise));
+    }
+
     public static ValidationResult runCheckStyle(CliContext ctx, Exercise exercise) {
         try {
-            TmcCore core = ctx.getTmcCore();
-            return core.runCheckStyle(ProgressObserver.NULL_OBSERVER, exercise).call();
+            return tryRunCheckStyle(ctx, exercise);
         } catch (Exception e) {
             logger.error("Failed to run checkstyle", e);
             return null;
         }
     }
 
+    /**
+     * Run the checkstyle and let the caller handle the error.
+     *
+     * @throws Exception the error of tmc-core
+     */
+    public static ValidationResult tryRunCheckStyle(CliContext ctx, Exercise exercise)
+            throws Exception {
+        TmcCore core = ctx.getTmcCore();
+        return call(ctx, "checkstyle", observer -> core.runCheckStyle(observer, exercise));
+    }
+
     public static List<Exercise> getCourseExercises(CliContext ctx) {
         Course course = ctx.getCourseInfo().getCourse();
+        MetadataCache cache = ctx.getMetadataCache();
+        String cacheEntry = MetadataCache.courseDetails(course.getName());
+        Course cached = cache.get(ctx.getSettings(), cacheEntry, Course.class);
+        if (cached != null) {
+            return cached.getExercises();
+        }
+
         try {
             TmcCore tmcCore = ctx.getTmcCore();
-            Course updatedCourse = tmcCore.getCourseDetails(ProgressObserver.NULL_OBSERVER, course).call();
+            Course updatedCourse = call(ctx, "course details",
+                    observer -> tmcCore.getCourseDetails(observer, course));
+            cache.put(ctx.getSettings(), cacheEntry, updatedCourse);
             return updatedCourse.getExercises();
         } catch (Exception e) {
             logger.error("Failed to fetch exercises for course " + course.getName());
@@ -216,7 +371,8 @@ public class TmcUtil {
             CliContext ctx, List<FeedbackAnswer> answers, URI feedbackUri) {
         try {
             TmcCore core = ctx.getTmcCore();
-            return core.sendFeedback(ProgressObserver.NULL_OBSERVER, answers, feedbackUri).call();
+            return call(ctx, "send feedback",
+                    observer -> core.sendFeedback(observer, answers, feedbackUri));
 
         } catch (Exception e) {
             TmcUtil.handleTmcExceptions(ctx, e);
@@ -225,7 +381,44 @@ public class TmcUtil {
         }
     }
 
-    private static void handleTmcExceptions(CliContext ctx, Exception exception) {
+    private static <T> T call(CliContext ctx, String operation,
+            Function<ProgressObserver, Callable<T>> factory) throws Exception {
+        return call(ctx, operation, ProgressObserver.NULL_OBSERVER, 0, factory);
+    }
+
+    /**
+     * Run the tmc-core command with the settings of the context and record its metrics.
+     *
+     * <p>The tmc-core commands read their settings from a global holder, so every call
+     * puts the settings of its own context into the holder before it starts. Nothing
+     * is restored afterwards, so a request that never returns can't hold up or change
+     * the settings of the calls after it.
+     *
+     * @param ctx context whose settings are used
+     * @param operation name of the operation in the metrics
+     * @param observer observer that shows the progress to the user
+     * @param items number of the items handled by the operation
+     * @param factory creates the command with the observer
+     */
+    private static <T> T call(CliContext ctx, String operation, ProgressObserver observer,
+            long items, Function<ProgressObserver, Callable<T>> factory) throws Exception {
+        TmcSettingsHolder.set(ctx.getSettings());
+        Metrics.Timer timer = Metrics.start(operation);
+        timer.addItems(items);
+        boolean success = false;
+        try {
+            T result = factory.apply(timer.observe(observer)).call();
+            success = true;
+            return result;
+        } finally {
+            timer.stop(success);
+        }
+    }
+
+    /**
+     * Show the error of tmc-core to the user.
+     */
+    public static void handleTmcExceptions(CliContext ctx, Exception exception) {
         Io io = ctx.getIo();
         Throwable cause = exception.getCause();
 
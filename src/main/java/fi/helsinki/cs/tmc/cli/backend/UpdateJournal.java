@@ -0,0 +1,103 @@
+package fi.helsinki.cs.tmc.cli.backend;
+
+import fi.helsinki.cs.tmc.core.domain.Exercise;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Journal of the exercises downloaded by an unfinished update.
+ *
+ * <p>The course config file is only updated after every exercise has been
+ * downloaded, so an interrupted update would download the same exercises again.
+ * The journal remembers the checksums of the exercises that were already
+ * downloaded, and they are skipped if the server still has the same version.
+ * The journal is deleted when the course config file has been updated.
+ */
+public class UpdateJournal {
+
+    private static final Logger logger = LoggerFactory.getLogger(UpdateJournal.class);
+
+    // JOURNAL_FILE is stored in the same directory as the COURSE_CONFIG file.
+    public static final String JOURNAL_FILE = ".tmc.update";
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private final Path file;
+    private final Set<String> entries;
+
+    private UpdateJournal(Path file, Set<String> entries) {
+        this.file = file;
+        this.entries = entries;
+    }
+
+    /**
+     * Read the journal of the course.
+     *
+     * @param courseDirectory the root directory of the course
+     * @return the journal, which is empty if there is no unfinished update
+     */
+    public static UpdateJournal open(Path courseDirectory) {
+        Path file = courseDirectory.resolve(JOURNAL_FILE);
+        Set<String> entries = new HashSet<>();
+        if (Files.exists(file)) {
+            try {
+                entries.addAll(Files.readAllLines(file, UTF8));
+            } catch (IOException e) {
+                // the exercises are just downloaded again
+                logger.warn("Failed to read the update journal", e);
+            }
+        }
+        return new UpdateJournal(file, entries);
+    }
+
+    /**
+     * Check whether the same version of the exercise was already downloaded.
+     */
+    public synchronized boolean isDownloaded(Exercise exercise) {
+        // the versions can't be compared without a checksum
+        return exercise.getChecksum() != null && entries.contains(toEntry(exercise));
+    }
+
+    /**
+     * Remember the downloaded exercise.
+     * The entry is written immediately, so that it survives if the update is killed.
+     */
+    public synchronized void markDownloaded(Exercise exercise) {
+        String entry = toEntry(exercise);
+        if (!entries.add(entry)) {
+            return;
+        }
+        try {
+            Files.write(file, (entry + "\n").getBytes(UTF8),
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            logger.warn("Failed to write the update journal", e);
+        }
+    }
+
+    /**
+     * Remove the journal after the update is finished.
+     */
+    public synchronized void delete() {
+        entries.clear();
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            logger.warn("Failed to delete the update journal", e);
+        }
+    }
+
+    private static String toEntry(Exercise exercise) {
+        String checksum = exercise.getChecksum();
+        return (checksum != null ? checksum : "-") + "\t" + exercise.getName();
+    }
+}
@@ -0,0 +1,104 @@
+package fi.helsinki.cs.tmc.cli.command;
+
+import fi.helsinki.cs.tmc.cli.backend.TemplateStore;
+import fi.helsinki.cs.tmc.cli.core.AbstractCommand;
+import fi.helsinki.cs.tmc.cli.core.CliContext;
+import fi.helsinki.cs.tmc.cli.core.Command;
+import fi.helsinki.cs.tmc.cli.io.Io;
+
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.Options;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.List;
+
+@Command(name = "cache", desc = "Show or prune the downloaded exercise templates")
+public class CacheCommand extends AbstractCommand {
+
+    private static final long MEGABYTE = 1024 * 1024;
+
+    private Io io;
+
+    @Override
+    public String[] getUsages() {
+        return new String[] {"[-p [-s MB]]", "-c"};
+    }
+
+    @Override
+    public void getOptions(Options options) {
+        options.addOption("p", "prune", false, "Remove the least recently used templates");
+        options.addOption("s", "max-size", true, "Prune the templates to at most MB megabytes");
+        options.addOption("c", "clear", false, "Remove all the templates and cached courses");
+    }
+
+    @Override
+    public void run(CliContext context, CommandLine args) {
+        io = context.getIo();
+        TemplateStore store = context.getTemplateStore();
+
+        if (args.getArgs().length > 0) {
+            io.errorln("Cache doesn't take any arguments.");
+            printUsage(context);
+            return;
+        }
+        if (args.hasOption("s") && !args.hasOption("p")) {
+            io.errorln("The --max-size option can only be used with --prune.");
+            printUsage(context);
+            return;
+        }
+        if (!store.isEnabled()) {
+            io.errorln("The template store is not available.");
+            return;
+        }
+
+        if (args.hasOption("c")) {
+            store.clear();
+            context.getMetadataCache().clear();
+            io.println("Removed all the templates and cached courses.");
+            return;
+        }
+        if (args.hasOption("p")) {
+            long maxSize = store.getMaxSize();
+            if (args.hasOption("s")) {
+                try {
+                    maxSize = Long.parseLong(args.getOptionValue("s")) * MEGABYTE;
+                } catch (NumberFormatException e) {
+                    maxSize = -1;
+                }
+                if (maxSize < 0) {
+                    io.errorln("The size must be a non-negative number of megabytes.");
+                    return;
+                }
+            }
+            int removed = store.prune(maxSize);
+            io.println("Removed " + removed + " templates.");
+        }
+        printTemplates(store);
+    }
+
+    private void printTemplates(TemplateStore store) {
+        List<TemplateStore.Entry> entries = store.list();
+        if (entries.isEmpty()) {
+            io.println("The template store is empty.");
+            return;
+        }
+
+        SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd HH:mm");
+        long totalSize = 0;
+        for (TemplateStore.Entry entry : entries) {
+            io.println(String.format("%-40s %10s  %s", entry.getName(),
+                    formatSize(entry.getSize()), format.format(new Date(entry.getLastUsed()))));
+            totalSize += entry.getSize();
+        }
+        io.println(entries.size() + " templates, " + formatSize(totalSize) + " of "
+                + formatSize(store.getMaxSize()) + " in use.");
+    }
+
+    private static String formatSize(long bytes) {
+        if (bytes < MEGABYTE) {
+            return String.format("%.1f kB", bytes / 1024.0);
+        }
+        return String.format("%.1f MB", bytes / (double) MEGABYTE);
+    }
+}
@@ -31,6 +31,7 @@ public class ConfigCommand extends AbstractCommand {
     private static final String progressBarLeftKey = "progressbar-left";
     private static final String progressBarRightKey = "progressbar-right";
     private static final String sendDiagnosticsKey = "send-diagnostics";
+    private static final String metricsLogKey = "metrics-log";
 
     private HashMap<String, String> properties;
     private boolean quiet;
@@ -125,6 +126,19 @@ public class ConfigCommand extends AbstractCommand {
                 addBarColorToProperties(progressBarRightKey, value);
             }
         });
+        ALLOWED_KEYS.put(metricsLogKey, new PropertyFunctions() {
+            @Override
+            public String getter() {
+                return context.getProperties().get(metricsLogKey);
+            }
+
+            @Override
+            public void setter(String value) throws BadValueTypeException {
+                isBooleanValue(value);
+                properties.put(metricsLogKey, value.trim().toLowerCase());
+                SettingsIo.saveProperties(properties);
+            }
+        });
     }
 
     private boolean getBooleanSendValue(String value) throws BadValueTypeException {
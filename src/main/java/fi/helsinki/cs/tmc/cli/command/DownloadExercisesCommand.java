@@ -1,7 +1,6 @@
 package fi.helsinki.cs.tmc.cli.command;
 
 import fi.helsinki.cs.tmc.cli.backend.CourseInfoIo;
-import fi.helsinki.cs.tmc.cli.backend.TmcUtil;
 import fi.helsinki.cs.tmc.cli.core.AbstractCommand;
 import fi.helsinki.cs.tmc.cli.core.CliContext;
 import fi.helsinki.cs.tmc.cli.core.Command;
@@ -11,6 +10,7 @@ import fi.helsinki.cs.tmc.cli.io.ColorUtil;
 import fi.helsinki.cs.tmc.cli.io.Io;
 import fi.helsinki.cs.tmc.cli.io.WorkDir;
 import fi.helsinki.cs.tmc.cli.shared.CourseFinder;
+import fi.helsinki.cs.tmc.cli.shared.ExerciseDownloader;
 
 import fi.helsinki.cs.tmc.core.domain.Course;
 import fi.helsinki.cs.tmc.core.domain.Exercise;
@@ -26,10 +26,11 @@ public class DownloadExercisesCommand extends AbstractCommand {
 
     private CliContext ctx;
     private boolean showAll;
+    private int jobs;
 
     @Override
     public String[] getUsages() {
-        return new String[] {"[-a] COURSE"};
+        return new String[] {"[-a] [-j N] COURSE"};
     }
 
     @Override
@@ -39,6 +40,7 @@ public class DownloadExercisesCommand extends AbstractCommand {
                 "all",
                 false,
                 "Download all available exercises, including previously completed");
+        options.addOption("j", "jobs", true, "Download up to N exercises at the same time");
 
         // Download old submissions. Not implemented in tmc-core yet
         //options.addOption("c", "completed", false, "Download previously completed exercises");
@@ -62,6 +64,18 @@ public class DownloadExercisesCommand extends AbstractCommand {
 
         ctx = context;
         showAll = args.hasOption("a");
+        jobs = ExerciseDownloader.DEFAULT_JOBS;
+        if (args.hasOption("j")) {
+            try {
+                jobs = Integer.parseInt(args.getOptionValue("j"));
+            } catch (NumberFormatException e) {
+                jobs = 0;
+            }
+            if (jobs < 1) {
+                io.errorln("The number of jobs must be a positive integer.");
+                return;
+            }
+        }
 
         WorkDir workDir = ctx.getWorkDir();
         if (workDir.getConfigFile() != null) {
@@ -92,14 +106,16 @@ public class DownloadExercisesCommand extends AbstractCommand {
             return;
         }
         CourseInfoIo.createNewCourse(course, finder.getAccount(), workDir.getWorkingDirectory());
-        List<Exercise> exercises = TmcUtil.downloadExercises(ctx, filtered, progobs);
+        ExerciseDownloader downloader = new ExerciseDownloader(ctx, jobs);
+        List<Exercise> exercises = downloader.download(filtered, progobs);
         if (exercises == null) {
             io.errorln("Failed to download exercises");
             CourseInfoIo.deleteConfigDirectory(course, workDir.getWorkingDirectory());
             return;
         }
 
-        printStatistics(course, filtered.size(), exercises.size());
+        printStatistics(course, filtered.size(), exercises.size(),
+                downloader.getFailedExercises());
     }
 
     private List<Exercise> getFilteredExercises(Course course) {
@@ -118,7 +134,8 @@ public class DownloadExercisesCommand extends AbstractCommand {
         return filtered;
     }
 
-    private void printStatistics(Course course, int requestCount, int downloadCount) {
+    private void printStatistics(Course course, int requestCount, int downloadCount,
+            List<Exercise> failedExercises) {
         Io io = ctx.getIo();
         String courseName = course.getName();
 
@@ -138,7 +155,9 @@ public class DownloadExercisesCommand extends AbstractCommand {
                 io.println(
                         ColorUtil.colorString(
                                 "  and of which " + failedCount + " failed.", Color.RED));
-                //TODO we could print the names of the not downloaded exercises here
+                for (Exercise exercise : failedExercises) {
+                    io.println(ColorUtil.colorString("    " + exercise.getName(), Color.RED));
+                }
             } else {
                 io.println("  of which " + downloadCount + " exercises were downloaded.");
             }
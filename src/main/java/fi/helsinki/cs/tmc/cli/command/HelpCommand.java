@@ -4,6 +4,7 @@ import fi.helsinki.cs.tmc.cli.core.AbstractCommand;
 import fi.helsinki.cs.tmc.cli.core.CliContext;
 import fi.helsinki.cs.tmc.cli.core.Command;
 import fi.helsinki.cs.tmc.cli.core.CommandFactory;
+import fi.helsinki.cs.tmc.cli.core.CommandInfo;
 import fi.helsinki.cs.tmc.cli.io.Io;
 
 import org.apache.commons.cli.CommandLine;
@@ -83,42 +84,35 @@ public class HelpCommand extends AbstractCommand {
 
     private List<String> getCommandStrings(String category) {
         List<String> strings = new ArrayList<>();
-        List<Class<Command>> commands;
+        List<CommandInfo> commands;
         if (category.equals("all")) {
-            commands = CommandFactory.getCommands();
+            commands = CommandFactory.getCommandInfos();
         } else {
-            commands = CommandFactory.getCategoryCommands(category);
+            commands = CommandFactory.getCategoryCommandInfos(category);
         }
 
         longestNameLength = longestName(commands);
-        for (Class<Command> commandClass : commands) {
-            Command command = CommandFactory.getCommand(commandClass);
+        for (CommandInfo command : commands) {
             strings.add(createCommandString(command));
         }
         longestNameLength = Math.max(longestNameLength, 8);
         return strings;
     }
 
-    @SuppressWarnings("unchecked")
-    private Class<Command> castToCommandClass(Class klass) {
-        return (Class<Command>) klass;
-    }
-
-    private String createCommandString(Command command) {
+    private String createCommandString(CommandInfo command) {
         StringBuilder builder = new StringBuilder();
-        builder.append("  ").append(command.name());
-        for (int i = 0; i < longestNameLength - command.name().length() + 1; i++) {
+        builder.append("  ").append(command.getName());
+        for (int i = 0; i < longestNameLength - command.getName().length() + 1; i++) {
             builder.append(" ");
         }
-        builder.append(command.desc());
+        builder.append(command.getDescription());
         return builder.toString();
     }
 
-    private int longestName(List<Class<Command>> commandList) {
+    private int longestName(List<CommandInfo> commandList) {
         int longest = 0;
-        for (Class<Command> commandClass : commandList) {
-            Command command = CommandFactory.getCommand(commandClass);
-            longest = Math.max(longest, command.name().length());
+        for (CommandInfo command : commandList) {
+            longest = Math.max(longest, command.getName().length());
         }
         return longest;
     }
@@ -9,10 +9,13 @@ import fi.helsinki.cs.tmc.cli.io.ColorUtil;
 import fi.helsinki.cs.tmc.cli.io.Io;
 import fi.helsinki.cs.tmc.cli.io.WorkDir;
 import fi.helsinki.cs.tmc.cli.shared.CourseFinder;
+import fi.helsinki.cs.tmc.cli.shared.JsonOutput;
+import fi.helsinki.cs.tmc.cli.shared.OutputFormat;
 
 import fi.helsinki.cs.tmc.core.domain.Course;
 import fi.helsinki.cs.tmc.core.domain.Exercise;
 
+import com.google.gson.JsonObject;
 import org.apache.commons.cli.CommandLine;
 import org.apache.commons.cli.Options;
 
@@ -31,16 +34,19 @@ public class InfoCommand extends AbstractCommand {
     private boolean useWorkingDirectory;
     private boolean fetchFromInternet;
     private boolean showAll;
+    // json is used instead of the text when the output format is json
+    private JsonOutput json;
 
     @Override
     public String[] getUsages() {
-        return new String[] {"[-a] [-i] COURSE-OR-EXERSICE"};
+        return new String[] {"[-a] [-i] [--format FORMAT] COURSE-OR-EXERSICE"};
     }
 
     @Override
     public void getOptions(Options options) {
         options.addOption("a", "all", false, "Show all information for a specific course");
         options.addOption("i", "internet", false, "Get the information from the server");
+        OutputFormat.addOption(options);
     }
 
     @Override
@@ -53,6 +59,11 @@ public class InfoCommand extends AbstractCommand {
         useWorkingDirectory = (stringArgs.length == 0);
         fetchFromInternet = args.hasOption("i");
         showAll = args.hasOption("a");
+        OutputFormat format = OutputFormat.parse(args, io);
+        if (format == null) {
+            return;
+        }
+        json = format == OutputFormat.JSON ? new JsonOutput(io) : null;
 
         if (fetchFromInternet) {
             if (useWorkingDirectory) {
@@ -135,6 +146,10 @@ public class InfoCommand extends AbstractCommand {
     }
 
     private void printCourse(Course course) {
+        if (json != null) {
+            printCourseRecords(course);
+            return;
+        }
         printCourseShort(course);
         if (showAll) {
             printCourseDetails(course);
@@ -159,6 +174,23 @@ public class InfoCommand extends AbstractCommand {
         }
     }
 
+    /**
+     * Print the course and all of its exercises as JSON records.
+     */
+    private void printCourseRecords(Course course) {
+        JsonObject record = JsonOutput.course(course);
+        record.addProperty("exercises", course.getExercises().size());
+        record.addProperty("completedExercises", getCompletedExerciseCount(course));
+        record.addProperty("lockedExercises", course.getUnlockables().size());
+        json.print(record);
+        for (Exercise exercise : course.getExercises()) {
+            JsonObject exerciseRecord = JsonOutput.exercise(exercise);
+            exerciseRecord.addProperty("course", course.getName());
+            json.print(exerciseRecord);
+        }
+        json.flush();
+    }
+
     private void printCourseShort(Course course) {
         io.println("Course name: " + course.getName());
         io.println("Number of available exercises: " + course.getExercises().size());
@@ -177,6 +209,13 @@ public class InfoCommand extends AbstractCommand {
     }
 
     private void printExercise(Exercise exercise) {
+        if (json != null) {
+            JsonObject record = JsonOutput.exercise(exercise);
+            record.addProperty("course", courseName);
+            json.print(record);
+            json.flush();
+            return;
+        }
         if (showAll) {
             printExerciseFull(exercise);
         } else {
@@ -10,9 +10,12 @@ import fi.helsinki.cs.tmc.cli.core.Command;
 import fi.helsinki.cs.tmc.cli.io.Color;
 import fi.helsinki.cs.tmc.cli.io.ColorUtil;
 import fi.helsinki.cs.tmc.cli.io.Io;
+import fi.helsinki.cs.tmc.cli.shared.JsonOutput;
+import fi.helsinki.cs.tmc.cli.shared.OutputFormat;
 
 import fi.helsinki.cs.tmc.core.domain.Course;
 
+import com.google.gson.JsonObject;
 import org.apache.commons.cli.CommandLine;
 import org.apache.commons.cli.Options;
 
@@ -26,15 +29,23 @@ public class ListCoursesCommand extends AbstractCommand {
 
     private CliContext ctx;
     private Io io;
+    private JsonOutput json;
 
     @Override
-    public void getOptions(Options options) {}
+    public void getOptions(Options options) {
+        OutputFormat.addOption(options);
+    }
 
     @Override
     public void run(CliContext context, CommandLine args) {
         this.ctx = context;
         this.io = ctx.getIo();
 
+        OutputFormat format = OutputFormat.parse(args, io);
+        if (format == null) {
+            return;
+        }
+        this.json = format == OutputFormat.JSON ? new JsonOutput(io) : null;
 
         if (!this.ctx.checkIsLoggedIn(false, true)) {
             return;
@@ -56,6 +67,10 @@ public class ListCoursesCommand extends AbstractCommand {
         }
 
         for (Account settings : accountsList) {
+            if (json != null) {
+                printCourseRecords(settings);
+                continue;
+            }
             if (!isFirst) {
                 io.println();
             }
@@ -82,4 +97,14 @@ public class ListCoursesCommand extends AbstractCommand {
         }
         io.println("\nFound " + courses.size() + " courses from the server.");
     }
+
+    private void printCourseRecords(Account account) {
+        ctx.useAccount(account);
+        for (Course course : TmcUtil.listCourses(ctx)) {
+            JsonObject record = JsonOutput.course(course);
+            record.addProperty("server", account.getServerAddress());
+            json.print(record);
+        }
+        json.flush();
+    }
 }
@@ -10,10 +10,13 @@ import fi.helsinki.cs.tmc.cli.io.ColorUtil;
 import fi.helsinki.cs.tmc.cli.io.EnvironmentUtil;
 import fi.helsinki.cs.tmc.cli.io.ExternalsUtil;
 import fi.helsinki.cs.tmc.cli.io.Io;
+import fi.helsinki.cs.tmc.cli.shared.JsonOutput;
+import fi.helsinki.cs.tmc.cli.shared.OutputFormat;
 
 import fi.helsinki.cs.tmc.core.domain.Course;
 import fi.helsinki.cs.tmc.core.domain.Exercise;
 
+import com.google.gson.JsonObject;
 import org.apache.commons.cli.CommandLine;
 import org.apache.commons.cli.Options;
 
@@ -27,13 +30,14 @@ public class ListExercisesCommand extends AbstractCommand {
 
     @Override
     public String[] getUsages() {
-        return new String[] {"[-n] [-i] COURSE"};
+        return new String[] {"[-n] [-i] [--format FORMAT] COURSE"};
     }
 
     @Override
     public void getOptions(Options options) {
         options.addOption("n", "no-pager", false, "Don't use a pager to list the exercises");
         options.addOption("i", "internet", false, "Get the list of exercises from the server");
+        OutputFormat.addOption(options);
     }
 
     @Override
@@ -41,6 +45,11 @@ public class ListExercisesCommand extends AbstractCommand {
         this.ctx = context;
         this.io = ctx.getIo();
 
+        OutputFormat format = OutputFormat.parse(args, io);
+        if (format == null) {
+            return;
+        }
+
         if (!ctx.checkIsLoggedIn(false, true)) {
             return;
         }
@@ -55,6 +64,10 @@ public class ListExercisesCommand extends AbstractCommand {
             return;
         }
         this.ctx.getAnalyticsFacade().saveAnalytics(courseName, "list_exercises");
+        if (format == OutputFormat.JSON) {
+            printExerciseRecords(courseName, exercises);
+            return;
+        }
         printExercises(courseName, exercises, !args.hasOption("n") && !EnvironmentUtil.isWindows());
     }
 
@@ -133,6 +146,17 @@ public class ListExercisesCommand extends AbstractCommand {
         }
     }
 
+    private void printExerciseRecords(String courseName, List<Exercise> exercises) {
+        JsonOutput json = new JsonOutput(io);
+        for (Exercise exercise : exercises) {
+            JsonObject record = JsonOutput.exercise(exercise);
+            record.addProperty("course", courseName);
+            record.addProperty("status", Status.of(exercise).name());
+            json.print(record);
+        }
+        json.flush();
+    }
+
     private String getExercisesAsString(String courseName, List<Exercise> exercises) {
         StringBuilder sb = new StringBuilder("Course name: " + courseName);
         String prevDeadline = "";
@@ -149,24 +173,40 @@ public class ListExercisesCommand extends AbstractCommand {
     }
 
     private String getExerciseStatus(Exercise exercise) {
-        // Check the exercise status in order of flag importance, for example there's
-        // no need to check if deadline has passed if the exercise has been submitted
-        String status;
-        if (exercise.isCompleted()) {
-            if (exercise.requiresReview() && !exercise.isReviewed()) {
-                status = ColorUtil.colorString("  Requires review: ", Color.YELLOW);
-            } else {
-                status = ColorUtil.colorString("  Completed: ", Color.GREEN);
-            }
-        } else if (exercise.hasDeadlinePassed()) {
-            status = ColorUtil.colorString("  Deadline passed: ", Color.PURPLE);
-        } else if (exercise.isAttempted()) {
-            status = ColorUtil.colorString("  Attempted: ", Color.BLUE);
-        } else {
-            status = ColorUtil.colorString("  Not completed: ", Color.RED);
+        Status status = Status.of(exercise);
+        return ColorUtil.colorString("  " + status.text + ": ", status.color)
+                + exercise.getName() + "\n";
+    }
+
+    private enum Status {
+        REQUIRES_REVIEW("Requires review", Color.YELLOW),
+        COMPLETED("Completed", Color.GREEN),
+        DEADLINE_PASSED("Deadline passed", Color.PURPLE),
+        ATTEMPTED("Attempted", Color.BLUE),
+        NOT_COMPLETED("Not completed", Color.RED);
+
+        private final String text;
+        private final Color color;
+
+        Status(String text, Color color) {
+            this.text = text;
+            this.color = color;
         }
 
-        status += exercise.getName() + "\n";
-        return status;
+        private static Status of(Exercise exercise) {
+            // Check the exercise status in order of flag importance, for example there's
+            // no need to check if deadline has passed if the exercise has been submitted
+            if (exercise.isCompleted()) {
+                if (exercise.requiresReview() && !exercise.isReviewed()) {
+                    return REQUIRES_REVIEW;
+                }
+                return COMPLETED;
+            } else if (exercise.hasDeadlinePassed()) {
+                return DEADLINE_PASSED;
+            } else if (exercise.isAttempted()) {
+                return ATTEMPTED;
+            }
+            return NOT_COMPLETED;
+        }
     }
 }
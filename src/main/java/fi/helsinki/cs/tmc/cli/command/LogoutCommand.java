@@ -29,6 +29,7 @@ public class LogoutCommand extends AbstractCommand {
             return;
         }
         SettingsIo.delete();
+        context.getMetadataCache().clear();
         context.getSettings().setToken(Optional.absent());
         io.println("Logged out.");
     }
@@ -7,10 +7,12 @@ import fi.helsinki.cs.tmc.cli.core.AbstractCommand;
 import fi.helsinki.cs.tmc.cli.core.CliContext;
 import fi.helsinki.cs.tmc.cli.core.Command;
 import fi.helsinki.cs.tmc.cli.io.Color;
-import fi.helsinki.cs.tmc.cli.io.ColorUtil;
 import fi.helsinki.cs.tmc.cli.io.Io;
 import fi.helsinki.cs.tmc.cli.io.WorkDir;
+import fi.helsinki.cs.tmc.cli.shared.JsonResultSink;
+import fi.helsinki.cs.tmc.cli.shared.OutputFormat;
 import fi.helsinki.cs.tmc.cli.shared.ResultPrinter;
+import fi.helsinki.cs.tmc.cli.shared.ResultSink;
 
 import fi.helsinki.cs.tmc.core.domain.Exercise;
 import fi.helsinki.cs.tmc.langs.abstraction.ValidationResult;
@@ -18,25 +20,39 @@ import fi.helsinki.cs.tmc.langs.domain.RunResult;
 
 import org.apache.commons.cli.CommandLine;
 import org.apache.commons.cli.Options;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 @Command(name = "test", desc = "Run local exercise tests")
 public class RunTestsCommand extends AbstractCommand {
+    private static final Logger logger = LoggerFactory.getLogger(RunTestsCommand.class);
+
     private boolean showPassed;
     private boolean showDetails;
+    private boolean parallel;
+    private OutputFormat format;
 
     @Override
     public void getOptions(Options options) {
         options.addOption("a", "all", false, "Show all test results");
         options.addOption("d", "details", false, "Show detailed error message");
+        options.addOption(
+                "p", "parallel", false, "Test several exercises at the same time on all cores");
+        OutputFormat.addOption(options);
     }
 
     @Override
     public void run(CliContext context, CommandLine args) {
         Io io = context.getIo();
 
-        String[] paths = parseArgs(args);
+        String[] paths = parseArgs(args, io);
         if (paths == null) {
             return;
         }
@@ -61,55 +77,125 @@ public class RunTestsCommand extends AbstractCommand {
 
         CourseInfo info = context.getCourseInfo();
 
-        Color passedColor = context.getColorProperty("testresults-left", context.getApp());
-        Color failedColor = context.getColorProperty("testresults-right", context.getApp());
-        ResultPrinter resultPrinter =
-                new ResultPrinter(io, showDetails, showPassed, passedColor, failedColor);
+        ResultSink resultSink;
+        if (format == OutputFormat.JSON) {
+            resultSink = new JsonResultSink(io, "test", showDetails);
+        } else {
+            Color passedColor = context.getColorProperty("testresults-left", context.getApp());
+            Color failedColor = context.getColorProperty("testresults-right", context.getApp());
+            resultSink = new ResultPrinter(io, showDetails, showPassed, passedColor, failedColor);
+        }
 
         boolean isOnlyExercise = (exercises.size() == 1);
 
-        for (Exercise exercise : exercises) {
-            context.getAnalyticsFacade().saveAnalytics(exercise, "test");
-
-            io.println(ColorUtil.colorString("Testing: " + exercise.getName(), Color.YELLOW));
-
-            RunResult runResult = TmcUtil.runLocalTests(context, exercise);
-            if (runResult == null) {
-                io.errorln("Failed to run test");
-                resultPrinter.addFailedExercise();
-                continue;
+        // In the parallel mode the tests and the checkstyle of every exercise are run
+        // in the worker threads, but the results and the errors are printed here in the
+        // original order so that the output of different exercises never interleaves.
+        ExecutorService executor = null;
+        List<Future<RunResult>> testRuns = new ArrayList<>();
+        List<Future<ValidationResult>> checkstyleRuns = new ArrayList<>();
+        if (parallel && !isOnlyExercise) {
+            executor = Executors.newFixedThreadPool(
+                    Runtime.getRuntime().availableProcessors(), runnable -> {
+                        Thread thread = new Thread(runnable, "tmc-test");
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+            for (Exercise exercise : exercises) {
+                testRuns.add(executor.submit(() -> TmcUtil.tryRunLocalTests(context, exercise)));
+                checkstyleRuns.add(
+                        executor.submit(() -> TmcUtil.tryRunCheckStyle(context, exercise)));
             }
+        }
 
-            ValidationResult valResult = TmcUtil.runCheckStyle(context, exercise);
-            boolean testsPassed =
-                    resultPrinter.printLocalTestResult(runResult, valResult, isOnlyExercise);
-
-            updateCourseInfo(info, exercise, testsPassed);
-            io.println();
+        try {
+            for (int i = 0; i < exercises.size(); i++) {
+                Exercise exercise = exercises.get(i);
+                context.getAnalyticsFacade().saveAnalytics(exercise, "test");
+
+                resultSink.startExercise("Testing", exercise.getName());
+
+                RunResult runResult;
+                if (executor != null) {
+                    runResult = waitForResult(context, testRuns.get(i), true);
+                } else {
+                    runResult = TmcUtil.runLocalTests(context, exercise);
+                }
+                if (runResult == null) {
+                    if (executor != null) {
+                        checkstyleRuns.get(i).cancel(true);
+                    }
+                    resultSink.addFailedExercise("Failed to run test");
+                    resultSink.endExercise();
+                    continue;
+                }
+
+                ValidationResult valResult;
+                if (executor != null) {
+                    valResult = waitForResult(context, checkstyleRuns.get(i), false);
+                } else {
+                    valResult = TmcUtil.runCheckStyle(context, exercise);
+                }
+                boolean testsPassed =
+                        resultSink.printLocalTestResult(runResult, valResult, isOnlyExercise);
+
+                updateCourseInfo(info, exercise, testsPassed);
+                resultSink.endExercise();
+            }
+        } finally {
+            if (executor != null) {
+                executor.shutdown();
+            }
         }
-        CourseInfoIo.save(info, workDir.getConfigFile());
+        CourseInfoIo.saveIfChanged(info, workDir.getConfigFile());
 
         if (!isOnlyExercise) {
-            resultPrinter.printTotalExerciseResults();
+            resultSink.printTotalExerciseResults();
         }
     }
 
-    private String[] parseArgs(CommandLine args) {
+    private String[] parseArgs(CommandLine args, Io io) {
         this.showPassed = args.hasOption("a");
         this.showDetails = args.hasOption("d");
+        this.parallel = args.hasOption("p");
+        this.format = OutputFormat.parse(args, io);
+        if (format == null) {
+            return null;
+        }
         return args.getArgs();
     }
 
+    /**
+     * Wait for the result of a worker thread.
+     *
+     * @param showError whether the error of tmc-core is shown to the user like
+     *     {@link TmcUtil#runLocalTests} does
+     */
+    private static <T> T waitForResult(CliContext context, Future<T> future, boolean showError) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            logger.warn("Interrupted while waiting for the test results", e);
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            logger.error("Failed to run local tests", cause);
+            if (showError && cause instanceof Exception) {
+                TmcUtil.handleTmcExceptions(context, (Exception) cause);
+            }
+            return null;
+        }
+    }
+
     private void updateCourseInfo(CourseInfo courseInfo, Exercise exercise, boolean testsPassed) {
         exercise.setAttempted(true);
 
         if (!exercise.isCompleted() && testsPassed) {
             // add exercise to locally tested exercises
-            if (!courseInfo.getLocalCompletedExercises().contains(exercise.getName())) {
-                courseInfo.getLocalCompletedExercises().add(exercise.getName());
-            }
-        } else if (courseInfo.getLocalCompletedExercises().contains(exercise.getName())) {
-            courseInfo.getLocalCompletedExercises().remove(exercise.getName());
+            courseInfo.addLocalCompletedExercise(exercise.getName());
+        } else {
+            courseInfo.removeLocalCompletedExercise(exercise.getName());
         }
     }
 }
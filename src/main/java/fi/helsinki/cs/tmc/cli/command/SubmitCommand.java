@@ -13,7 +13,10 @@ import fi.helsinki.cs.tmc.cli.io.Io;
 import fi.helsinki.cs.tmc.cli.io.WorkDir;
 import fi.helsinki.cs.tmc.cli.shared.ExerciseUpdater;
 import fi.helsinki.cs.tmc.cli.shared.FeedbackHandler;
+import fi.helsinki.cs.tmc.cli.shared.JsonResultSink;
+import fi.helsinki.cs.tmc.cli.shared.OutputFormat;
 import fi.helsinki.cs.tmc.cli.shared.ResultPrinter;
+import fi.helsinki.cs.tmc.cli.shared.ResultSink;
 
 import fi.helsinki.cs.tmc.core.domain.Course;
 import fi.helsinki.cs.tmc.core.domain.Exercise;
@@ -31,7 +34,13 @@ import java.net.URI;
 import java.net.URISyntaxException;
 import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 @Command(name = "submit", desc = "Submit exercises")
 public class SubmitCommand extends AbstractCommand {
@@ -43,6 +52,8 @@ public class SubmitCommand extends AbstractCommand {
     private boolean showAll;
     private boolean showDetails;
     private boolean filterUncompleted;
+    private int jobs;
+    private OutputFormat format;
     private static int API_VERSION = 8;
     private Path courseInfoFile;
 
@@ -52,6 +63,8 @@ public class SubmitCommand extends AbstractCommand {
         options.addOption("d", "details", false, "Show detailed error message");
         options.addOption(
                 "c", "completed", false, "Filter out exercises that haven't been locally tested");
+        options.addOption("j", "jobs", true, "Submit up to N exercises at the same time");
+        OutputFormat.addOption(options);
     }
 
     @Override
@@ -70,13 +83,13 @@ public class SubmitCommand extends AbstractCommand {
         }
 
         if (exercisesFromArgs.length == 0 && workDir.getExercises().size() != 1) {
-            io.println("Please give exercise to submit as argument");
+            io.errorln("Please give exercise to submit as argument");
             return;
         }
 
         for (String exercise : exercisesFromArgs) {
             if (!workDir.addPath(exercise)) {
-                io.println("Error: " + exercise + " is not a valid exercise.");
+                io.errorln("Error: " + exercise + " is not a valid exercise.");
                 return;
             }
         }
@@ -103,18 +116,22 @@ public class SubmitCommand extends AbstractCommand {
 
         if (exercises.isEmpty()) {
             if (filterUncompleted && workDir.getCourseDirectory() != null) {
-                io.println("No locally tested exercises.");
+                io.errorln("No locally tested exercises.");
                 return;
             }
-            io.println("No exercises specified.");
+            io.errorln("No exercises specified.");
             return;
         }
 
 
-        Color color1 = ctx.getColorProperty("testresults-left", ctx.getApp());
-        Color color2 = ctx.getColorProperty("testresults-right", ctx.getApp());
-        ResultPrinter resultPrinter =
-                new ResultPrinter(io, this.showDetails, this.showAll, color1, color2);
+        ResultSink resultSink;
+        if (format == OutputFormat.JSON) {
+            resultSink = new JsonResultSink(io, "submit", this.showDetails);
+        } else {
+            Color color1 = ctx.getColorProperty("testresults-left", ctx.getApp());
+            Color color2 = ctx.getColorProperty("testresults-right", ctx.getApp());
+            resultSink = new ResultPrinter(io, this.showDetails, this.showAll, color1, color2);
+        }
 
         boolean isOnlyExercise = (exercises.size() == 1);
         List<Exercise> submitExercises = exercises;
@@ -122,47 +139,125 @@ public class SubmitCommand extends AbstractCommand {
         List<String> exercisesWithFeedback = new ArrayList<>();
         List<URI> feedbackUris = new ArrayList<>();
 
-        for (Exercise exercise : submitExercises) {
-            this.ctx.getAnalyticsFacade().saveAnalytics(exercise, "submit");
-            io.println(ColorUtil.colorString("Submitting: " + exercise.getName(), Color.YELLOW));
-            if (exercise.hasDeadlinePassed()) {
-                logger.warn("Tried to submit exercise " + exercise.getName() + " after deadline.");
-                io.errorln("Deadline has passed for this exercise at " + exercise.getDeadline());
-                return;
-            }
-            SubmissionResult result = TmcUtil.submitExercise(ctx, exercise);
-            if (result == null) {
-                io.errorln("Submission failed.");
-                if (!isOnlyExercise) {
-                    io.errorln("Try to submit exercises one by one.");
+        // The submissions are started ahead of time in the worker threads,
+        // but the results are always printed in the order of the exercises.
+        ExecutorService executor =
+                Executors.newFixedThreadPool(Math.min(jobs, submitExercises.size()));
+        List<Future<SubmissionResult>> submissions = new ArrayList<>();
+        List<Exercise> submittedExercises = new ArrayList<>();
+        // no new submissions are started after the first failure, but the ones that
+        // are already running are waited for and reported like the earlier ones
+        boolean stopped = false;
+        boolean failed = false;
+        try {
+            for (int i = 0; i < submitExercises.size(); i++) {
+                while (!stopped
+                        && submissions.size() < submitExercises.size()
+                        && submissions.size() < i + jobs) {
+                    Future<SubmissionResult> submission =
+                            startSubmission(executor, submitExercises.get(submissions.size()));
+                    stopped = (submission == null);
+                    submissions.add(submission);
+                }
+                if (i >= submissions.size()) {
+                    break;
                 }
-                return;
-            }
 
-            resultPrinter.printSubmissionResult(result, isOnlyExercise);
+                Exercise exercise = submitExercises.get(i);
+                resultSink.startExercise("Submitting", exercise.getName());
+                if (submissions.get(i) == null) {
+                    logger.warn(
+                            "Tried to submit exercise " + exercise.getName() + " after deadline.");
+                    resultSink.addFailedExercise(
+                            "Deadline has passed for this exercise at " + exercise.getDeadline());
+                    resultSink.endExercise();
+                    continue;
+                }
+                SubmissionResult result = waitForSubmission(submissions.get(i));
+                if (Thread.currentThread().isInterrupted()) {
+                    break;
+                }
+                if (result == null) {
+                    resultSink.addFailedExercise("Submission failed.");
+                    resultSink.endExercise();
+                    stopped = true;
+                    failed = true;
+                    continue;
+                }
 
-            exercise.setAttempted(true);
-            if (result.getStatus() == SubmissionResult.Status.OK) {
-                exercise.setCompleted(true);
-            }
+                resultSink.printSubmissionResult(result, isOnlyExercise);
+                submittedExercises.add(exercise);
 
-            List<FeedbackQuestion> feedback = result.getFeedbackQuestions();
-            if (feedback != null && feedback.size() > 0) {
-                feedbackLists.add(feedback);
-                exercisesWithFeedback.add(exercise.getName());
-                feedbackUris.add(URI.create(result.getFeedbackAnswerUrl()));
+                exercise.setAttempted(true);
+                if (result.getStatus() == SubmissionResult.Status.OK) {
+                    exercise.setCompleted(true);
+                }
+
+                List<FeedbackQuestion> feedback = result.getFeedbackQuestions();
+                if (feedback != null && feedback.size() > 0) {
+                    feedbackLists.add(feedback);
+                    exercisesWithFeedback.add(exercise.getName());
+                    feedbackUris.add(URI.create(result.getFeedbackAnswerUrl()));
+                }
+                resultSink.endExercise();
             }
-            io.println();
+        } finally {
+            // Only an interrupt stops the submissions that are already running.
+            if (Thread.currentThread().isInterrupted()) {
+                executor.shutdownNow();
+            } else {
+                executor.shutdown();
+            }
+            // The exercise statuses of the course have changed on the server.
+            ctx.getMetadataCache().invalidateCourse(ctx.getSettings(), currentCourse.getName());
         }
         if (!isOnlyExercise) {
-            resultPrinter.printTotalExerciseResults();
+            resultSink.printTotalExerciseResults();
+        }
+        if (failed && !isOnlyExercise) {
+            io.errorln("Try to submit exercises one by one.");
         }
 
-        updateCourseJson(submitExercises, info);
+        if (!submittedExercises.isEmpty()) {
+            updateCourseJson(submittedExercises, info);
+        }
+        if (stopped || Thread.currentThread().isInterrupted()) {
+            return;
+        }
+        if (format == OutputFormat.JSON) {
+            // the scripts that read the results can't answer the feedback questions
+            return;
+        }
         checkForExerciseUpdates(currentCourse);
         sendFeedbacks(feedbackLists, exercisesWithFeedback, feedbackUris);
     }
 
+    /**
+     * Start the submission of the exercise in the background.
+     *
+     * @return the pending submission or null if the deadline has passed
+     */
+    private Future<SubmissionResult> startSubmission(ExecutorService executor, Exercise exercise) {
+        this.ctx.getAnalyticsFacade().saveAnalytics(exercise, "submit");
+        if (exercise.hasDeadlinePassed()) {
+            return null;
+        }
+        return executor.submit(() -> TmcUtil.submitExercise(ctx, exercise));
+    }
+
+    private SubmissionResult waitForSubmission(Future<SubmissionResult> submission) {
+        try {
+            return submission.get();
+        } catch (InterruptedException e) {
+            logger.warn("Interrupted while waiting for the submission", e);
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException e) {
+            logger.warn("Failed to submit the exercise", e);
+            return null;
+        }
+    }
+
     private void sendFeedbacks(List<List<FeedbackQuestion>> feedbackLists, List<String> exercisesWithFeedback, List<URI> feedbackUris) {
         for (int i = 0; i < exercisesWithFeedback.size(); i++) {
             if (io.readConfirmation(
@@ -180,30 +275,32 @@ public class SubmitCommand extends AbstractCommand {
 
     /**
      * Fetch updated exercise statuses from server and update course JSON file accordingly.
+     * This is done only once after all the submissions have finished.
      */
     private void updateCourseJson(
             List<Exercise> submittedExercises, CourseInfo courseInfo) {
 
         List<Exercise> exercises = TmcUtil.getCourseExercises(ctx);
         if (exercises == null) {
-            io.println(
+            io.errorln(
                     "Failed to update config file for course " + courseInfo.getCourseName());
             return;
         }
+        Map<String, Exercise> exercisesByName = new HashMap<>();
+        for (Exercise exercise : exercises) {
+            exercisesByName.put(exercise.getName(), exercise);
+        }
         for (Exercise submitted : submittedExercises) {
-            java.util.Optional<Exercise> ex = exercises.stream().filter(e -> e.getName().equals(submitted.getName())).findFirst();
-            if (!ex.isPresent()) {
-                io.println(
+            Exercise updatedEx = exercisesByName.get(submitted.getName());
+            if (updatedEx == null) {
+                io.errorln(
                         "Failed to update config file for exercise "
                                 + submitted.getName()
                                 + ". The exercise doesn't exist in server anymore.");
                 continue;
             }
-            Exercise updatedEx = ex.get();
             if (updatedEx.isCompleted()) {
-                if (courseInfo.getLocalCompletedExercises().contains(updatedEx.getName())) {
-                    courseInfo.getLocalCompletedExercises().remove(updatedEx.getName());
-                }
+                courseInfo.removeLocalCompletedExercise(updatedEx.getName());
             }
             courseInfo.replaceOldExercise(updatedEx);
         }
@@ -254,7 +351,7 @@ public class SubmitCommand extends AbstractCommand {
         }
         List<Exercise> exercises = TmcUtil.getCourseExercises(ctx);
         if (exercises == null) {
-            io.println(
+            io.errorln(
                     "Failed to update urls for exercises of course " + ctx.getCourseInfo().getCourseName());
             return;
         }
@@ -278,6 +375,22 @@ public class SubmitCommand extends AbstractCommand {
         this.showAll = args.hasOption("a");
         this.showDetails = args.hasOption("d");
         this.filterUncompleted = args.hasOption("c");
+        this.format = OutputFormat.parse(args, io);
+        if (format == null) {
+            return null;
+        }
+        this.jobs = 1;
+        if (args.hasOption("j")) {
+            try {
+                this.jobs = Integer.parseInt(args.getOptionValue("j"));
+            } catch (NumberFormatException e) {
+                this.jobs = 0;
+            }
+            if (this.jobs < 1) {
+                io.errorln("The number of jobs must be a positive integer.");
+                return null;
+            }
+        }
         return args.getArgs();
     }
 }
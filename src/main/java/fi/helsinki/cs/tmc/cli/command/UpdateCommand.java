@@ -74,11 +74,23 @@ public class UpdateCommand extends AbstractCommand {
         Color color2 = ctx.getColorProperty("progressbar-right", ctx.getApp());
         List<Exercise> downloaded =
                 exerciseUpdater.downloadUpdates(new CliProgressObserver(io, color1, color2));
-        if (downloaded.isEmpty()) {
+        if (downloaded == null || downloaded.isEmpty()) {
             io.errorln("Failed to download exercises");
             return;
         }
+        List<Exercise> failed = exerciseUpdater.getFailedExercises();
+        if (!failed.isEmpty()) {
+            // the course config file is updated only when everything is downloaded
+            io.errorln("Failed to download " + failed.size() + " exercises:");
+            for (Exercise exercise : failed) {
+                io.errorln(" " + exercise.getName());
+            }
+            io.errorln("Run the update again to download the rest of the exercises.");
+            return;
+        }
 
+        // Don't use the cached course details that don't have the updated exercises.
+        ctx.getMetadataCache().invalidateCourse(ctx.getSettings(), info.getCourseName());
         if (!exerciseUpdater.updateCourseJson(info, configFile)) {
             io.errorln("Failed to update course config file");
         }
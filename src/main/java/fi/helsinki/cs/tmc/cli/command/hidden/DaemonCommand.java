@@ -0,0 +1,30 @@
+package fi.helsinki.cs.tmc.cli.command.hidden;
+
+import fi.helsinki.cs.tmc.cli.core.AbstractCommand;
+import fi.helsinki.cs.tmc.cli.core.CliContext;
+import fi.helsinki.cs.tmc.cli.core.Command;
+import fi.helsinki.cs.tmc.cli.core.DaemonServer;
+import fi.helsinki.cs.tmc.cli.io.Io;
+
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.Options;
+
+@Command(name = "daemon", desc = "Run the commands of the tmc script in a background process.")
+public class DaemonCommand extends AbstractCommand {
+
+    @Override
+    public void getOptions(Options options) {}
+
+    @Override
+    public void run(CliContext context, CommandLine args) {
+        Io io = context.getIo();
+
+        if (DaemonServer.isRunning()) {
+            io.errorln("The daemon is already running.");
+            return;
+        }
+        if (!new DaemonServer().run()) {
+            io.errorln("Failed to start the daemon, check tmc-cli.log file for more info");
+        }
+    }
+}
@@ -4,6 +4,7 @@ import fi.helsinki.cs.tmc.cli.core.AbstractCommand;
 import fi.helsinki.cs.tmc.cli.core.CliContext;
 import fi.helsinki.cs.tmc.cli.core.Command;
 import fi.helsinki.cs.tmc.cli.core.CommandFactory;
+import fi.helsinki.cs.tmc.cli.core.CommandInfo;
 import fi.helsinki.cs.tmc.cli.io.Io;
 
 import org.apache.commons.cli.CommandLine;
@@ -23,9 +24,8 @@ public class ShellHelperCommand extends AbstractCommand {
         Io io = context.getIo();
 
         if (args.hasOption("c")) {
-            for (Class<Command> commandClass : CommandFactory.getCommands()) {
-                Command command = CommandFactory.getCommand(commandClass);
-                io.println(command.name());
+            for (CommandInfo command : CommandFactory.getCommandInfos()) {
+                io.println(command.getName());
             }
         } else {
             io.println("This is only for internal usage.");
@@ -5,9 +5,10 @@ import fi.helsinki.cs.tmc.cli.analytics.AnalyticsFacade;
 import fi.helsinki.cs.tmc.cli.backend.Account;
 import fi.helsinki.cs.tmc.cli.backend.AccountList;
 import fi.helsinki.cs.tmc.cli.backend.CourseInfo;
-import fi.helsinki.cs.tmc.cli.backend.CourseInfoIo;
+import fi.helsinki.cs.tmc.cli.backend.MetadataCache;
 import fi.helsinki.cs.tmc.cli.backend.Settings;
 import fi.helsinki.cs.tmc.cli.backend.SettingsIo;
+import fi.helsinki.cs.tmc.cli.backend.TemplateStore;
 import fi.helsinki.cs.tmc.cli.io.*;
 import fi.helsinki.cs.tmc.cli.shared.CourseFinder;
 import fi.helsinki.cs.tmc.core.TmcCore;
@@ -28,12 +29,28 @@ public class CliContext {
     private CourseInfo courseInfo;
     private HashMap<String, String> properties;
     private final boolean inTest;
+    private final boolean inDaemon;
     private AnalyticsFacade analyticsFacade;
+    private MetadataCache metadataCache;
+    private TemplateStore templateStore;
 
     public CliContext(Io io, TmcCore core, WorkDir workDir, Settings settings, AnalyticsFacade facade) {
-        inTest = (io != null);
+        this(io, core, workDir, settings, facade, false);
+    }
+
+    /**
+     * Create the context of a command.
+     *
+     * @param io io of the command, null for the terminal
+     * @param inDaemon true if the command is run by the daemon for a client,
+     *     the io of the client is then given instead of the terminal
+     */
+    public CliContext(Io io, TmcCore core, WorkDir workDir, Settings settings,
+            AnalyticsFacade facade, boolean inDaemon) {
+        this.inDaemon = inDaemon;
+        inTest = (io != null) && !inDaemon;
         if (!inTest) {
-            io = new TerminalIo(System.in);
+            io = new BufferedTerminalIo(System.in);
         }
         this.io = io;
         this.workDir = workDir;
@@ -43,6 +60,27 @@ public class CliContext {
         this.hasLogin = (core != null);
         this.courseInfo = null;
         this.analyticsFacade = facade;
+        // the tests must not share the cached server responses
+        this.metadataCache = new MetadataCache(
+                inTest ? null : SettingsIo.getConfigDirectory().resolve(MetadataCache.CACHE_DIR));
+        this.templateStore = new TemplateStore(inTest
+                ? null : SettingsIo.getConfigDirectory().resolve(TemplateStore.TEMPLATE_DIR));
+    }
+
+    private CliContext(CliContext parent, Settings settings) {
+        this.inTest = parent.inTest;
+        this.inDaemon = parent.inDaemon;
+        this.io = parent.io;
+        this.workDir = parent.workDir;
+        this.properties = parent.properties;
+        this.settings = settings;
+        this.tmcCore = parent.tmcCore;
+        this.hasLogin = true;
+        this.courseInfo = null;
+        this.analyticsFacade = parent.analyticsFacade;
+        this.metadataCache = parent.metadataCache;
+        this.templateStore = parent.templateStore;
+        this.application = parent.application;
     }
 
     /*TODO create reset method for removing all cached data that is called
@@ -72,6 +110,15 @@ public class CliContext {
         return inTest;
     }
 
+    /**
+     * Check whether the command is run by the daemon instead of its own process.
+     * The process wide things, like the shutdown hooks and the auto-update, are
+     * then left to the daemon.
+     */
+    public boolean inDaemon() {
+        return inDaemon;
+    }
+
     /**
      * Get singleton Io object.
      *
@@ -125,6 +172,7 @@ public class CliContext {
 
     /**
      * Lazy load the course info from course directory.
+     * The same course info object is shared with the work dir.
      *
      * @return local course info
      */
@@ -135,7 +183,7 @@ public class CliContext {
         if (workDir.getConfigFile() == null) {
             return null;
         }
-        courseInfo = CourseInfoIo.load(workDir.getConfigFile());
+        courseInfo = workDir.getCourseInfo();
         if (courseInfo == null) {
             io.errorln(
                     "Course configuration file "
@@ -197,6 +245,46 @@ public class CliContext {
         this.settings.setAccount(this, account);
     }
 
+    /**
+     * Get the cache of the course and organization data fetched from the server.
+     *
+     * @return metadata cache, which is disabled in tests
+     */
+    public MetadataCache getMetadataCache() {
+        return metadataCache;
+    }
+
+    public void setMetadataCache(MetadataCache metadataCache) {
+        this.metadataCache = metadataCache;
+    }
+
+    /**
+     * Get the store of the downloaded exercise templates.
+     *
+     * @return template store, which is disabled in tests
+     */
+    public TemplateStore getTemplateStore() {
+        return templateStore;
+    }
+
+    public void setTemplateStore(TemplateStore templateStore) {
+        this.templateStore = templateStore;
+    }
+
+    /**
+     * Create a context that has its own settings object for the account.
+     * Unlike this context, whose settings are switched by {@link #useAccount}, an
+     * abandoned request of the account context can't see the settings of other accounts.
+     *
+     * @param account login info of the new context
+     * @return new context that shares everything else with this context
+     */
+    public CliContext createAccountContext(Account account) {
+        Settings accountSettings = new Settings(account);
+        accountSettings.setWorkDir(workDir);
+        return new CliContext(this, accountSettings);
+    }
+
     public AnalyticsFacade getAnalyticsFacade() {
         return this.analyticsFacade;
     }
@@ -34,6 +34,7 @@ public class CommandAnnotationProcessor extends AbstractProcessor {
     @Override
     public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
         Map<String, String> map = new HashMap<>();
+        Map<String, String> descriptions = new HashMap<>();
 
         for (Element elem : roundEnv.getElementsAnnotatedWith(Command.class)) {
             if (elem.getKind() != ElementKind.CLASS) {
@@ -48,31 +49,32 @@ public class CommandAnnotationProcessor extends AbstractProcessor {
             map.put(
                     command.name(),
                     processingEnv.getElementUtils().getBinaryName(classElement).toString());
+            descriptions.put(command.name(), command.desc());
         }
 
         try {
-            generateSourceFile(map);
+            generateSourceFile(map, descriptions);
         } catch (IOException ex) {
             logger.warn("Failed to create source file." + ex);
         }
         return true;
     }
 
-    private void generateSourceFile(Map<String, String> map) throws IOException {
+    /**
+     * Generate the command list that has only the names of the command classes.
+     * The command classes aren't imported, so they are loaded only when they're used.
+     */
+    private void generateSourceFile(Map<String, String> map, Map<String, String> descriptions)
+            throws IOException {
         JavaFileObject jfo =
                 processingEnv.getFiler().createSourceFile(PACKAGE_NAME + "." + CLASS_NAME);
 
         try (Writer writer = jfo.openWriter()) {
             BufferedWriter bwriter = new BufferedWriter(writer);
             bwriter.append("package " + PACKAGE_NAME + ";\n\n");
-
-            // import the command classes
             bwriter.append("//CHECKSTYLE:OFF\n");
-            for (Entry<String, String> entry : map.entrySet()) {
-                bwriter.append("import ").append(entry.getValue()).append(";\n");
-            }
 
-            bwriter.append("\npublic class " + CLASS_NAME + " {\n");
+            bwriter.append("public class " + CLASS_NAME + " {\n");
             bwriter.append(TAB + "public " + CLASS_NAME + "() {\n");
             for (Entry<String, String> entry : map.entrySet()) {
                 String classPath = entry.getValue();
@@ -95,13 +97,15 @@ public class CommandAnnotationProcessor extends AbstractProcessor {
                         packageName = packageName.substring(1);
                     }
                 }
-                bwriter.append(TAB + TAB + "CommandFactory.addCommand(\"")
-                        .append(entry.getKey())
-                        .append("\", \"")
-                        .append(packageName)
-                        .append("\", ")
-                        .append(className)
-                        .append(".class);\n");
+                bwriter.append(TAB + TAB + "CommandFactory.addCommand(")
+                        .append(quote(entry.getKey()))
+                        .append(", ")
+                        .append(quote(packageName))
+                        .append(", ")
+                        .append(quote(classPath))
+                        .append(", ")
+                        .append(quote(descriptions.get(entry.getKey())))
+                        .append(");\n");
             }
             bwriter.append(TAB + "}\n");
             bwriter.append("}\n");
@@ -109,4 +113,24 @@ public class CommandAnnotationProcessor extends AbstractProcessor {
             bwriter.flush();
         }
     }
+
+    private static String quote(String value) {
+        StringBuilder builder = new StringBuilder("\"");
+        for (char c : value.toCharArray()) {
+            switch (c) {
+                case '"':
+                    builder.append("\\\"");
+                    break;
+                case '\\':
+                    builder.append("\\\\");
+                    break;
+                case '\n':
+                    builder.append("\\n");
+                    break;
+                default:
+                    builder.append(c);
+            }
+        }
+        return builder.append('"').toString();
+    }
 }
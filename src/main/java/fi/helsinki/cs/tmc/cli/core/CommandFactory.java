@@ -11,35 +11,51 @@ import java.util.Set;
 
 /**
  * Class used for creating new instances of commands.
+ *
+ * <p>The command list is generated at compile time and it only has the names of the
+ * command classes, so a command class is loaded when the command is created.
  */
 public class CommandFactory {
 
     private static final org.slf4j.Logger logger = LoggerFactory.getLogger(CommandFactory.class);
-    private static Map<String, Class<Command>> commands;
-    private static Map<String, List<Class<Command>>> packages;
+    private static Map<String, CommandInfo> commands;
+    private static Map<String, List<CommandInfo>> packages;
 
-    static {
-        CommandFactory.reload();
+    /**
+     * Put a command to the command list.
+     * This method is used by the command list that is generated from the annotations.
+     *
+     * @param name the name visible to the user
+     * @param packageName the package name that is used to categorize the commands
+     * @param className the binary name of the command class
+     * @param description the description of the command
+     */
+    public static void addCommand(
+            String name, String packageName, String className, String description) {
+        addCommand(new CommandInfo(name, packageName, className, description));
     }
 
     /**
-     * Put a command to the command list.
-     * This method is used for generating the commands list from the annotations.
+     * Put an already loaded command class to the command list.
      *
      * @param name the name visible to the user
      * @param packageName the package name that is used to categorize the commands
      * @param commandClass the class of the command objects
      */
     public static void addCommand(String name, String packageName, Class commandClass) {
-        Class<Command> klass = castToCommandClass(commandClass);
-        CommandFactory.commands.put(name, klass);
+        addCommand(new CommandInfo(name, packageName, castToCommandClass(commandClass)));
+    }
 
-        List<Class<Command>> list = CommandFactory.packages.get(packageName);
+    private static synchronized void addCommand(CommandInfo info) {
+        requireCommands();
+        CommandFactory.commands.put(info.getName(), info);
+
+        List<CommandInfo> list = CommandFactory.packages.get(info.getCategory());
         if (list == null) {
             list = new ArrayList<>();
-            CommandFactory.packages.put(packageName, list);
+            CommandFactory.packages.put(info.getCategory(), list);
         }
-        list.add(klass);
+        list.add(info);
     }
 
     /**
@@ -49,12 +65,12 @@ public class CommandFactory {
      * @return A new command instance
      */
     public static AbstractCommand createCommand(String name) {
-        Class commandClass = CommandFactory.commands.get(name);
-        if (commandClass == null) {
+        CommandInfo info = getCommandInfo(name);
+        if (info == null) {
             return null;
         }
         try {
-            return (AbstractCommand) commandClass.newInstance();
+            return (AbstractCommand) info.getCommandClass().newInstance();
         } catch (InstantiationException | IllegalAccessException ex) {
             throw new RuntimeException("getCommand failed", ex);
         }
@@ -62,7 +78,6 @@ public class CommandFactory {
 
     /**
      * Get the annotation of the command class.
-     * This is only used in help command.
      *
      * @param commandClass The class of the command
      * @return The command annotation object
@@ -73,21 +88,56 @@ public class CommandFactory {
     }
 
     /**
-     * Get list of all commands.
+     * Get the information of the command without loading its class.
+     *
+     * @param name Name of the command
+     * @return command info or null if the command doesn't exist
+     */
+    public static synchronized CommandInfo getCommandInfo(String name) {
+        requireCommands();
+        return commands.get(name);
+    }
+
+    /**
+     * Get information of all commands.
      * This is used for creating help listing.
      *
-     * @return Set of commands.
+     * @return List of command infos.
+     */
+    public static synchronized List<CommandInfo> getCommandInfos() {
+        requireCommands();
+        return new ArrayList<>(commands.values());
+    }
+
+    /**
+     * Get information of the commands in the category.
+     *
+     * @return List of command infos or null if the category doesn't exist.
+     */
+    public static synchronized List<CommandInfo> getCategoryCommandInfos(String category) {
+        requireCommands();
+        List<CommandInfo> list = packages.get(category);
+        return list != null ? new ArrayList<>(list) : null;
+    }
+
+    /**
+     * Get list of all command classes.
+     * Every command class is loaded, so use {@link #getCommandInfos} if possible.
+     *
+     * @return List of commands.
      */
     public static List<Class<Command>> getCommands() {
-        return new ArrayList<>(CommandFactory.commands.values());
+        return toCommandClasses(getCommandInfos());
     }
 
-    public static Set<String> getCommandCategories() {
+    public static synchronized Set<String> getCommandCategories() {
+        requireCommands();
         return packages.keySet();
     }
 
     public static List<Class<Command>> getCategoryCommands(String category) {
-        return packages.get(category);
+        List<CommandInfo> infos = getCategoryCommandInfos(category);
+        return infos != null ? toCommandClasses(infos) : null;
     }
 
     @SuppressWarnings("unchecked")
@@ -95,7 +145,21 @@ public class CommandFactory {
         return command;
     }
 
-    protected static void reload() {
+    private static List<Class<Command>> toCommandClasses(List<CommandInfo> infos) {
+        List<Class<Command>> classes = new ArrayList<>();
+        for (CommandInfo info : infos) {
+            classes.add(info.getCommandClass());
+        }
+        return classes;
+    }
+
+    private static void requireCommands() {
+        if (commands == null) {
+            reload();
+        }
+    }
+
+    protected static synchronized void reload() {
         CommandFactory.commands = new HashMap<>();
         CommandFactory.packages = new HashMap<>();
 
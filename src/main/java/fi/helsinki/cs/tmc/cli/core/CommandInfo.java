@@ -0,0 +1,60 @@
+package fi.helsinki.cs.tmc.cli.core;
+
+/**
+ * The name, category and description of a command.
+ * These are generated at compile time, so the command class is loaded only when
+ * the command is actually run.
+ */
+public class CommandInfo {
+
+    private final String name;
+    private final String category;
+    private final String className;
+    private final String description;
+    private Class<Command> commandClass;
+
+    public CommandInfo(String name, String category, String className, String description) {
+        this.name = name;
+        this.category = category;
+        this.className = className;
+        this.description = description;
+    }
+
+    public CommandInfo(String name, String category, Class<Command> commandClass) {
+        this(name, category, commandClass.getName(),
+                CommandFactory.getCommand(commandClass).desc());
+        this.commandClass = commandClass;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getCategory() {
+        return category;
+    }
+
+    public String getClassName() {
+        return className;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    /**
+     * Load the class of the command.
+     *
+     * @return the command class
+     */
+    public synchronized Class<Command> getCommandClass() {
+        if (commandClass == null) {
+            try {
+                commandClass = CommandFactory.castToCommandClass(Class.forName(className));
+            } catch (ClassNotFoundException ex) {
+                throw new RuntimeException("Command class " + className + " not found", ex);
+            }
+        }
+        return commandClass;
+    }
+}
@@ -0,0 +1,298 @@
+package fi.helsinki.cs.tmc.cli.core;
+
+import fi.helsinki.cs.tmc.cli.Application;
+import fi.helsinki.cs.tmc.cli.analytics.AnalyticsFacade;
+import fi.helsinki.cs.tmc.cli.backend.MetadataCache;
+import fi.helsinki.cs.tmc.cli.backend.RequestCounter;
+import fi.helsinki.cs.tmc.cli.backend.Settings;
+import fi.helsinki.cs.tmc.cli.backend.SettingsIo;
+import fi.helsinki.cs.tmc.cli.backend.TemplateStore;
+import fi.helsinki.cs.tmc.cli.io.EnvironmentUtil;
+import fi.helsinki.cs.tmc.cli.io.StreamIo;
+import fi.helsinki.cs.tmc.cli.io.WorkDir;
+
+import fi.helsinki.cs.tmc.core.TmcCore;
+import fi.helsinki.cs.tmc.langs.util.TaskExecutor;
+import fi.helsinki.cs.tmc.langs.util.TaskExecutorImpl;
+import fi.helsinki.cs.tmc.snapshots.EventSendBuffer;
+import fi.helsinki.cs.tmc.snapshots.EventStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Long-lived process that runs the commands of the tmc script.
+ *
+ * <p>The server listens on the loopback interface and writes its port and a random
+ * token into the daemon file of the user's config directory. Only the owner can read
+ * the file, and connections that don't start with the token are closed.
+ *
+ * <p>A request has the following lines: token, working directory, terminal width,
+ * whether the output is a terminal, status file, error file, argument count and the
+ * arguments. The rest of the input is the standard input of the command and the
+ * output of the command is written back to the socket. The errors are written into
+ * the error file that the client has created, so that they don't end up in the
+ * output of the command. Without the error file they are written to the socket too.
+ * After the output, the exit status of the command is written as a line into the
+ * status file that the client has created, so the client can tell a finished command
+ * from a daemon that died in the middle of it.
+ * The commands are run one at a time because tmc-core keeps its settings in globals.
+ */
+public class DaemonServer {
+
+    private static final Logger logger = LoggerFactory.getLogger(DaemonServer.class);
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    // DAEMON_FILE is the file in the config directory that has the port and the token.
+    public static final String DAEMON_FILE = "daemon";
+    private static final long DEFAULT_IDLE_TIMEOUT = TimeUnit.MINUTES.toMillis(30);
+    private static final int MAX_HEADER_LINE = 64 * 1024;
+    private static final int MAX_ARGUMENTS = 1024;
+
+    static final int STATUS_OK = 0;
+    static final int STATUS_FAILED = 1;
+
+    private static volatile boolean running;
+
+    private final Path daemonFile;
+    private final long idleTimeout;
+    private final String token;
+
+    private final TaskExecutor tmcLangs;
+    private final AnalyticsFacade analyticsFacade;
+    private final MetadataCache metadataCache;
+    private final TemplateStore templateStore;
+
+    public DaemonServer() {
+        this(SettingsIo.getConfigDirectory().resolve(DAEMON_FILE), DEFAULT_IDLE_TIMEOUT);
+    }
+
+    public DaemonServer(Path daemonFile, long idleTimeout) {
+        this.daemonFile = daemonFile;
+        this.idleTimeout = idleTimeout;
+        this.token = createToken();
+
+        this.tmcLangs = new TaskExecutorImpl();
+        this.analyticsFacade = new AnalyticsFacade(new EventSendBuffer(new EventStore()));
+        this.metadataCache = new MetadataCache(
+                SettingsIo.getConfigDirectory().resolve(MetadataCache.CACHE_DIR));
+        this.templateStore = new TemplateStore(
+                SettingsIo.getConfigDirectory().resolve(TemplateStore.TEMPLATE_DIR));
+    }
+
+    /**
+     * Check whether the commands are run inside the daemon.
+     */
+    public static boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Serve the requests until no request has come in the idle timeout.
+     *
+     * @return false if the server couldn't be started
+     */
+    public boolean run() {
+        running = true;
+        try (ServerSocket server = new ServerSocket(0, 50, InetAddress.getLoopbackAddress())) {
+            server.setSoTimeout((int) idleTimeout);
+            writeDaemonFile(server.getLocalPort());
+
+            while (true) {
+                try (Socket socket = server.accept()) {
+                    handleRequest(socket);
+                } catch (SocketTimeoutException e) {
+                    logger.info("The daemon has been idle for too long, shutting down");
+                    return true;
+                } catch (IOException e) {
+                    logger.warn("Failed to handle a daemon request", e);
+                }
+            }
+        } catch (IOException e) {
+            logger.error("Failed to start the daemon", e);
+            return false;
+        } finally {
+            removeDaemonFile();
+            running = false;
+        }
+    }
+
+    private void handleRequest(Socket socket) throws IOException {
+        InputStream in = socket.getInputStream();
+        if (!MessageDigest.isEqual(token.getBytes(UTF8), readLine(in).getBytes(UTF8))) {
+            logger.warn("Daemon request with an invalid token");
+            return;
+        }
+        Path workingDirectory = Paths.get(readLine(in));
+        String columns = readLine(in);
+        String outputTty = readLine(in);
+        String statusFile = readLine(in);
+        String errorFile = readLine(in);
+        int argumentCount;
+        try {
+            argumentCount = Integer.parseInt(readLine(in));
+        } catch (NumberFormatException e) {
+            throw new IOException("Invalid argument count in the daemon request", e);
+        }
+        if (argumentCount < 0 || argumentCount > MAX_ARGUMENTS) {
+            throw new IOException("Invalid argument count in the daemon request");
+        }
+        String[] args = new String[argumentCount];
+        for (int i = 0; i < args.length; i++) {
+            args[i] = readLine(in);
+        }
+
+        PrintStream out = new PrintStream(socket.getOutputStream(), true, "UTF-8");
+        Path errorPath = clientFile(errorFile);
+        PrintStream err = out;
+        if (errorPath != null) {
+            err = new PrintStream(Files.newOutputStream(errorPath, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING, LinkOption.NOFOLLOW_LINKS),
+                    true, "UTF-8");
+        }
+        int status;
+        try {
+            status = runCommand(
+                    new StreamIo(in, out, err), workingDirectory, columns, outputTty, args);
+        } finally {
+            if (err != out) {
+                err.close();
+            }
+        }
+        out.flush();
+        writeStatus(statusFile, status);
+    }
+
+    private int runCommand(StreamIo io, Path workingDirectory, String columns,
+            String outputTty, String[] args) {
+        // the counters are per command like in a process of its own
+        StartupTrace.reset();
+        Metrics.reset();
+        RequestCounter.getInstance().reset();
+
+        Settings settings = new Settings();
+        TmcCore core = new TmcCore(settings, tmcLangs);
+        CliContext context = new CliContext(
+                io, core, new WorkDir(workingDirectory), settings, analyticsFacade, true);
+        // the cached responses are shared by all the commands of the daemon
+        context.setMetadataCache(metadataCache);
+        context.setTemplateStore(templateStore);
+        StartupTrace.mark("context");
+
+        EnvironmentUtil.setTerminalWidth(columns);
+        EnvironmentUtil.setInteractiveOutput(outputTty);
+        try {
+            new Application(context).run(args);
+            return STATUS_OK;
+        } catch (RuntimeException e) {
+            logger.error("Command failed in the daemon", e);
+            io.errorln("Command failed, check tmc-cli.log file for more info");
+            return STATUS_FAILED;
+        } finally {
+            EnvironmentUtil.setTerminalWidth(null);
+            EnvironmentUtil.setInteractiveOutput(null);
+        }
+    }
+
+    /**
+     * Write the exit status into the file of the client.
+     */
+    private static void writeStatus(String statusFile, int status) throws IOException {
+        Path path = clientFile(statusFile);
+        if (path == null) {
+            return;
+        }
+        Files.write(path, (status + "\n").getBytes(UTF8),
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+    }
+
+    /**
+     * Get a file that the client has created for the request. The file must already
+     * exist, so that the request can't create files elsewhere.
+     *
+     * @return the path or null if the client didn't give the file
+     */
+    private static Path clientFile(String file) throws IOException {
+        if (file.isEmpty()) {
+            return null;
+        }
+        Path path = Paths.get(file);
+        if (!path.isAbsolute() || !Files.isRegularFile(path, LinkOption.NOFOLLOW_LINKS)) {
+            throw new IOException("Invalid file in the daemon request");
+        }
+        return path;
+    }
+
+    /**
+     * Read a single line without buffering the rest of the input.
+     */
+    private static String readLine(InputStream in) throws IOException {
+        ByteArrayOutputStream line = new ByteArrayOutputStream();
+        int next;
+        while ((next = in.read()) != '\n') {
+            if (next == -1) {
+                throw new IOException("Unexpected end of the daemon request");
+            }
+            if (line.size() >= MAX_HEADER_LINE) {
+                throw new IOException("Too long line in the daemon request");
+            }
+            line.write(next);
+        }
+        return new String(line.toByteArray(), UTF8);
+    }
+
+    private void writeDaemonFile(int port) throws IOException {
+        Files.createDirectories(daemonFile.getParent());
+        Path tempFile = daemonFile.resolveSibling(DAEMON_FILE + ".tmp");
+        Files.deleteIfExists(tempFile);
+        Files.createFile(tempFile);
+        try {
+            Files.setPosixFilePermissions(tempFile, PosixFilePermissions.fromString("rw-------"));
+        } catch (UnsupportedOperationException e) {
+            logger.warn("Couldn't restrict the permissions of the daemon file", e);
+        }
+        Files.write(tempFile, (port + " " + token + "\n").getBytes(UTF8));
+        Files.move(tempFile, daemonFile, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private void removeDaemonFile() {
+        try {
+            // a newer daemon may have replaced the file
+            if (Files.exists(daemonFile)
+                    && new String(Files.readAllBytes(daemonFile), UTF8).contains(token)) {
+                Files.delete(daemonFile);
+            }
+        } catch (IOException e) {
+            logger.warn("Failed to remove the daemon file", e);
+        }
+    }
+
+    private static String createToken() {
+        byte[] bytes = new byte[16];
+        new SecureRandom().nextBytes(bytes);
+        StringBuilder builder = new StringBuilder();
+        for (byte b : bytes) {
+            builder.append(String.format("%02x", b));
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,261 @@
+package fi.helsinki.cs.tmc.cli.core;
+
+import fi.helsinki.cs.tmc.cli.io.Io;
+
+import fi.helsinki.cs.tmc.core.domain.ProgressObserver;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Timings of the server operations of the current command.
+ *
+ * <p>Every tmc-core operation is timed with a {@link Timer}. The progress messages
+ * of the operation split it into phases, so for example the time used for zipping,
+ * uploading and waiting for the submission results are recorded separately.
+ * The metrics are printed with the --metrics and --metrics-json flags and appended
+ * to the metrics log if the metrics-log property is set.
+ */
+public class Metrics {
+
+    private static final Logger logger = LoggerFactory.getLogger(Metrics.class);
+
+    // LOG_FILE is stored in the config directory
+    public static final String LOG_FILE = "metrics.log";
+
+    // MAX_PHASES limits the phases of operations that report progress for every item
+    private static final int MAX_PHASES = 16;
+    private static final String OTHER_PHASE = "other";
+
+    private static final Map<String, Operation> operations = new LinkedHashMap<>();
+
+    /**
+     * Start a new measurement for the next command.
+     */
+    public static synchronized void reset() {
+        operations.clear();
+    }
+
+    /**
+     * Start timing an operation.
+     *
+     * @param operation name of the operation, such as "submit"
+     */
+    public static Timer start(String operation) {
+        return new Timer(operation);
+    }
+
+    public static synchronized boolean isEmpty() {
+        return operations.isEmpty();
+    }
+
+    private static synchronized void record(Timer timer, boolean success) {
+        Operation operation = operations.get(timer.name);
+        if (operation == null) {
+            operation = new Operation();
+            operations.put(timer.name, operation);
+        }
+        operation.count++;
+        if (!success) {
+            operation.failures++;
+        }
+        operation.totalNanos += timer.duration;
+        operation.maxNanos = Math.max(operation.maxNanos, timer.duration);
+        operation.items += timer.items;
+        for (Map.Entry<String, Long> phase : timer.phases.entrySet()) {
+            operation.phases.merge(phase.getKey(), phase.getValue(), Long::sum);
+        }
+    }
+
+    /**
+     * Print the metrics as a table.
+     */
+    public static synchronized void print(Io io) {
+        io.errorln("Metrics:");
+        io.errorln(String.format("  %-24s %5s %6s %9s %9s %7s",
+                "operation", "count", "failed", "total ms", "max ms", "items"));
+        for (Map.Entry<String, Operation> entry : operations.entrySet()) {
+            Operation operation = entry.getValue();
+            io.errorln(String.format("  %-24s %5d %6d %9d %9d %7d",
+                    entry.getKey(), operation.count, operation.failures,
+                    toMillis(operation.totalNanos), toMillis(operation.maxNanos),
+                    operation.items));
+            for (Map.Entry<String, Long> phase : operation.phases.entrySet()) {
+                io.errorln(String.format("    %-22s %22d",
+                        shorten(phase.getKey(), 22), toMillis(phase.getValue())));
+            }
+        }
+    }
+
+    /**
+     * Get the metrics of the command as a single line of JSON.
+     *
+     * @param command the command that was run
+     */
+    public static synchronized String toJson(String command) {
+        JsonObject root = new JsonObject();
+        root.addProperty("time", System.currentTimeMillis());
+        root.addProperty("command", command);
+        JsonArray array = new JsonArray();
+        for (Map.Entry<String, Operation> entry : operations.entrySet()) {
+            Operation operation = entry.getValue();
+            JsonObject json = new JsonObject();
+            json.addProperty("name", entry.getKey());
+            json.addProperty("count", operation.count);
+            json.addProperty("failures", operation.failures);
+            json.addProperty("totalMs", toMillis(operation.totalNanos));
+            json.addProperty("maxMs", toMillis(operation.maxNanos));
+            json.addProperty("items", operation.items);
+            JsonObject phases = new JsonObject();
+            for (Map.Entry<String, Long> phase : operation.phases.entrySet()) {
+                phases.addProperty(phase.getKey(), toMillis(phase.getValue()));
+            }
+            json.add("phases", phases);
+            array.add(json);
+        }
+        root.add("operations", array);
+        return root.toString();
+    }
+
+    /**
+     * Append the metrics of the command to the end of the log file.
+     * Every command is a single line of JSON, so the logs are easy to aggregate.
+     */
+    public static void appendToLog(Path file, String command) {
+        String line = toJson(command) + System.lineSeparator();
+        try {
+            Files.createDirectories(file.getParent());
+            Files.write(file, line.getBytes(StandardCharsets.UTF_8),
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            logger.warn("Failed to write the metrics log", e);
+        }
+    }
+
+    private static long toMillis(long nanos) {
+        return TimeUnit.NANOSECONDS.toMillis(nanos);
+    }
+
+    private static String shorten(String str, int length) {
+        return str.length() <= length ? str : str.substring(0, length - 3) + "...";
+    }
+
+    private static class Operation {
+        private int count;
+        private int failures;
+        private long totalNanos;
+        private long maxNanos;
+        private long items;
+        private final Map<String, Long> phases = new LinkedHashMap<>();
+    }
+
+    /**
+     * Measurement of a single operation.
+     */
+    public static class Timer {
+
+        private final String name;
+        private final long startTime;
+        private final Map<String, Long> phases;
+        private String phase;
+        private long phaseStart;
+        private long duration;
+        private long items;
+        private boolean stopped;
+
+        private Timer(String name) {
+            this.name = name;
+            this.startTime = System.nanoTime();
+            this.phases = new LinkedHashMap<>();
+        }
+
+        /**
+         * Get a progress observer that records the phases of the operation
+         * and passes the progress to the given observer.
+         */
+        public ProgressObserver observe(ProgressObserver delegate) {
+            ProgressObserver observer =
+                    delegate != null ? delegate : ProgressObserver.NULL_OBSERVER;
+            return new ProgressObserver() {
+                @Override
+                public void progress(long id, String message) {
+                    startPhase(message);
+                    observer.progress(id, message);
+                }
+
+                @Override
+                public void progress(long id, Double progress, String message) {
+                    startPhase(message);
+                    observer.progress(id, progress, message);
+                }
+
+                @Override
+                public void start(long id) {
+                    observer.start(id);
+                }
+
+                @Override
+                public void end(long id) {
+                    observer.end(id);
+                }
+            };
+        }
+
+        /**
+         * Add the number of the handled items, such as the downloaded exercises.
+         */
+        public void addItems(long count) {
+            items += count;
+        }
+
+        /**
+         * Stop the timer and record the operation.
+         *
+         * @param success false if the operation failed
+         */
+        public void stop(boolean success) {
+            synchronized (this) {
+                if (stopped) {
+                    return;
+                }
+                stopped = true;
+                long now = System.nanoTime();
+                endPhase(now);
+                duration = now - startTime;
+            }
+            record(this, success);
+        }
+
+        private synchronized void startPhase(String message) {
+            if (message == null || message.equals(phase) || stopped) {
+                return;
+            }
+            long now = System.nanoTime();
+            endPhase(now);
+            phase = message;
+            phaseStart = now;
+        }
+
+        private void endPhase(long now) {
+            if (phase == null) {
+                return;
+            }
+            String key = phase;
+            if (!phases.containsKey(key) && phases.size() >= MAX_PHASES) {
+                key = OTHER_PHASE;
+            }
+            phases.merge(key, now - phaseStart, Long::sum);
+        }
+    }
+}
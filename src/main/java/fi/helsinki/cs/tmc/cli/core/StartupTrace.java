@@ -0,0 +1,65 @@
+package fi.helsinki.cs.tmc.cli.core;
+
+import fi.helsinki.cs.tmc.cli.io.Io;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Timings of the startup phases of the program.
+ * The phases are always recorded and printed with the --trace-startup flag.
+ */
+public class StartupTrace {
+
+    private static final List<String> phases = new ArrayList<>();
+    private static final List<Long> durations = new ArrayList<>();
+    private static long previousMark = System.nanoTime();
+
+    /**
+     * Start the trace from the main method.
+     * The time before this is used by the JVM and the class loading.
+     */
+    public static synchronized void start() {
+        reset();
+        long uptime = ManagementFactory.getRuntimeMXBean().getUptime();
+        phases.add("jvm");
+        durations.add(TimeUnit.MILLISECONDS.toNanos(uptime));
+    }
+
+    /**
+     * Start a new trace without the JVM phase.
+     */
+    public static synchronized void reset() {
+        phases.clear();
+        durations.clear();
+        previousMark = System.nanoTime();
+    }
+
+    /**
+     * Record the time used after the previous phase.
+     *
+     * @param phase name of the phase that just ended
+     */
+    public static synchronized void mark(String phase) {
+        long now = System.nanoTime();
+        phases.add(phase);
+        durations.add(now - previousMark);
+        previousMark = now;
+    }
+
+    public static synchronized void print(Io io) {
+        long total = 0;
+        io.errorln("Startup trace:");
+        for (int i = 0; i < phases.size(); i++) {
+            total += durations.get(i);
+            io.errorln(formatLine(phases.get(i), durations.get(i)));
+        }
+        io.errorln(formatLine("total", total));
+    }
+
+    private static String formatLine(String phase, long nanos) {
+        return String.format("  %-14s %6d ms", phase, TimeUnit.NANOSECONDS.toMillis(nanos));
+    }
+}
@@ -0,0 +1,138 @@
+package fi.helsinki.cs.tmc.cli.io;
+
+import java.io.InputStream;
+import java.io.PrintStream;
+
+/**
+ * Terminal io that collects the output into a buffer and writes it in large chunks.
+ *
+ * <p>The standard output flushes on every print that contains a new line, so printing
+ * hundreds of test results one line at a time is slowed down by the system calls.
+ * An interactive terminal is flushed after every line and carriage return, so the
+ * progress bars are still drawn immediately. When the output is piped, it's flushed
+ * only when the buffer is full. The buffer is always flushed before reading input,
+ * before printing errors and by the application when the command has finished, or by
+ * the {@link ShutdownHandler} if the program exits in the middle of the command.
+ */
+public class BufferedTerminalIo extends TerminalIo {
+
+    public enum FlushPolicy {
+        /** Flush after every new line or carriage return. */
+        LINE,
+        /** Flush only when the buffer is full. */
+        BLOCK
+    }
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private final PrintStream out;
+    private final FlushPolicy policy;
+    private final StringBuilder buffer;
+
+    /**
+     * Create an io for the standard streams.
+     * The output is line buffered if it's written into an interactive terminal.
+     */
+    public BufferedTerminalIo(InputStream in) {
+        this(in, null,
+                EnvironmentUtil.isInteractiveOutput() ? FlushPolicy.LINE : FlushPolicy.BLOCK);
+    }
+
+    /**
+     * Create an io that writes into the given stream.
+     *
+     * @param out the output stream or null for the current standard output
+     */
+    public BufferedTerminalIo(InputStream in, PrintStream out, FlushPolicy policy) {
+        super(in);
+        this.out = out;
+        this.policy = policy;
+        this.buffer = new StringBuilder(BUFFER_SIZE);
+    }
+
+    public FlushPolicy getFlushPolicy() {
+        return policy;
+    }
+
+    @Override
+    public synchronized void print(String str) {
+        String value = String.valueOf(str);
+        bufferOutput(value, 0, value.length());
+    }
+
+    @Override
+    public synchronized void println(String str) {
+        // append the parts separately instead of concatenating them
+        buffer.append(str);
+        bufferOutput("\n", 0, 1);
+    }
+
+    @Override
+    public synchronized void println() {
+        bufferOutput("\n", 0, 1);
+    }
+
+    @Override
+    public synchronized void error(String str) {
+        // keep the order of the output and the errors
+        flush();
+        super.error(str);
+    }
+
+    @Override
+    public synchronized void write(char[] cbuf, int offset, int len) {
+        buffer.append(cbuf, offset, len);
+        afterAppend(cbuf, offset, len);
+    }
+
+    @Override
+    public synchronized void write(String str, int offset, int len) {
+        bufferOutput(str, offset, len);
+    }
+
+    @Override
+    public synchronized void flush() {
+        if (buffer.length() == 0) {
+            return;
+        }
+        PrintStream stream = out != null ? out : System.out;
+        stream.print(buffer);
+        stream.flush();
+        buffer.setLength(0);
+    }
+
+    private void bufferOutput(CharSequence str, int start, int len) {
+        buffer.append(str, start, start + len);
+        if (buffer.length() >= BUFFER_SIZE) {
+            flush();
+        } else if (policy == FlushPolicy.LINE && endsLine(str, start, len)) {
+            flush();
+        }
+    }
+
+    private void afterAppend(char[] cbuf, int offset, int len) {
+        if (buffer.length() >= BUFFER_SIZE) {
+            flush();
+            return;
+        }
+        if (policy != FlushPolicy.LINE) {
+            return;
+        }
+        for (int i = offset; i < offset + len; i++) {
+            if (cbuf[i] == '\n' || cbuf[i] == '\r') {
+                flush();
+                return;
+            }
+        }
+    }
+
+    private static boolean endsLine(CharSequence str, int start, int len) {
+        for (int i = start; i < start + len; i++) {
+            char ch = str.charAt(i);
+            if (ch == '\n' || ch == '\r') {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -2,19 +2,58 @@ package fi.helsinki.cs.tmc.cli.io;
 
 import fi.helsinki.cs.tmc.core.domain.ProgressObserver;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Shows the progress of tmc-core operations in the terminal.
+ *
+ * <p>tmc-core may report the progress thousands of times during a download, so the
+ * progress is redrawn at most {@link #REDRAWS_PER_SECOND} times per second and only
+ * when the visible text changes. The operations are told apart by their ids. When
+ * several operations are running at the same time, such as the parallel downloads,
+ * each of them gets its own bar.
+ */
 public class CliProgressObserver extends ProgressObserver {
     private static final char PIPCHAR = '█';
     private static final char EMPTYCHAR = '░';
     private static final char BARLEFT = '[';
     private static final char BARRIGHT = ']';
 
-    private Io io;
-    private int pips;
-    private int maxline;
-    private Color color1;
-    private Color color2;
+    static final int REDRAWS_PER_SECOND = 10;
+
+    private final Io io;
+    private final int maxline;
+    private final int pips;
+    private final Color color1;
+    private final Color color2;
+    private final LongSupplier clock;
+    private final long redrawInterval;
+    // the bars of several operations are drawn on separate lines with the ANSI escapes,
+    // which would only garble the output when it goes into a file or a pipe
+    private final boolean multiline;
+
+    // the bars are copied from these instead of building them pip by pip
+    private final String donePips;
+    private final String emptyPips;
+    private final String blanks;
+    private final StringBuilder line;
+
+    private final Map<Long, Operation> operations;
+    private boolean drawn;
+    private long lastRedraw;
     private String lastMessage;
-    private Boolean hasProgressBar;
+    private int lastPips;
+    private int lastPercent;
+    private boolean hasProgressBar;
+    // the lines of the multiple bars, the block isn't used when there is only one operation
+    private int blockLines;
+    private List<String> blockText;
 
     public CliProgressObserver() {
         this(new TerminalIo(System.in));
@@ -25,78 +64,217 @@ public class CliProgressObserver extends ProgressObserver {
     }
 
     public CliProgressObserver(Io io, Color color1, Color color2) {
+        this(io, color1, color2, System::nanoTime);
+    }
+
+    CliProgressObserver(Io io, Color color1, Color color2, LongSupplier clock) {
         this.hasProgressBar = false;
         this.io = io;
         this.maxline = EnvironmentUtil.getTerminalWidth();
         this.pips = this.maxline - 6;
         this.color1 = color1;
         this.color2 = color2;
+        this.clock = clock;
+        this.redrawInterval = TimeUnit.SECONDS.toNanos(1) / REDRAWS_PER_SECOND;
+        this.multiline = !EnvironmentUtil.isWindows() && EnvironmentUtil.isInteractiveOutput();
+        this.donePips = repeat(PIPCHAR, pips);
+        this.emptyPips = repeat(EMPTYCHAR, pips);
+        this.blanks = repeat(' ', maxline);
+        this.line = new StringBuilder(maxline * 2);
+        this.operations = new TreeMap<>();
+        this.lastPips = -1;
+        this.lastPercent = -1;
     }
 
     @Override
-    public void progress(long id, String message) {
-        if (lastMessage == null || !lastMessage.equals(message)) {
-            printMessage(message);
-            lastMessage = message;
-        }
+    public synchronized void progress(long id, String message) {
+        operation(id).message = message;
+        redraw(false);
     }
 
     @Override
-    public void progress(long id, Double progress, String message) {
+    public synchronized void progress(long id, Double progress, String message) {
         this.hasProgressBar = true;
-        if (lastMessage == null || !lastMessage.equals(message)) {
-            printMessage(message);
-            lastMessage = message;
-            io.println();
-        }
-        this.io.print("\r" + progressBar(progress, this.maxline, this.color1, this.color2));
-    }
-
-    private void printMessage(String message) {
-        message = shorten(message, maxline);
-        io.print("\r" + message);
-        flush(maxline - message.length());
+        Operation operation = operation(id);
+        operation.message = message;
+        operation.progress = progress;
+        // the finished state is always shown, even if it's reported right after the previous
+        redraw(progress != null && progress >= 1.0);
     }
 
     @Override
     public void start(long id) {}
 
     @Override
-    public void end(long id) {
-        // Most likely not going to be used
-        if (this.hasProgressBar) {
-            this.io.print("\r");
-            flush(this.maxline);
-            this.io.print("\r");
-            //            this.io.println("\r" + this.percentage(1.0)
-            //                    + this.progressBar(1.0, this.pips, this.color1, this.color2));
+    public synchronized void end(long id) {
+        if (blockLines == 0 && operations.size() == 1 && operations.containsKey(id)) {
+            // show the last message that may have been skipped
+            drawSingle(operations.get(id));
+        }
+        operations.remove(id);
+        if (!operations.isEmpty()) {
+            redraw(false);
+            return;
+        }
+        if (blockLines > 0) {
+            clearBlock();
+        } else if (this.hasProgressBar) {
+            line.setLength(0);
+            line.append('\r').append(blanks).append('\r');
+            io.print(line.toString());
         } else {
             this.io.println();
         }
+        lastPips = -1;
+        lastPercent = -1;
     }
 
-    private String shorten(String str, int length) {
-        if (str.length() <= length) {
-            return str;
+    private Operation operation(long id) {
+        Operation operation = operations.get(id);
+        if (operation == null) {
+            operation = new Operation();
+            operations.put(id, operation);
+        }
+        return operation;
+    }
+
+    private void redraw(boolean force) {
+        long now = clock.getAsLong();
+        if (!force && drawn && now - lastRedraw < redrawInterval) {
+            // the skipped state is drawn by the next redraw
+            return;
+        }
+        drawn = true;
+        lastRedraw = now;
+        if (operations.isEmpty()) {
+            return;
+        }
+        if (multiline && (blockLines > 0 || operations.size() > 1)) {
+            drawBlock();
         } else {
-            return str.substring(0, length - 3) + "...";
+            drawSingle(operations.values().iterator().next());
         }
     }
 
-    private void flush(int length) {
-        // "Flush" the rest of the line if the next message is shorter than the last
-        if (length == 0) {
+    /**
+     * Draw the message and the bar of the only operation. The message is printed on its
+     * own line when it changes and the bar is redrawn under it.
+     */
+    private void drawSingle(Operation operation) {
+        String message = shorten(operation.message, maxline);
+        boolean messageChanged = !message.equals(lastMessage);
+        line.setLength(0);
+        if (messageChanged) {
+            line.append('\r').append(message);
+            pad(maxline - message.length());
+            if (operation.progress != null) {
+                line.append('\n');
+            }
+            lastMessage = message;
+        }
+        if (operation.progress != null) {
+            double progress = operation.progress;
+            int pipsDone = pipsDone(progress, pips);
+            int percent = percent(progress);
+            if (messageChanged || pipsDone != lastPips || percent != lastPercent) {
+                line.append('\r');
+                appendBar(line, progress, pips, color1, color2, donePips, emptyPips);
+                lastPips = pipsDone;
+                lastPercent = percent;
+            }
+        }
+        if (line.length() > 0) {
+            io.print(line.toString());
+        }
+    }
+
+    /**
+     * Draw a line for each operation. The cursor is moved back to the first line of
+     * the block before drawing, so the lines are overwritten instead of scrolling.
+     */
+    private void drawBlock() {
+        // one column is left empty so that the terminal never wraps the lines
+        int width = maxline - 1;
+        int barPips = Math.max(1, maxline / 2 - 6);
+        List<String> lines = new ArrayList<>(operations.size());
+        for (Operation operation : operations.values()) {
+            line.setLength(0);
+            int messageWidth = width;
+            if (operation.progress != null) {
+                appendBar(line, operation.progress, barPips, color1, color2, donePips, emptyPips);
+                line.append(' ');
+                messageWidth -= barPips + 7;
+            }
+            if (messageWidth > 3) {
+                String message = shorten(operation.message, messageWidth);
+                line.append(message);
+                messageWidth -= message.length();
+            }
+            // the colors of the bar don't take any space, so the padding is counted here
+            pad(messageWidth);
+            lines.add(line.toString());
+        }
+        if (lines.equals(blockText)) {
             return;
         }
-        StringBuilder sb = new StringBuilder();
-        for (int i = length; i > 0; i--) {
-            sb.append(' ');
+
+        line.setLength(0);
+        moveUp(blockLines);
+        int count = Math.max(lines.size(), blockLines);
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                line.append('\n');
+            }
+            line.append('\r');
+            if (i < lines.size()) {
+                line.append(lines.get(i));
+            } else {
+                pad(width);
+            }
         }
-        io.print(sb);
+        blockLines = count;
+        blockText = lines;
+        io.print(line.toString());
     }
 
-    private static String progressBar(double progress, int length, Color color1, Color color2) {
-        return progressBar(progress, length, color1, color2, BARLEFT, BARRIGHT, PIPCHAR, EMPTYCHAR);
+    private void clearBlock() {
+        line.setLength(0);
+        moveUp(blockLines);
+        for (int i = 0; i < blockLines; i++) {
+            if (i > 0) {
+                line.append('\n');
+            }
+            line.append('\r').append(blanks, 0, maxline - 1);
+        }
+        moveUp(blockLines);
+        line.append('\r');
+        io.print(line.toString());
+        blockLines = 0;
+        blockText = null;
+    }
+
+    private void moveUp(int lines) {
+        if (lines > 1) {
+            line.append("\u001b[").append(lines - 1).append('A');
+        }
+    }
+
+    private void pad(int length) {
+        // "Flush" the rest of the line if the next message is shorter than the last
+        if (length > 0) {
+            line.append(blanks, 0, Math.min(length, blanks.length()));
+        }
+    }
+
+    private String shorten(String str, int length) {
+        if (str == null) {
+            return "";
+        }
+        if (str.length() <= length) {
+            return str;
+        } else {
+            return str.substring(0, length - 3) + "...";
+        }
     }
 
     private static String progressBar(
@@ -108,33 +286,65 @@ public class CliProgressObserver extends ProgressObserver {
             char barRight,
             char donePip,
             char notDonePip) {
-        int pipsDone = (int) ((length - 6) * progress);
-        StringBuilder sbLeft = new StringBuilder(pipsDone);
-        StringBuilder sbRight = new StringBuilder((length - 6) - pipsDone);
-        for (int i = 0; i < pipsDone; i++) {
-            sbLeft.append(donePip);
+        int width = Math.max(0, length - 6);
+        StringBuilder sb = new StringBuilder(length + 16);
+        appendPercentage(sb, progress);
+        sb.append(barLeft);
+        appendPips(sb, repeat(donePip, width), pipsDone(progress, width), color1);
+        appendPips(sb, repeat(notDonePip, width), width - pipsDone(progress, width), color2);
+        sb.append(barRight);
+        return sb.toString();
+    }
+
+    private static void appendBar(StringBuilder sb, double progress, int width,
+            Color color1, Color color2, String donePips, String emptyPips) {
+        int pipsDone = pipsDone(progress, width);
+        appendPercentage(sb, progress);
+        sb.append(BARLEFT);
+        appendPips(sb, donePips, pipsDone, color1);
+        appendPips(sb, emptyPips, width - pipsDone, color2);
+        sb.append(BARRIGHT);
+    }
+
+    private static void appendPips(StringBuilder sb, String pips, int count, Color color) {
+        boolean colored = !EnvironmentUtil.isWindows() && color != Color.NONE;
+        if (colored) {
+            sb.append(color);
         }
-        for (int i = 0; i < (length - 6) - pipsDone; i++) {
-            sbRight.append(notDonePip);
+        sb.append(pips, 0, count);
+        if (colored) {
+            sb.append(Color.RESET);
         }
-        return percentage(progress)
-                + barLeft
-                + ColorUtil.colorString(sbLeft.toString(), color1)
-                + ColorUtil.colorString(sbRight.toString(), color2)
-                + barRight;
+    }
+
+    private static int pipsDone(double progress, int width) {
+        return Math.max(0, Math.min(width, (int) (width * progress)));
+    }
+
+    private static int percent(double progress) {
+        return (int) (progress * 100);
     }
 
     static String percentage(double progress) {
-        int percent = (int) (progress * 100);
-        String percentage;
+        StringBuilder sb = new StringBuilder(4);
+        appendPercentage(sb, progress);
+        return sb.toString();
+    }
+
+    private static void appendPercentage(StringBuilder sb, double progress) {
+        int percent = percent(progress);
         if (percent < 10) {
-            percentage = "  ";
+            sb.append("  ");
         } else if (percent < 100) {
-            percentage = " ";
-        } else {
-            percentage = "";
+            sb.append(' ');
         }
-        return percentage + percent + "%";
+        sb.append(percent).append('%');
+    }
+
+    private static String repeat(char ch, int count) {
+        char[] chars = new char[Math.max(0, count)];
+        Arrays.fill(chars, ch);
+        return new String(chars);
     }
 
     public static String getPassedTestsBar(int passed, int total, Color color1, Color color2) {
@@ -148,4 +358,9 @@ public class CliProgressObserver extends ProgressObserver {
                 '█',
                 '░');
     }
+
+    private static class Operation {
+        private String message;
+        private Double progress;
+    }
 }
@@ -0,0 +1,65 @@
+package fi.helsinki.cs.tmc.cli.io;
+
+import fi.helsinki.cs.tmc.cli.backend.CourseInfo;
+import fi.helsinki.cs.tmc.cli.backend.CourseInfoIo;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * The course directory of the current command and its course config file.
+ *
+ * <p>The course directory is searched only once and the config file is parsed
+ * only on the first use, so that every part of the program shares the same
+ * course info object during the command.
+ */
+public class CourseWorkspace {
+
+    private final Path courseDirectory;
+    private CourseInfo courseInfo;
+    private boolean loaded;
+
+    private CourseWorkspace(Path courseDirectory) {
+        this.courseDirectory = courseDirectory;
+    }
+
+    /**
+     * Find the course directory containing the directory.
+     *
+     * @param dir directory inside the course or the course directory itself
+     * @return the workspace or null if the directory isn't inside any course
+     */
+    public static CourseWorkspace find(Path dir) {
+        while (dir != null && Files.exists(dir)) {
+            if (Files.exists(dir.resolve(CourseInfoIo.COURSE_CONFIG))) {
+                return new CourseWorkspace(dir);
+            }
+            dir = dir.getParent();
+        }
+        return null;
+    }
+
+    /**
+     * Returns the root directory of the course containing the config file.
+     */
+    public Path getCourseDirectory() {
+        return courseDirectory;
+    }
+
+    public Path getConfigFile() {
+        return courseDirectory.resolve(CourseInfoIo.COURSE_CONFIG);
+    }
+
+    /**
+     * Lazy load the course info from the config file.
+     *
+     * @return the course info or null if it couldn't be loaded
+     */
+    public CourseInfo getCourseInfo() {
+        if (!loaded) {
+            courseInfo = CourseInfoIo.load(getConfigFile());
+            loaded = true;
+        }
+        return courseInfo;
+    }
+}
@@ -11,13 +11,18 @@ import java.util.Properties;
 public class EnvironmentUtil {
     private static final Logger logger = LoggerFactory.getLogger(EnvironmentUtil.class);
 
+    // terminalWidth overrides the COLUMNS variable when the daemon runs the command.
+    private static String terminalWidth;
+    // outputTty overrides the TMC_OUTPUT_TTY variable in the same way.
+    private static String outputTty;
+
     public static boolean isWindows() {
         String os = System.getProperty("os.name").toLowerCase();
         return os.contains("windows");
     }
 
     public static int getTerminalWidth() {
-        String colEnv = System.getenv("COLUMNS");
+        String colEnv = terminalWidth != null ? terminalWidth : System.getenv("COLUMNS");
         if (colEnv != null && !colEnv.equals("")) {
             // Determine the terminal width - this won't work on Windows
             // Let's just hope our Windows users won't narrow their command prompt
@@ -29,6 +34,37 @@ public class EnvironmentUtil {
         }
     }
 
+    /**
+     * Use the width of another terminal instead of the COLUMNS variable.
+     *
+     * @param columns the COLUMNS value of the client or null to use the environment
+     */
+    public static void setTerminalWidth(String columns) {
+        terminalWidth = columns;
+    }
+
+    /**
+     * Use the output terminal of another process instead of the TMC_OUTPUT_TTY variable.
+     *
+     * @param tty the TMC_OUTPUT_TTY value of the client or null to use the environment
+     */
+    public static void setInteractiveOutput(String tty) {
+        outputTty = tty;
+    }
+
+    /**
+     * Check whether the standard output is an interactive terminal.
+     * The tmc script tells it in the TMC_OUTPUT_TTY variable, because System.console()
+     * is null also when only the input is redirected.
+     */
+    public static boolean isInteractiveOutput() {
+        String tty = outputTty != null ? outputTty : System.getenv("TMC_OUTPUT_TTY");
+        if (tty != null && !tty.isEmpty()) {
+            return tty.equals("1");
+        }
+        return System.console() != null;
+    }
+
     public static String getVersion() {
         String path = "/maven.prop";
         InputStream stream = EnvironmentUtil.class.getResourceAsStream(path);
@@ -2,7 +2,6 @@ package fi.helsinki.cs.tmc.cli.io;
 
 import java.io.IOException;
 import java.io.Writer;
-import java.util.Arrays;
 
 public abstract class Io extends Writer {
 
@@ -27,7 +26,7 @@ public abstract class Io extends Writer {
     }
 
     public void errorln(String str) {
-        print(str + "\n");
+        error(str + "\n");
     }
 
     public abstract String readLine(String prompt);
@@ -38,7 +37,13 @@ public abstract class Io extends Writer {
 
     @Override
     public void write(char[] cbuf, int offset, int len) throws IOException {
-        print(new String(Arrays.copyOfRange(cbuf, offset, offset + len)));
+        print(new String(cbuf, offset, len));
+    }
+
+    @Override
+    public void write(String str, int offset, int len) throws IOException {
+        // Writer copies the string into a char array by default
+        print(offset == 0 && len == str.length() ? str : str.substring(offset, offset + len));
     }
 
     @Override
@@ -1,5 +1,7 @@
 package fi.helsinki.cs.tmc.cli.io;
 
+import java.io.IOException;
+
 public class ShutdownHandler extends Thread {
 
     private final Io io;
@@ -16,6 +18,11 @@ public class ShutdownHandler extends Thread {
         // Reset terminal color back to default in case we exit in the middle of
         // colored printing. Otherwise user is left with a colored terminal.
         io.println(Color.RESET.toString());
+        try {
+            io.flush();
+        } catch (IOException e) {
+            // the output is already closed
+        }
     }
 
     public void enable() {
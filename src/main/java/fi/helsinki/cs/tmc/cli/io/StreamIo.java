@@ -0,0 +1,54 @@
+package fi.helsinki.cs.tmc.cli.io;
+
+import java.io.InputStream;
+import java.io.PrintStream;
+
+/**
+ * Terminal io that uses the given streams instead of the standard streams.
+ * This is used by the daemon for talking with the terminal of the client.
+ */
+public class StreamIo extends TerminalIo {
+
+    private final PrintStream out;
+    private final PrintStream err;
+
+    public StreamIo(InputStream in, PrintStream out) {
+        this(in, out, out);
+    }
+
+    public StreamIo(InputStream in, PrintStream out, PrintStream err) {
+        super(in);
+        this.out = out;
+        this.err = err;
+    }
+
+    @Override
+    public void print(String str) {
+        out.print(str);
+        out.flush();
+    }
+
+    @Override
+    public void error(String str) {
+        if (err == out) {
+            print(str);
+            return;
+        }
+        err.print(str);
+        err.flush();
+    }
+
+    @Override
+    public void flush() {
+        out.flush();
+        err.flush();
+    }
+
+    @Override
+    public String readPassword(String prompt) {
+        // the console of the daemon process isn't the terminal of the user
+        println("Unable to read password securely. Reading password in cleartext.");
+        println("Press Ctrl+C to abort");
+        return readLine(prompt);
+    }
+}
@@ -28,6 +28,7 @@ public class TerminalIo extends Io {
     @Override
     public String readLine(String prompt) {
         print(prompt);
+        flush();
 
         try {
             return scanner.nextLine();
@@ -39,6 +40,7 @@ public class TerminalIo extends Io {
 
     @Override
     public String readPassword(String prompt) {
+        flush();
         Console console = System.console();
         if (console != null) {
             try {
@@ -75,4 +77,9 @@ public class TerminalIo extends Io {
     public void error(String str) {
         System.err.print(str);
     }
+
+    @Override
+    public void flush() {
+        System.out.flush();
+    }
 }
@@ -1,22 +1,30 @@
 package fi.helsinki.cs.tmc.cli.io;
 
 import fi.helsinki.cs.tmc.cli.backend.CourseInfo;
-import fi.helsinki.cs.tmc.cli.backend.CourseInfoIo;
 import fi.helsinki.cs.tmc.core.domain.Exercise;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
 import java.io.File;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 public class WorkDir {
 
-    // Course root directory. null if n/a.
-    private Path courseDirectory;
-    // Course config file. null if n/a.
-    private Path configFile;
+    private static final Logger logger = LoggerFactory.getLogger(WorkDir.class);
+
+    // Course of the first added directory. null if n/a.
+    private CourseWorkspace pathWorkspace;
+    // Course of the working directory, cached when found.
+    private CourseWorkspace workdirWorkspace;
     // Store all paths as absolute paths.
     private List<Path> directories;
     // ONLY OVERRIDE workdir FOR TESTS, IT IS FOR MOCKING THE CURRENT DIRECTORY
@@ -36,11 +44,35 @@ public class WorkDir {
      * Returns the root directory of the course containing the config file.
      */
     public Path getCourseDirectory() {
-        if (this.courseDirectory != null) {
-            return this.courseDirectory;
-        } else {
-            return findCourseDir(this.workdir);
+        CourseWorkspace workspace = getWorkspace();
+        return workspace != null ? workspace.getCourseDirectory() : null;
+    }
+
+    /**
+     * Get the course of the added directories or the working directory.
+     * The course is searched only once and shared by the whole command.
+     *
+     * @return the course workspace or null if not in a course directory
+     */
+    public CourseWorkspace getWorkspace() {
+        if (this.pathWorkspace != null) {
+            return this.pathWorkspace;
+        }
+        if (this.workdirWorkspace == null) {
+            this.workdirWorkspace = CourseWorkspace.find(this.workdir);
         }
+        return this.workdirWorkspace;
+    }
+
+    /**
+     * Get the course info of the course directory.
+     * The config file is parsed only once.
+     *
+     * @return the course info or null if not in a course directory
+     */
+    public CourseInfo getCourseInfo() {
+        CourseWorkspace workspace = getWorkspace();
+        return workspace != null ? workspace.getCourseInfo() : null;
     }
 
     public Path getTmcDirectory() {
@@ -56,15 +88,8 @@ public class WorkDir {
      * return the appropriate course config file (.tmc.json)
      */
     public Path getConfigFile() {
-        if (this.configFile != null) {
-            return this.configFile;
-        } else {
-            Path path = findCourseDir(this.workdir);
-            if (path == null) {
-                return null;
-            }
-            return path.resolve(CourseInfoIo.COURSE_CONFIG);
-        }
+        CourseWorkspace workspace = getWorkspace();
+        return workspace != null ? workspace.getConfigFile() : null;
     }
 
     public List<Exercise> getExercises() {
@@ -84,8 +109,7 @@ public class WorkDir {
         if (this.directories.isEmpty()) {
             addPath(workdir);
         }
-        /*TODO somehow use the ctx.getCourseInfo */
-        CourseInfo courseinfo = CourseInfoIo.load(getConfigFile());
+        CourseInfo courseinfo = getCourseInfo();
         if (courseinfo == null) {
             return new ArrayList<>();
         }
@@ -94,24 +118,23 @@ public class WorkDir {
             return new ArrayList<>();
         }
 
-        List<Exercise> allExercises = courseinfo.getExercises();
         List<Exercise> exercises = new ArrayList<>();
-        List<String> locallyTested = courseinfo.getLocalCompletedExercises();
+        Set<String> added = new HashSet<>();
+        // the course directory is listed only once instead of checking every exercise
+        Set<String> existing = exists ? listCourseDirectory() : null;
 
         for (Path dir : directories) {
             // convert path to a string relative to the course dir
             String exDir = getCourseDirectory().relativize(dir).toString();
             exDir = exDir.replace(File.separator, "-");
 
-            for (Exercise exercise : allExercises) {
-                if (exercises.contains(exercise)) {
+            for (Exercise exercise : courseinfo.getExercisesMatchingPrefix(exDir)) {
+                if (added.contains(exercise.getName())) {
                     continue;
                 }
-                if ((exercise.getName().startsWith(exDir)
-                        || exDir.startsWith(exercise.getName()))) {
-                    if (filterExercise(exercise, locallyTested, exists, onlyTested)) {
-                        exercises.add(exercise);
-                    }
+                if (filterExercise(exercise, courseinfo, existing, onlyTested)) {
+                    exercises.add(exercise);
+                    added.add(exercise.getName());
                 }
             }
         }
@@ -121,23 +144,46 @@ public class WorkDir {
 
     private boolean filterExercise(
             Exercise exercise,
-            List<String> tested,
-            boolean exists,
+            CourseInfo courseinfo,
+            Set<String> existing,
             boolean onlyTested) {
-        if (onlyTested && !tested.contains(exercise.getName())) {
+        if (onlyTested && !courseinfo.isLocallyCompleted(exercise.getName())) {
             return false;
         }
-        if (exists && !Files.exists(getCourseDirectory().resolve(exercise.getName()))) {
+        if (existing != null && !exerciseExists(exercise.getName(), existing)) {
             return false;
         }
         return true;
     }
 
+    private boolean exerciseExists(String name, Set<String> existing) {
+        if (existing.contains(name)) {
+            return true;
+        }
+        if (name.contains("/") || name.contains(File.separator)) {
+            return Files.exists(getCourseDirectory().resolve(name));
+        }
+        return false;
+    }
+
+    private Set<String> listCourseDirectory() {
+        Set<String> names = new HashSet<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(getCourseDirectory())) {
+            for (Path file : files) {
+                names.add(file.getFileName().toString());
+            }
+        } catch (IOException e) {
+            logger.warn("Failed to list the course directory", e);
+        }
+        return names;
+    }
+
     /**
      * THIS IS ONLY FOR TESTS. DO NOT USE THIS OUTSIDE OF TESTS.
      */
     public void setWorkdir(Path path) {
         this.workdir = path;
+        this.workdirWorkspace = null;
     }
 
     /**
@@ -162,17 +208,14 @@ public class WorkDir {
         path = makeAbsolute(path);
         if (this.directories.isEmpty()) {
             this.directories.add(path);
-            this.courseDirectory = findCourseDir(path);
-            if (this.courseDirectory != null) {
-                this.configFile = this.courseDirectory.resolve(CourseInfoIo.COURSE_CONFIG);
-                return true;
-            }
-            return false;
+            this.pathWorkspace = CourseWorkspace.find(path);
+            return this.pathWorkspace != null;
         }
         if (!this.directories.contains(path)) {
             this.directories.add(path);
         }
-        return path.startsWith(this.courseDirectory);
+        return this.pathWorkspace != null
+                && path.startsWith(this.pathWorkspace.getCourseDirectory());
     }
 
     public boolean addPath(String path) {
@@ -183,16 +226,6 @@ public class WorkDir {
         return this.directories.size();
     }
 
-    private Path findCourseDir(Path dir) {
-        while (dir != null && Files.exists(dir)) {
-            if (isCourseDirectory(dir)) {
-                return dir;
-            }
-            dir = dir.getParent();
-        }
-        return null;
-    }
-
     private Path makeAbsolute(Path path) {
         if (path.isAbsolute()) {
             return path;
@@ -200,8 +233,4 @@ public class WorkDir {
             return workdir.resolve(path);
         }
     }
-
-    private boolean isCourseDirectory(Path dir) {
-        return Files.exists(dir.resolve(CourseInfoIo.COURSE_CONFIG));
-    }
 }
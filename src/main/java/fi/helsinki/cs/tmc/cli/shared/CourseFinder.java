@@ -9,8 +9,19 @@ import fi.helsinki.cs.tmc.cli.io.Io;
 
 import fi.helsinki.cs.tmc.core.domain.Course;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 /**
  * This class is used for searching courses from tmc servers.
@@ -18,12 +29,23 @@ import java.util.Map;
  */
 public class CourseFinder {
 
+    private static final Logger logger = LoggerFactory.getLogger(CourseFinder.class);
+
+    // SERVER_TIMEOUT is the time in seconds that is waited for the search of a single account.
+    private static final long SERVER_TIMEOUT = 30;
+
     private final CliContext ctx;
+    private final long timeout;
     private Course course;
     private Account account;
 
     public CourseFinder(CliContext ctx) {
+        this(ctx, TimeUnit.SECONDS.toMillis(SERVER_TIMEOUT));
+    }
+
+    CourseFinder(CliContext ctx, long timeoutMillis) {
         this.ctx = ctx;
+        this.timeout = timeoutMillis;
     }
 
     public Course getCourse() {
@@ -48,12 +70,15 @@ public class CourseFinder {
             return false;
         }
 
-        for (Account settings : accountsList) {
+        if (accountsList.getAccountCount() == 1) {
+            Account settings = accountsList.getAccount();
             ctx.useAccount(settings);
             Course found = TmcUtil.findCourse(ctx, courseName);
             if (found != null) {
                 matches.put(settings, found);
             }
+        } else {
+            searchFromAllAccounts(accountsList, courseName, matches);
         }
 
         if (matches.isEmpty()) {
@@ -68,6 +93,62 @@ public class CourseFinder {
         }
     }
 
+    /**
+     * Search the course from every account, one account at a time. Each search runs
+     * in a worker thread with a timeout of its own, so a server that doesn't respond
+     * costs only its own timeout and the rest of the accounts are still searched.
+     * The searches use account contexts, so an abandoned search keeps the settings of
+     * its own account. The matches are added in the order of the account list.
+     */
+    private void searchFromAllAccounts(
+            AccountList accountsList, String courseName, Map<Account, Course> matches) {
+        List<Account> accounts = new ArrayList<>();
+        for (Account settings : accountsList) {
+            if (settings.getPassword().isPresent()) {
+                // the old accounts are migrated interactively before the search
+                ctx.useAccount(settings);
+            }
+            accounts.add(settings);
+        }
+
+        ExecutorService executor = Executors.newCachedThreadPool(runnable -> {
+            // a server that doesn't respond must not keep the program running
+            Thread thread = new Thread(runnable, "tmc-course-search");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            for (Account settings : accounts) {
+                CliContext accountContext = ctx.createAccountContext(settings);
+                Course found = waitForCourse(settings,
+                        executor.submit(() -> TmcUtil.findCourse(accountContext, courseName)));
+                if (found != null) {
+                    matches.put(settings, found);
+                }
+            }
+        } finally {
+            // a hung request can't be interrupted, its thread is left to finish alone
+            executor.shutdown();
+        }
+    }
+
+    private Course waitForCourse(Account settings, Future<Course> future) {
+        try {
+            return future.get(timeout, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            logger.warn("Course search timed out on " + settings.getServerAddress(), e);
+            ctx.getIo().errorln("The server " + settings.getServerAddress()
+                    + " didn't respond in time.");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.warn("Interrupted the course search on " + settings.getServerAddress(), e);
+        } catch (ExecutionException e) {
+            logger.warn("Failed to search the course on " + settings.getServerAddress(), e);
+        }
+        future.cancel(true);
+        return null;
+    }
+
     private boolean handleSingleMatchingCourses(Map<Account, Course> matches) {
         Map.Entry<Account, Course> firstEntry;
         firstEntry = matches.entrySet().iterator().next();
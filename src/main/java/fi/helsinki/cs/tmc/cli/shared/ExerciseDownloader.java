@@ -0,0 +1,402 @@
+package fi.helsinki.cs.tmc.cli.shared;
+
+import fi.helsinki.cs.tmc.cli.backend.TemplateStore;
+import fi.helsinki.cs.tmc.cli.backend.TmcUtil;
+import fi.helsinki.cs.tmc.cli.core.CliContext;
+import fi.helsinki.cs.tmc.cli.core.Metrics;
+
+import fi.helsinki.cs.tmc.core.domain.Exercise;
+import fi.helsinki.cs.tmc.core.domain.ProgressObserver;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Downloads the exercises of a course with several workers.
+ *
+ * <p>Every worker downloads and extracts a single exercise at a time, so the next
+ * exercises are downloading while the previous ones are extracted. The exercises
+ * that tmc-core skips are retried a few times with a growing delay. If tmc-core
+ * fails with an error, such as an expired login, the remaining downloads are
+ * cancelled because they would fail in the same way. New exercises are extracted
+ * from the template store when the same version has been downloaded before.
+ * The progress of each worker is shown under the progress of the whole download.
+ */
+public class ExerciseDownloader {
+
+    private static final Logger logger = LoggerFactory.getLogger(ExerciseDownloader.class);
+
+    public static final int DEFAULT_JOBS = 1;
+    private static final int MAX_ATTEMPTS = 3;
+    private static final long RETRY_DELAY = 500;
+    private static final long OVERALL_PROGRESS = 0;
+
+    private final CliContext ctx;
+    private final int jobs;
+
+    private List<Exercise> failedExercises;
+    private volatile boolean aborted;
+    private boolean errorShown;
+    private Consumer<Exercise> downloadListener;
+    // freshExercises are extracted into new directories, so they can be stored as templates
+    private Set<String> freshExercises;
+
+    // these are used for the progress of the parallel downloads
+    private final Set<String> activeExercises;
+    private int finishedCount;
+    private int totalCount;
+    private long startTime;
+
+    public ExerciseDownloader(CliContext ctx, int jobs) {
+        this.ctx = ctx;
+        this.jobs = Math.max(1, jobs);
+        this.failedExercises = new ArrayList<>();
+        this.activeExercises = new LinkedHashSet<>();
+        this.freshExercises = new HashSet<>();
+    }
+
+    /**
+     * Set the listener that is called right after each exercise has been downloaded.
+     * It may be called from several worker threads.
+     */
+    public void setDownloadListener(Consumer<Exercise> listener) {
+        this.downloadListener = listener;
+    }
+
+    /**
+     * Get the exercises that couldn't be downloaded by the previous download.
+     */
+    public List<Exercise> getFailedExercises() {
+        return failedExercises;
+    }
+
+    /**
+     * Download and extract the exercises.
+     *
+     * @param exercises the exercises to download
+     * @param progobs observer that shows the progress of the whole download
+     * @return the downloaded exercises in the original order or null if tmc-core
+     *         failed before anything was downloaded
+     */
+    public List<Exercise> download(List<Exercise> exercises, ProgressObserver progobs) {
+        failedExercises = new ArrayList<>();
+        aborted = false;
+        errorShown = false;
+        if (progobs == null) {
+            progobs = ProgressObserver.NULL_OBSERVER;
+        }
+
+        List<Exercise> extracted = extractStoredTemplates(exercises);
+        if (extracted.isEmpty()) {
+            return downloadFromServer(exercises, progobs);
+        }
+        List<Exercise> remaining = exercisesNotIn(exercises, namesOf(extracted));
+        if (!remaining.isEmpty()) {
+            List<Exercise> downloaded = downloadFromServer(remaining, progobs);
+            if (downloaded != null) {
+                extracted.addAll(downloaded);
+            }
+        }
+        // keep the original order of the exercises
+        Set<String> names = namesOf(extracted);
+        List<Exercise> result = new ArrayList<>();
+        for (Exercise exercise : exercises) {
+            if (names.contains(exercise.getName())) {
+                result.add(exercise);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Extract the new exercises whose templates are in the template store.
+     *
+     * <p>Only the exercises that don't exist yet are extracted from the store, because
+     * tmc-core keeps the changes of the student when it updates an existing exercise.
+     * The rest of the new exercises are stored after they have been downloaded.
+     *
+     * @return the extracted exercises
+     */
+    private List<Exercise> extractStoredTemplates(List<Exercise> exercises) {
+        List<Exercise> extracted = new ArrayList<>();
+        freshExercises = new HashSet<>();
+        TemplateStore store = ctx.getTemplateStore();
+        if (store == null || !store.isEnabled()) {
+            return extracted;
+        }
+        Metrics.Timer timer = Metrics.start("extract templates");
+        for (Exercise exercise : exercises) {
+            Path directory = getExerciseDirectory(exercise);
+            if (directory == null || Files.exists(directory)) {
+                continue;
+            }
+            if (store.extract(exercise, directory)) {
+                extracted.add(exercise);
+                if (downloadListener != null) {
+                    downloadListener.accept(exercise);
+                }
+            } else {
+                freshExercises.add(exercise.getName());
+            }
+        }
+        timer.addItems(extracted.size());
+        timer.stop(true);
+        if (!extracted.isEmpty()) {
+            logger.info("Extracted " + extracted.size() + " exercises from the template store");
+        }
+        return extracted;
+    }
+
+    private Path getExerciseDirectory(Exercise exercise) {
+        if (exercise.getCourseName() == null) {
+            return null;
+        }
+        return exercise.getExerciseDirectory(ctx.getSettings().getTmcProjectDirectory());
+    }
+
+    private List<Exercise> downloadFromServer(List<Exercise> exercises, ProgressObserver progobs) {
+        if (exercises.size() <= 1 || jobs == 1) {
+            return downloadWithRetries(exercises, progobs, false);
+        }
+
+        totalCount = exercises.size();
+        finishedCount = 0;
+        startTime = System.nanoTime();
+        showOverallProgress(progobs);
+
+        ExecutorService executor = Executors.newFixedThreadPool(jobs, runnable -> {
+            Thread thread = new Thread(runnable, "tmc-download");
+            thread.setDaemon(true);
+            return thread;
+        });
+        List<Future<List<Exercise>>> futures = new ArrayList<>();
+        for (int i = 0; i < exercises.size(); i++) {
+            Exercise exercise = exercises.get(i);
+            long id = OVERALL_PROGRESS + 1 + i;
+            futures.add(executor.submit(() -> downloadInWorker(exercise, id, progobs)));
+        }
+        executor.shutdown();
+
+        List<Exercise> downloaded = new ArrayList<>();
+        for (int i = 0; i < exercises.size(); i++) {
+            List<Exercise> result = waitForDownload(futures.get(i), exercises.get(i));
+            if (result != null) {
+                downloaded.addAll(result);
+            }
+        }
+        progobs.end(OVERALL_PROGRESS);
+        // list the failures in the order of the exercises instead of the order of the workers
+        failedExercises = exercisesNotIn(exercises, namesOf(downloaded));
+
+        if (aborted && downloaded.isEmpty()) {
+            return null;
+        }
+        return downloaded;
+    }
+
+    private List<Exercise> downloadInWorker(
+            Exercise exercise, long id, ProgressObserver progobs) {
+        if (aborted) {
+            addFailed(Collections.singletonList(exercise));
+            return null;
+        }
+        started(exercise);
+        List<Exercise> result = null;
+        try {
+            result = downloadWithRetries(Collections.singletonList(exercise),
+                    exerciseObserver(exercise, id, progobs), true);
+            return result;
+        } finally {
+            progobs.end(id);
+            finished(exercise, result != null && !result.isEmpty(), progobs);
+        }
+    }
+
+    /**
+     * Get an observer that shows the progress of the exercise as its own operation,
+     * so the progress of every worker is drawn as a separate bar.
+     */
+    private static ProgressObserver exerciseObserver(
+            Exercise exercise, long id, ProgressObserver progobs) {
+        String prefix = exercise.getName() + ": ";
+        return new ProgressObserver() {
+            @Override
+            public void progress(long ignored, String message) {
+                progobs.progress(id, prefix + message);
+            }
+
+            @Override
+            public void progress(long ignored, Double progress, String message) {
+                progobs.progress(id, progress, prefix + message);
+            }
+
+            @Override
+            public void start(long ignored) {}
+
+            @Override
+            public void end(long ignored) {
+                // the operation ends when the retries are done
+            }
+        };
+    }
+
+    /**
+     * Download the exercises and retry the exercises that tmc-core skipped.
+     */
+    private List<Exercise> downloadWithRetries(
+            List<Exercise> exercises, ProgressObserver progobs, boolean inWorker) {
+        List<Exercise> downloaded = new ArrayList<>();
+        List<Exercise> pending = exercises;
+        for (int attempt = 1; ; attempt++) {
+            List<Exercise> result = inWorker
+                    ? downloadShowingErrorOnce(pending, progobs)
+                    : TmcUtil.downloadExercises(ctx, pending, progobs);
+            if (result == null) {
+                // the error is already shown to the user
+                aborted = true;
+                addFailed(pending);
+                return downloaded.isEmpty() ? null : downloaded;
+            }
+            pending = collectDownloaded(pending, result, downloaded);
+            if (pending.isEmpty() || aborted || attempt >= MAX_ATTEMPTS) {
+                break;
+            }
+            logger.info("Retrying the download of " + pending.size() + " exercises");
+            if (!sleep(RETRY_DELAY << (attempt - 1))) {
+                break;
+            }
+        }
+        addFailed(pending);
+        return downloaded;
+    }
+
+    /**
+     * Download the exercises in a worker. The other workers fail in the same way, such
+     * as with an expired login, so the error is shown only by the first of them.
+     *
+     * @return the exercises that tmc-core downloaded or null if it failed
+     */
+    private List<Exercise> downloadShowingErrorOnce(
+            List<Exercise> exercises, ProgressObserver progobs) {
+        try {
+            return TmcUtil.tryDownloadExercises(ctx, exercises, progobs);
+        } catch (Exception e) {
+            logger.warn("Failed to download exercises", e);
+            if (isFirstError()) {
+                TmcUtil.handleTmcExceptions(ctx, e);
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Move the downloaded exercises into the list.
+     *
+     * @return the exercises that weren't downloaded
+     */
+    private List<Exercise> collectDownloaded(
+            List<Exercise> requested, List<Exercise> result, List<Exercise> downloaded) {
+        Set<String> requestedNames = namesOf(requested);
+        for (Exercise exercise : result) {
+            if (requestedNames.contains(exercise.getName())) {
+                downloaded.add(exercise);
+                if (freshExercises.contains(exercise.getName())) {
+                    ctx.getTemplateStore().store(exercise, getExerciseDirectory(exercise));
+                }
+                if (downloadListener != null) {
+                    downloadListener.accept(exercise);
+                }
+            }
+        }
+        return exercisesNotIn(requested, namesOf(result));
+    }
+
+    private static Set<String> namesOf(List<Exercise> exercises) {
+        Set<String> names = new HashSet<>();
+        for (Exercise exercise : exercises) {
+            names.add(exercise.getName());
+        }
+        return names;
+    }
+
+    private static List<Exercise> exercisesNotIn(List<Exercise> exercises, Set<String> names) {
+        List<Exercise> missing = new ArrayList<>();
+        for (Exercise exercise : exercises) {
+            if (!names.contains(exercise.getName())) {
+                missing.add(exercise);
+            }
+        }
+        return missing;
+    }
+
+    private synchronized boolean isFirstError() {
+        boolean first = !errorShown;
+        errorShown = true;
+        return first;
+    }
+
+    private synchronized void addFailed(List<Exercise> exercises) {
+        failedExercises.addAll(exercises);
+    }
+
+    private List<Exercise> waitForDownload(Future<List<Exercise>> future, Exercise exercise) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            aborted = true;
+        } catch (ExecutionException e) {
+            logger.warn("Failed to download the exercise " + exercise.getName(), e);
+        }
+        return null;
+    }
+
+    private synchronized void started(Exercise exercise) {
+        activeExercises.add(exercise.getName());
+    }
+
+    private synchronized void finished(
+            Exercise exercise, boolean success, ProgressObserver progobs) {
+        activeExercises.remove(exercise.getName());
+        finishedCount++;
+        if (!success) {
+            logger.warn("Failed to download the exercise " + exercise.getName());
+        }
+        showOverallProgress(progobs);
+    }
+
+    private synchronized void showOverallProgress(ProgressObserver progobs) {
+        double seconds = (System.nanoTime() - startTime) / (double) TimeUnit.SECONDS.toNanos(1);
+        String message = String.format("Downloaded %d/%d exercises (%.1f/s)",
+                finishedCount, totalCount, seconds > 0 ? finishedCount / seconds : 0.0);
+        if (!activeExercises.isEmpty()) {
+            message += ", downloading " + String.join(", ", activeExercises);
+        }
+        progobs.progress(OVERALL_PROGRESS, finishedCount / (double) totalCount, message);
+    }
+
+    private static boolean sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
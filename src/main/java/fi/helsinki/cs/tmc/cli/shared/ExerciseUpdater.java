@@ -3,6 +3,7 @@ package fi.helsinki.cs.tmc.cli.shared;
 import fi.helsinki.cs.tmc.cli.backend.CourseInfo;
 import fi.helsinki.cs.tmc.cli.backend.CourseInfoIo;
 import fi.helsinki.cs.tmc.cli.backend.TmcUtil;
+import fi.helsinki.cs.tmc.cli.backend.UpdateJournal;
 import fi.helsinki.cs.tmc.cli.core.CliContext;
 import fi.helsinki.cs.tmc.cli.io.CliProgressObserver;
 
@@ -26,6 +27,7 @@ public class ExerciseUpdater {
 
     private List<Exercise> newExercises;
     private List<Exercise> updatedExercises;
+    private List<Exercise> failedExercises;
 
     public ExerciseUpdater(CliContext context, Course course) {
         this.ctx = context;
@@ -33,6 +35,7 @@ public class ExerciseUpdater {
 
         this.newExercises = new ArrayList<>();
         this.updatedExercises = new ArrayList<>();
+        this.failedExercises = new ArrayList<>();
     }
 
     public List<Exercise> getNewExercises() {
@@ -84,23 +87,67 @@ public class ExerciseUpdater {
         return newExercisesAvailable() || updatedExercisesAvailable();
     }
 
+    public List<Exercise> getFailedExercises() {
+        return failedExercises;
+    }
+
+    /**
+     * Download the new and updated exercises.
+     * The exercises that were already downloaded by an interrupted update are skipped.
+     *
+     * @return the exercises that are up-to-date now, or null if the download failed
+     */
     public List<Exercise> downloadUpdates(CliProgressObserver progobs) {
+        UpdateJournal journal = getJournal();
+        List<Exercise> skipped = new ArrayList<>();
         List<Exercise> newAndUpdated = getNewAndUpdatedExercises();
         for (Iterator<Exercise> iterator = newAndUpdated.iterator(); iterator.hasNext(); ) {
             Exercise next = iterator.next();
             if (next.isCompleted()) {
                 iterator.remove();
+            } else if (journal != null && journal.isDownloaded(next)) {
+                skipped.add(next);
+                iterator.remove();
             }
         }
-        return TmcUtil.downloadExercises(ctx, newAndUpdated, progobs);
+        if (!skipped.isEmpty()) {
+            logger.info("Skipping " + skipped.size()
+                    + " exercises downloaded by the previous update");
+        }
+
+        ExerciseDownloader downloader =
+                new ExerciseDownloader(ctx, ExerciseDownloader.DEFAULT_JOBS);
+        if (journal != null) {
+            downloader.setDownloadListener(journal::markDownloaded);
+        }
+        List<Exercise> downloaded = downloader.download(newAndUpdated, progobs);
+        failedExercises = downloader.getFailedExercises();
+        if (downloaded == null) {
+            return skipped.isEmpty() ? null : skipped;
+        }
+        skipped.addAll(downloaded);
+        return skipped;
     }
 
+    /**
+     * Update the course config file after all the updates have been downloaded.
+     * The unfinished update is finished only after the file has been saved.
+     */
     public boolean updateCourseJson(CourseInfo info, Path configFile) {
-        Course newDetailsCourse = TmcUtil.findCourse(ctx, course.getName());
+        Course newDetailsCourse = TmcUtil.refreshCourse(ctx, course);
         if (newDetailsCourse == null) {
             return false;
         }
         info.setExercises(newDetailsCourse.getExercises());
-        return CourseInfoIo.save(info, configFile);
+        if (!CourseInfoIo.save(info, configFile)) {
+            return false;
+        }
+        UpdateJournal.open(configFile.getParent()).delete();
+        return true;
+    }
+
+    private UpdateJournal getJournal() {
+        Path courseDirectory = ctx.getWorkDir().getCourseDirectory();
+        return courseDirectory != null ? UpdateJournal.open(courseDirectory) : null;
     }
 }
@@ -0,0 +1,77 @@
+package fi.helsinki.cs.tmc.cli.shared;
+
+import fi.helsinki.cs.tmc.cli.io.Io;
+
+import fi.helsinki.cs.tmc.core.domain.Course;
+import fi.helsinki.cs.tmc.core.domain.Exercise;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+
+/**
+ * Writes the output of a command as JSON records, one object per line.
+ * Every record has a "type" field that tells what the record describes.
+ */
+public class JsonOutput {
+
+    private static final Logger logger = LoggerFactory.getLogger(JsonOutput.class);
+    private static final Gson gson = new Gson();
+
+    private final Io io;
+
+    public JsonOutput(Io io) {
+        this.io = io;
+    }
+
+    public static JsonObject record(String type) {
+        JsonObject record = new JsonObject();
+        record.addProperty("type", type);
+        return record;
+    }
+
+    public static JsonObject course(Course course) {
+        JsonObject record = record("course");
+        record.addProperty("name", course.getName());
+        record.addProperty("id", course.getId());
+        return record;
+    }
+
+    public static JsonObject exercise(Exercise exercise) {
+        JsonObject record = record("exercise");
+        record.addProperty("name", exercise.getName());
+        record.addProperty("id", exercise.getId());
+        record.addProperty("deadline", exercise.getDeadline());
+        record.addProperty("deadlinePassed", exercise.hasDeadlinePassed());
+        record.addProperty("locked", exercise.isLocked());
+        record.addProperty("returnable", exercise.isReturnable());
+        record.addProperty("requiresReview", exercise.requiresReview());
+        record.addProperty("attempted", exercise.isAttempted());
+        record.addProperty("completed", exercise.isCompleted());
+        record.addProperty("reviewed", exercise.isReviewed());
+        record.addProperty("checksum", exercise.getChecksum());
+        return record;
+    }
+
+    /**
+     * Write the record on its own line. The null fields are left out.
+     */
+    public void print(JsonObject record) {
+        io.println(gson.toJson(record));
+    }
+
+    /**
+     * Send the written records to the reader right away instead of waiting for the
+     * output buffer to fill up.
+     */
+    public void flush() {
+        try {
+            io.flush();
+        } catch (IOException e) {
+            logger.warn("Failed to flush the output", e);
+        }
+    }
+}
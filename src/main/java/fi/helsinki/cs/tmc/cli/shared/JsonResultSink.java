@@ -0,0 +1,256 @@
+package fi.helsinki.cs.tmc.cli.shared;
+
+import fi.helsinki.cs.tmc.cli.io.Io;
+
+import fi.helsinki.cs.tmc.core.domain.submission.SubmissionResult;
+import fi.helsinki.cs.tmc.langs.abstraction.ValidationError;
+import fi.helsinki.cs.tmc.langs.abstraction.ValidationResult;
+import fi.helsinki.cs.tmc.langs.domain.RunResult;
+import fi.helsinki.cs.tmc.langs.domain.SpecialLogs;
+import fi.helsinki.cs.tmc.langs.domain.TestResult;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes the results as JSON records, one object per line.
+ *
+ * <p>Every test case and validation error gets a "test" or "validation" record,
+ * followed by an "exercise" record with the status of the whole exercise. The
+ * records of each exercise are flushed as soon as the exercise has finished.
+ * A "total" record ends the results of several exercises.
+ */
+public class JsonResultSink implements ResultSink {
+
+    private final JsonOutput output;
+    private final String command;
+    private final boolean showDetails;
+
+    private String exerciseName;
+    private int totalExercises;
+    private int passedExercises;
+
+    /**
+     * Create a sink for the results of the command.
+     *
+     * @param command the name of the command that is added to every record
+     * @param showDetails whether the detailed messages and exceptions are included
+     */
+    public JsonResultSink(Io io, String command, boolean showDetails) {
+        this.output = new JsonOutput(io);
+        this.command = command;
+        this.showDetails = showDetails;
+    }
+
+    @Override
+    public void startExercise(String action, String exerciseName) {
+        this.exerciseName = exerciseName;
+    }
+
+    @Override
+    public boolean printLocalTestResult(
+            RunResult runResult, ValidationResult valResult, boolean printResultBar) {
+        if (runResult == null) {
+            return false;
+        }
+        totalExercises++;
+
+        JsonObject exercise = record("exercise");
+        exercise.addProperty("status", runResult.status.name());
+        boolean passed = false;
+        switch (runResult.status) {
+            case PASSED: // fall through
+            case TESTS_FAILED:
+                printTestCases(runResult.testResults);
+                int passedTests = ResultPrinter.passedTests(runResult.testResults);
+                int totalTests = runResult.testResults.size();
+
+                boolean validationsPassed = ResultPrinter.validationsPassed(valResult);
+                if (!validationsPassed) {
+                    printValidationErrors(valResult);
+                    totalTests++;
+                }
+                passed = runResult.status == RunResult.Status.PASSED && validationsPassed;
+                exercise.addProperty("testsPassed", passedTests);
+                exercise.addProperty("testsTotal", totalTests);
+                break;
+
+            default:
+                // the compiler output and the other errors are only in the logs
+                String message = logMessage(runResult.logs);
+                if (message != null) {
+                    exercise.addProperty("message", message);
+                }
+                break;
+        }
+        exercise.addProperty("passed", passed);
+        printExercise(exercise, passed);
+        return passed;
+    }
+
+    /**
+     * Get the error message of the run. The languages without an error message, such
+     * as Java when the compilation fails, write the details into the output logs.
+     *
+     * @return the message or null if the logs are empty
+     */
+    private static String logMessage(Map<String, byte[]> logs) {
+        if (logs == null) {
+            return null;
+        }
+        byte[] error = logs.get(SpecialLogs.GENERIC_ERROR_MESSAGE);
+        if (error != null && error.length > 0) {
+            return new String(error, StandardCharsets.UTF_8);
+        }
+        StringBuilder message = new StringBuilder();
+        for (String name : new String[] {SpecialLogs.STDOUT, SpecialLogs.STDERR}) {
+            byte[] log = logs.get(name);
+            if (log == null || log.length == 0) {
+                continue;
+            }
+            if (message.length() > 0) {
+                message.append('\n');
+            }
+            message.append(new String(log, StandardCharsets.UTF_8));
+        }
+        return message.length() > 0 ? message.toString() : null;
+    }
+
+    @Override
+    public boolean printSubmissionResult(SubmissionResult submResult, boolean printResultBar) {
+        if (submResult == null) {
+            return false;
+        }
+        totalExercises++;
+
+        JsonObject exercise = record("exercise");
+        exercise.addProperty("status", submResult.getStatus().name());
+        boolean passed = submResult.getStatus() == SubmissionResult.Status.OK;
+        switch (submResult.getStatus()) {
+            case OK: // fall through
+            case FAIL:
+                List<TestResult> testCases = submResult.getTestCases();
+                printTestCases(testCases);
+                int totalTests = testCases.size();
+                if (!passed) {
+                    String valgrind = submResult.getValgrind();
+                    if (valgrind != null && !valgrind.isEmpty()) {
+                        exercise.addProperty("valgrind", valgrind);
+                        totalTests++;
+                    }
+                    if (submResult.validationsFailed()) {
+                        printValidationErrors(submResult.getValidationResult());
+                        totalTests++;
+                    }
+                }
+                exercise.addProperty("testsPassed", ResultPrinter.passedTests(testCases));
+                exercise.addProperty("testsTotal", totalTests);
+                if (passed) {
+                    exercise.add("points", toArray(submResult.getPoints()));
+                    String solutionUrl = submResult.getSolutionUrl();
+                    if (solutionUrl != null && !solutionUrl.isEmpty()) {
+                        exercise.addProperty("solutionUrl", solutionUrl);
+                    }
+                }
+                break;
+
+            case ERROR:
+                exercise.addProperty("message", submResult.getError());
+                break;
+
+            default:
+                break;
+        }
+        exercise.addProperty("passed", passed);
+        printExercise(exercise, passed);
+        return passed;
+    }
+
+    @Override
+    public void addFailedExercise(String message) {
+        totalExercises++;
+        JsonObject exercise = record("exercise");
+        exercise.addProperty("status", "ERROR");
+        exercise.addProperty("message", message);
+        exercise.addProperty("passed", false);
+        printExercise(exercise, false);
+    }
+
+    @Override
+    public void endExercise() {
+        exerciseName = null;
+    }
+
+    @Override
+    public void printTotalExerciseResults() {
+        if (totalExercises == 0) {
+            return;
+        }
+        JsonObject total = JsonOutput.record("total");
+        total.addProperty("command", command);
+        total.addProperty("exercisesPassed", passedExercises);
+        total.addProperty("exercisesTotal", totalExercises);
+        output.print(total);
+        output.flush();
+    }
+
+    private JsonObject record(String type) {
+        JsonObject record = JsonOutput.record(type);
+        record.addProperty("command", command);
+        record.addProperty("exercise", exerciseName);
+        return record;
+    }
+
+    private void printExercise(JsonObject exercise, boolean passed) {
+        if (passed) {
+            passedExercises++;
+        }
+        output.print(exercise);
+        output.flush();
+    }
+
+    private void printTestCases(List<TestResult> testResults) {
+        for (TestResult testResult : testResults) {
+            JsonObject test = record("test");
+            test.addProperty("name", testResult.getName());
+            test.addProperty("passed", testResult.isSuccessful());
+            if (!testResult.isSuccessful()) {
+                test.addProperty("message", testResult.getMessage());
+                if (showDetails) {
+                    test.add("detailedMessage", toArray(testResult.getDetailedMessage()));
+                    test.add("exception", toArray(testResult.getException()));
+                }
+            }
+            output.print(test);
+        }
+    }
+
+    private void printValidationErrors(ValidationResult result) {
+        Map<File, List<ValidationError>> errors = result.getValidationErrors();
+        for (Map.Entry<File, List<ValidationError>> entry : errors.entrySet()) {
+            for (ValidationError error : entry.getValue()) {
+                JsonObject validation = record("validation");
+                validation.addProperty("file", entry.getKey().toString());
+                validation.addProperty("line", error.getLine());
+                validation.addProperty("message", error.getMessage());
+                output.print(validation);
+            }
+        }
+    }
+
+    private static JsonArray toArray(List<String> strings) {
+        if (strings == null || strings.isEmpty()) {
+            return null;
+        }
+        JsonArray array = new JsonArray();
+        for (String string : strings) {
+            array.add(string);
+        }
+        return array;
+    }
+}
@@ -0,0 +1,47 @@
+package fi.helsinki.cs.tmc.cli.shared;
+
+import fi.helsinki.cs.tmc.cli.io.Io;
+
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.OptionBuilder;
+import org.apache.commons.cli.Options;
+
+/**
+ * The output formats of the commands that print results.
+ */
+public enum OutputFormat {
+    /** Human readable text. */
+    TEXT,
+    /** One JSON object per line, for the scripts that process the results. */
+    JSON;
+
+    private static final String OPTION = "format";
+
+    public static void addOption(Options options) {
+        options.addOption(
+                OptionBuilder.withLongOpt(OPTION)
+                        .hasArg()
+                        .withArgName("FORMAT")
+                        .withDescription("Output format, text or json")
+                        .create());
+    }
+
+    /**
+     * Get the format given on the command line.
+     *
+     * @return the format or null if the format is unknown
+     */
+    public static OutputFormat parse(CommandLine args, Io io) {
+        String value = args.getOptionValue(OPTION);
+        if (value == null) {
+            return TEXT;
+        }
+        for (OutputFormat format : values()) {
+            if (format.name().equalsIgnoreCase(value)) {
+                return format;
+            }
+        }
+        io.errorln("Unknown output format \"" + value + "\". Use text or json.");
+        return null;
+    }
+}
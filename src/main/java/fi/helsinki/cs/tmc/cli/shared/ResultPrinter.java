@@ -18,7 +18,10 @@ import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 
-public class ResultPrinter {
+/**
+ * Prints the results as human readable text.
+ */
+public class ResultPrinter implements ResultSink {
 
     private static final String COMPILE_ERROR_MESSAGE =
             ColorUtil.colorString("Failed to compile project", Color.PURPLE);
@@ -63,10 +66,23 @@ public class ResultPrinter {
         this.showPassed = showPassed;
     }
 
-    public void addFailedExercise() {
+    @Override
+    public void startExercise(String action, String exerciseName) {
+        io.println(ColorUtil.colorString(action + ": " + exerciseName, Color.YELLOW));
+    }
+
+    @Override
+    public void addFailedExercise(String message) {
+        io.errorln(message);
         totalExercises++;
     }
 
+    @Override
+    public void endExercise() {
+        io.println();
+    }
+
+    @Override
     public boolean printSubmissionResult(SubmissionResult submResult, boolean printResultBar) {
         if (submResult == null) {
             return false;
@@ -95,6 +111,7 @@ public class ResultPrinter {
         }
     }
 
+    @Override
     public boolean printLocalTestResult(
             RunResult runResult, ValidationResult valResult, boolean printResultBar) {
         if (runResult == null) {
@@ -150,6 +167,7 @@ public class ResultPrinter {
         }
     }
 
+    @Override
     public void printTotalExerciseResults() {
         if (totalExercises == 0) {
             return;
@@ -166,7 +184,7 @@ public class ResultPrinter {
         io.println(CliProgressObserver.getPassedTestsBar(passed, total, passedColor, failedColor));
     }
 
-    private boolean validationsPassed(ValidationResult result) {
+    static boolean validationsPassed(ValidationResult result) {
         if (result == null || result.getStrategy() == Strategy.DISABLED) {
             return true;
         }
@@ -271,7 +289,7 @@ public class ResultPrinter {
         }
     }
 
-    private int passedTests(List<TestResult> testResults) {
+    static int passedTests(List<TestResult> testResults) {
         int passed = 0;
         for (TestResult testResult : testResults) {
             if (testResult.isSuccessful()) {
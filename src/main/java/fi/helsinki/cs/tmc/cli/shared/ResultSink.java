@@ -0,0 +1,53 @@
+package fi.helsinki.cs.tmc.cli.shared;
+
+import fi.helsinki.cs.tmc.core.domain.submission.SubmissionResult;
+import fi.helsinki.cs.tmc.langs.abstraction.ValidationResult;
+import fi.helsinki.cs.tmc.langs.domain.RunResult;
+
+/**
+ * Receives the results of the tested and submitted exercises one exercise at a time.
+ * The results are written out as soon as they are received, so long runs show
+ * their results while the rest of the exercises are still running.
+ */
+public interface ResultSink {
+
+    /**
+     * Start the results of the next exercise.
+     *
+     * @param action what is done to the exercise, such as "Testing"
+     * @param exerciseName name of the exercise
+     */
+    void startExercise(String action, String exerciseName);
+
+    /**
+     * Write the results of the local tests.
+     *
+     * @return true if all the tests and the validations passed
+     */
+    boolean printLocalTestResult(
+            RunResult runResult, ValidationResult valResult, boolean printResultBar);
+
+    /**
+     * Write the results of the submission.
+     *
+     * @return true if the submission passed
+     */
+    boolean printSubmissionResult(SubmissionResult submResult, boolean printResultBar);
+
+    /**
+     * Count the exercise as failed when it couldn't be run at all.
+     *
+     * @param message the reason for the failure
+     */
+    void addFailedExercise(String message);
+
+    /**
+     * End the results of the current exercise.
+     */
+    void endExercise();
+
+    /**
+     * Write the number of the passed exercises.
+     */
+    void printTotalExerciseResults();
+}
@@ -14,11 +14,18 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.InputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
 import java.net.MalformedURLException;
 import java.net.URL;
-import java.net.URLConnection;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 
 public class AutoUpdater {
 
@@ -30,6 +37,10 @@ public class AutoUpdater {
 
     private static final Logger logger = LoggerFactory.getLogger(AutoUpdater.class);
 
+    private static final int CONNECT_TIMEOUT = 10000;
+    private static final int READ_TIMEOUT = 10000;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
     private final Io io;
     private final boolean isWindows;
     private final String currentVersion;
@@ -46,7 +57,7 @@ public class AutoUpdater {
 
     /**
      * Checks if there's a newer tmc-cli version released on Github and asks if
-     * the user wants to download it. TODO: split it up
+     * the user wants to download it.
      */
     public boolean run() {
         JsonObject release = toJsonObject(fetchLatestReleaseJson());
@@ -54,11 +65,22 @@ public class AutoUpdater {
             return false;
         }
 
-        JsonObject binAsset = findCorrectAsset(release, isWindows);
-        if (binAsset == null || !binAsset.has("name") || !binAsset.has("browser_download_url")) {
+        ReleaseInfo info = createReleaseInfo(release, null);
+        if (info == null) {
             logger.warn("The JSON does not contain necessary information for update.");
             return false;
         }
+        return install(info);
+    }
+
+    /**
+     * Asks if the user wants to download the release and installs it.
+     * The release is usually found earlier by {@link #fetchLatestRelease}.
+     */
+    public boolean install(ReleaseInfo release) {
+        if (!release.isUpdate() || !isNewer(release.getVersion())) {
+            return false;
+        }
 
         io.println("A new version of tmc-cli is available!");
 
@@ -71,8 +93,7 @@ public class AutoUpdater {
             return false;
         }
 
-        String binName = binAsset.get("name").getAsString() + ".new";
-        String dlUrl = binAsset.get("browser_download_url").getAsString();
+        String binName = release.getAssetName() + ".new";
         String currentBinLocation = getJarLocation();
         if (currentBinLocation == null) {
             io.errorln("Unable to find current program location, aborting update.");
@@ -81,7 +102,7 @@ public class AutoUpdater {
         File destination = new File(currentBinLocation + binName);
 
         io.println("Downloading...");
-        if (!fetchTmcCliBinary(dlUrl, destination)) {
+        if (!fetchTmcCliBinary(release, destination)) {
             return false;
         }
 
@@ -92,23 +113,72 @@ public class AutoUpdater {
         return runNewTmcCliBinary(destination.getAbsolutePath());
     }
 
-    private byte[] fetchHttpEntity(String urlAddress) {
-        URL url;
-
+    /**
+     * Checks the latest release without asking or printing anything, so that
+     * this can be run in the background.
+     *
+     * @param etag ETag of the previous check or null
+     * @return the result of the check or null if it failed
+     */
+    public ReleaseInfo fetchLatestRelease(String etag) {
+        HttpURLConnection connection = null;
         try {
-            url = new URL(urlAddress);
-        } catch (MalformedURLException ex) {
-            logger.warn("Url formatting failed", ex);
+            connection = openConnection(LATEST_RELEASE_URL);
+            if (etag != null) {
+                connection.setRequestProperty("If-None-Match", etag);
+            }
+            int status = connection.getResponseCode();
+            if (status == HttpURLConnection.HTTP_NOT_MODIFIED) {
+                return ReleaseInfo.noUpdate(etag);
+            }
+            if (status != HttpURLConnection.HTTP_OK) {
+                logger.warn("Unexpected response " + status + " for the latest release");
+                return null;
+            }
+            String newEtag = connection.getHeaderField("ETag");
+            String json;
+            try (InputStream in = connection.getInputStream()) {
+                json = IOUtils.toString(in, "UTF-8");
+            }
+
+            JsonObject release = toJsonObject(json);
+            if (release == null) {
+                return null;
+            }
+            if (!isNewer(release)) {
+                return ReleaseInfo.noUpdate(newEtag);
+            }
+            ReleaseInfo info = createReleaseInfo(release, newEtag);
+            if (info == null) {
+                logger.warn("The JSON does not contain necessary information for update.");
+            }
+            return info;
+        } catch (IOException ex) {
+            logger.warn("Failed to check the latest release", ex);
             return null;
+        } finally {
+            if (connection != null) {
+                connection.disconnect();
+            }
         }
+    }
+
+    private HttpURLConnection openConnection(String urlAddress) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(urlAddress).openConnection();
+        connection.setConnectTimeout(CONNECT_TIMEOUT);
+        connection.setReadTimeout(READ_TIMEOUT);
+        connection.setRequestProperty(
+                "User-Agent", "tmc-cli (https://github.com/tmc-cli/tmc-cli)");
+        return connection;
+    }
 
+    private byte[] fetchHttpEntity(String urlAddress) {
         InputStream inputStream;
         try {
-            URLConnection connection = url.openConnection();
-            connection.setConnectTimeout(10000);
-            connection.setRequestProperty(
-                    "User-Agent", "tmc-cli (https://github.com/tmc-cli/tmc-cli)");
-            inputStream = connection.getInputStream();
+            inputStream = openConnection(urlAddress).getInputStream();
+        } catch (MalformedURLException ex) {
+            logger.warn("Url formatting failed", ex);
+            return null;
         } catch (IOException ex) {
             logger.warn("Failed to fetch page", ex);
             io.errorln("Failed to create a https connection.");
@@ -121,6 +191,8 @@ public class AutoUpdater {
         } catch (IOException ex) {
             logger.warn("Failed to fetch data from github", ex);
             content = null;
+        } finally {
+            IOUtils.closeQuietly(inputStream);
         }
         return content;
     }
@@ -143,22 +215,122 @@ public class AutoUpdater {
     }
 
     /**
-     * Downloads a binary file from downloadUrl and saves it to destination
-     * file.
+     * Downloads the binary of the release and saves it to destination file.
+     *
+     * <p>The binary is streamed into a partial file next to the destination. If the
+     * partial file exists from an interrupted download, only the rest of the binary is
+     * downloaded. The size and digest of the binary are checked if the release has them.
      */
-    boolean fetchTmcCliBinary(String downloadUrl, File destination) {
-        byte[] content = fetchHttpEntity(downloadUrl);
-        if (content == null) {
-            io.errorln("Failed to download tmc-cli.");
-            return false;
-        }
+    boolean fetchTmcCliBinary(ReleaseInfo release, File destination) {
+        File partFile = new File(destination.getPath() + ".part");
         try {
-            FileUtils.writeByteArrayToFile(destination, content);
+            MessageDigest digest = createDigest(release.getDigest());
+            long existing = partFile.length();
+            if (existing > 0 && digest != null) {
+                try (InputStream in = new FileInputStream(partFile)) {
+                    updateDigest(digest, in);
+                }
+            }
+
+            HttpURLConnection connection = openConnection(release.getDownloadUrl());
+            if (existing > 0) {
+                connection.setRequestProperty("Range", "bytes=" + existing + "-");
+            }
+            int status = connection.getResponseCode();
+            boolean append = status == HttpURLConnection.HTTP_PARTIAL;
+            if (!append && status != HttpURLConnection.HTTP_OK) {
+                logger.warn("Unexpected response " + status + " for the binary");
+                io.errorln("Failed to download tmc-cli.");
+                return false;
+            }
+            if (!append && digest != null) {
+                // the server sent the whole file
+                digest.reset();
+            }
+
+            try (InputStream in = connection.getInputStream();
+                    OutputStream out = new FileOutputStream(partFile, append)) {
+                byte[] buffer = new byte[BUFFER_SIZE];
+                int read;
+                while ((read = in.read(buffer)) != -1) {
+                    out.write(buffer, 0, read);
+                    if (digest != null) {
+                        digest.update(buffer, 0, read);
+                    }
+                }
+            } finally {
+                connection.disconnect();
+            }
+
+            if (!isValidDownload(release, partFile, digest)) {
+                FileUtils.deleteQuietly(partFile);
+                io.errorln("The downloaded tmc-cli is corrupted, please try again.");
+                return false;
+            }
+            Files.move(partFile.toPath(), destination.toPath(),
+                    StandardCopyOption.REPLACE_EXISTING);
             return true;
         } catch (IOException ex) {
-            io.println("Failed to write the new version into \'" + destination + "\'.");
+            // the partial file is kept so that the download can be continued
+            logger.warn("Failed to download the new version", ex);
+            io.errorln("Failed to download tmc-cli.");
+            return false;
+        }
+    }
+
+    private boolean isValidDownload(ReleaseInfo release, File file, MessageDigest digest) {
+        if (release.getSize() >= 0 && file.length() != release.getSize()) {
+            logger.warn("The size of the binary is " + file.length()
+                    + " instead of " + release.getSize());
             return false;
         }
+        if (digest != null) {
+            String expected = release.getDigest().substring(release.getDigest().indexOf(':') + 1);
+            String actual = toHex(digest.digest());
+            if (!actual.equalsIgnoreCase(expected)) {
+                logger.warn("The digest of the binary is " + actual + " instead of " + expected);
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Create the digest for checking the binary.
+     *
+     * @param digest digest of the release asset, for example "sha256:abcd..."
+     * @return message digest or null if the binary can't be checked
+     */
+    private static MessageDigest createDigest(String digest) {
+        if (digest == null || !digest.contains(":")) {
+            return null;
+        }
+        String algorithm = digest.substring(0, digest.indexOf(':')).toUpperCase();
+        if (algorithm.startsWith("SHA") && !algorithm.contains("-")) {
+            algorithm = "SHA-" + algorithm.substring(3);
+        }
+        try {
+            return MessageDigest.getInstance(algorithm);
+        } catch (NoSuchAlgorithmException ex) {
+            logger.warn("Unknown digest algorithm " + algorithm);
+            return null;
+        }
+    }
+
+    private static void updateDigest(MessageDigest digest, InputStream in) throws IOException {
+        byte[] buffer = new byte[BUFFER_SIZE];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            digest.update(buffer, 0, read);
+        }
+    }
+
+    private static String toHex(byte[] bytes) {
+        StringBuilder builder = new StringBuilder();
+        for (byte b : bytes) {
+            builder.append(String.format("%02x", b));
+        }
+        return builder.toString();
     }
 
     /**
@@ -175,11 +347,38 @@ public class AutoUpdater {
         if (!release.has("tag_name")) {
             return false;
         }
+        return isNewer(release.get("tag_name").getAsString());
+    }
 
-        Version releaseVer = new Version(release.get("tag_name").getAsString());
-        Version installedVer = new Version(currentVersion);
+    private boolean isNewer(String releaseVersion) {
+        try {
+            Version releaseVer = new Version(releaseVersion);
+            Version installedVer = new Version(currentVersion);
+            return releaseVer.isNewerThan(installedVer);
+        } catch (IllegalArgumentException ex) {
+            logger.warn("Unable to compare the versions", ex);
+            return false;
+        }
+    }
 
-        return releaseVer.isNewerThan(installedVer);
+    /**
+     * Get the information needed for installing the release.
+     *
+     * @return the release or null if the JSON doesn't have the binary of this platform
+     */
+    private ReleaseInfo createReleaseInfo(JsonObject release, String etag) {
+        JsonObject binAsset = findCorrectAsset(release, isWindows);
+        if (binAsset == null || !binAsset.has("name") || !binAsset.has("browser_download_url")) {
+            return null;
+        }
+        long size = binAsset.has("size") ? binAsset.get("size").getAsLong() : -1;
+        String digest = binAsset.has("digest") && !binAsset.get("digest").isJsonNull()
+                ? binAsset.get("digest").getAsString() : null;
+        return new ReleaseInfo(etag,
+                release.get("tag_name").getAsString(),
+                binAsset.get("name").getAsString(),
+                binAsset.get("browser_download_url").getAsString(),
+                size, digest);
     }
 
     /**
@@ -0,0 +1,132 @@
+package fi.helsinki.cs.tmc.cli.updater;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonSyntaxException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Map;
+
+/**
+ * The result of checking the latest tmc-cli release.
+ *
+ * <p>The result is stored in the properties, so that the release check can be done
+ * in the background and the new release is announced on the next run.
+ */
+public class ReleaseInfo {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReleaseInfo.class);
+
+    // ETAG_KEY is the ETag of the latest release response from GitHub
+    public static final String ETAG_KEY = "update-etag";
+    // RELEASE_KEY is the newer release that hasn't been announced yet
+    static final String RELEASE_KEY = "update-available";
+
+    private final String etag;
+    private final String version;
+    private final String assetName;
+    private final String downloadUrl;
+    private final long size;
+    private final String digest;
+
+    ReleaseInfo(String etag, String version, String assetName, String downloadUrl,
+            long size, String digest) {
+        this.etag = etag;
+        this.version = version;
+        this.assetName = assetName;
+        this.downloadUrl = downloadUrl;
+        this.size = size;
+        this.digest = digest;
+    }
+
+    /**
+     * Create the result of a release check that didn't find a newer release.
+     */
+    static ReleaseInfo noUpdate(String etag) {
+        return new ReleaseInfo(etag, null, null, null, -1, null);
+    }
+
+    /**
+     * Check whether the release is newer than the running version.
+     */
+    public boolean isUpdate() {
+        return version != null;
+    }
+
+    public String getEtag() {
+        return etag;
+    }
+
+    public String getVersion() {
+        return version;
+    }
+
+    public String getAssetName() {
+        return assetName;
+    }
+
+    public String getDownloadUrl() {
+        return downloadUrl;
+    }
+
+    /**
+     * Get the size of the binary in bytes.
+     *
+     * @return size or -1 if it isn't known
+     */
+    public long getSize() {
+        return size;
+    }
+
+    /**
+     * Get the digest of the binary in the "algorithm:hex" format used by GitHub.
+     *
+     * @return digest or null if it isn't known
+     */
+    public String getDigest() {
+        return digest;
+    }
+
+    /**
+     * Store the result of the release check into the properties.
+     */
+    public void saveTo(Map<String, String> properties) {
+        if (etag != null) {
+            properties.put(ETAG_KEY, etag);
+        } else {
+            properties.remove(ETAG_KEY);
+        }
+        if (isUpdate()) {
+            properties.put(RELEASE_KEY, new Gson().toJson(this));
+        }
+    }
+
+    /**
+     * Get the newer release that was found by an earlier release check.
+     *
+     * @return the release or null if there is none
+     */
+    public static ReleaseInfo fromProperties(Map<String, String> properties) {
+        String json = properties.get(RELEASE_KEY);
+        if (json == null) {
+            return null;
+        }
+        try {
+            ReleaseInfo release = new Gson().fromJson(json, ReleaseInfo.class);
+            return release != null && release.isUpdate() ? release : null;
+        } catch (JsonSyntaxException e) {
+            logger.warn("Invalid release in the properties", e);
+            return null;
+        }
+    }
+
+    /**
+     * Remove the announced release from the properties. The ETag is removed too,
+     * because GitHub would answer the next check with "not modified" and a release
+     * that wasn't installed would never be offered again.
+     */
+    public static void removeFrom(Map<String, String> properties) {
+        properties.remove(RELEASE_KEY);
+        properties.remove(ETAG_KEY);
+    }
+}
@@ -1,5 +1,6 @@
 package fi.helsinki.cs.tmc.cli;
 
+import static org.junit.Assert.assertNotNull;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyString;
 import static org.mockito.Mockito.doReturn;
@@ -18,6 +19,7 @@ import fi.helsinki.cs.tmc.cli.io.Io;
 import fi.helsinki.cs.tmc.cli.io.TestIo;
 import fi.helsinki.cs.tmc.cli.io.WorkDir;
 import fi.helsinki.cs.tmc.cli.updater.AutoUpdater;
+import fi.helsinki.cs.tmc.cli.updater.ReleaseInfo;
 
 import fi.helsinki.cs.tmc.core.TmcCore;
 import fi.helsinki.cs.tmc.langs.util.TaskExecutor;
@@ -59,6 +61,22 @@ public class ApplicationTest {
         io.assertNotContains("Command foo doesn't exist.");
     }
 
+    @Test
+    public void traceStartupPrintsPhaseTimings() {
+        String[] args = {"--trace-startup", "-v"};
+        app.run(args);
+        io.assertContains("Startup trace:");
+        io.assertContains("arguments");
+        io.assertContains("total");
+    }
+
+    @Test
+    public void startupTraceIsNotPrintedByDefault() {
+        String[] args = {"-v"};
+        app.run(args);
+        io.assertNotContains("Startup trace:");
+    }
+
     @Test
     public void failWhenInvalidOption() {
         String[] args = {"-a34t3"};
@@ -138,6 +156,68 @@ public class ApplicationTest {
         AutoUpdater.createUpdater(any(Io.class), anyString(), any(Boolean.class));
     }
 
+    @Test
+    public void failedUpdateCheckSavesTheCheckDate() {
+        AutoUpdater mockUpdater = mock(AutoUpdater.class);
+        when(AutoUpdater.createUpdater(any(Io.class), anyString(), any(Boolean.class)))
+                .thenReturn(mockUpdater);
+        when(mockUpdater.fetchLatestRelease(anyString()))
+                .thenThrow(new RuntimeException("network is down"));
+
+        HashMap<String, String> properties = runWithUpdateCheck();
+        assertNotNull(properties.get("update-date"));
+    }
+
+    @Test
+    public void timedOutUpdateCheckSavesTheCheckDate() {
+        AutoUpdater mockUpdater = mock(AutoUpdater.class);
+        when(AutoUpdater.createUpdater(any(Io.class), anyString(), any(Boolean.class)))
+                .thenReturn(mockUpdater);
+        when(mockUpdater.fetchLatestRelease(anyString())).thenAnswer(invocation -> {
+            Thread.sleep(10000);
+            return null;
+        });
+
+        HashMap<String, String> properties = runWithUpdateCheck();
+        assertNotNull(properties.get("update-date"));
+    }
+
+    @Test
+    public void declinedReleaseIsOfferedAgainAfterTheNextCheck() {
+        AutoUpdater mockUpdater = mock(AutoUpdater.class);
+        when(AutoUpdater.createUpdater(any(Io.class), anyString(), any(Boolean.class)))
+                .thenReturn(mockUpdater);
+        HashMap<String, String> properties = new HashMap<>();
+        properties.put(ReleaseInfo.ETAG_KEY, "\"abc\"");
+        properties.put("update-available", "{\"etag\": \"\\\"abc\\\"\", \"version\": \"9.9.9\", "
+                + "\"assetName\": \"tmc\", \"downloadUrl\": \"https://example.com/tmc\"}");
+        ReleaseInfo release = ReleaseInfo.fromProperties(properties);
+        // the user declines the release
+        when(mockUpdater.install(any(ReleaseInfo.class))).thenReturn(false);
+        // and GitHub answers "not modified" if the ETag of the release is sent
+        ReleaseInfo notModified = mock(ReleaseInfo.class);
+        when(mockUpdater.fetchLatestRelease(anyString())).thenAnswer(invocation ->
+                invocation.getArguments()[0] != null ? notModified : release);
+
+        runWithUpdateCheck(properties);
+        verify(mockUpdater).install(any(ReleaseInfo.class));
+        assertNotNull(ReleaseInfo.fromProperties(properties));
+    }
+
+    private HashMap<String, String> runWithUpdateCheck() {
+        return runWithUpdateCheck(new HashMap<>());
+    }
+
+    private HashMap<String, String> runWithUpdateCheck(HashMap<String, String> properties) {
+        CliContext ctx = spy(new CliContext(null, null, new WorkDir(), new Settings(), null));
+        when(ctx.getProperties()).thenReturn(properties);
+        doReturn(true).when(ctx).saveProperties();
+
+        app = new Application(ctx);
+        app.run(new String[] {"help"});
+        return properties;
+    }
+
     @Test
     public void runWithForceUpdate() {
         String[] args = {"--force-update", "foo"};
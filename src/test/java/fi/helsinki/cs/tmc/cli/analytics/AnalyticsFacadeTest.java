@@ -20,9 +20,15 @@ import org.powermock.modules.junit4.PowerMockRunner;
 
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
+import static junit.framework.Assert.assertFalse;
 import static junit.framework.Assert.assertNotNull;
+import static junit.framework.Assert.assertTrue;
+import static org.mockito.Matchers.anyLong;
 import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.when;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.times;
@@ -86,4 +92,36 @@ public class AnalyticsFacadeTest {
         verify(eventSendBuffer, times(1)).receiveEvent(any(LoggableEvent.class));
     }
 
+    @Test
+    public void identicalEventsAreSavedOnlyOnce() {
+        analyticsFacade.saveAnalytics("courses");
+        analyticsFacade.saveAnalytics("courses");
+        analyticsFacade.saveAnalytics("help");
+        verify(eventSendBuffer, never()).receiveEvent(any(LoggableEvent.class));
+
+        analyticsFacade.flush();
+        assertTrue(analyticsFacade.awaitCompletion(5, TimeUnit.SECONDS));
+        verify(eventSendBuffer, times(2)).receiveEvent(any(LoggableEvent.class));
+        verify(eventSendBuffer, times(1)).saveNow(anyLong());
+    }
+
+    @Test
+    public void hangingSendDoesNotKeepEventsFromBeingSaved() {
+        CountDownLatch release = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            release.await();
+            return null;
+        }).when(eventSendBuffer).sendNow();
+
+        try {
+            analyticsFacade.sendAnalytics();
+            analyticsFacade.saveAnalytics("courses");
+            analyticsFacade.flush();
+            assertFalse(analyticsFacade.awaitCompletion(1, TimeUnit.SECONDS));
+            verify(eventSendBuffer, times(1)).receiveEvent(any(LoggableEvent.class));
+            verify(eventSendBuffer, times(1)).saveNow(anyLong());
+        } finally {
+            release.countDown();
+        }
+    }
 }
@@ -0,0 +1,102 @@
+package fi.helsinki.cs.tmc.cli.backend;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+public class AtomicFilesTest {
+
+    private Path tempDir;
+    private Path file;
+
+    @Before
+    public void setUp() throws IOException {
+        tempDir = Paths.get(System.getProperty("java.io.tmpdir")).resolve("atomic-files-test");
+        Files.createDirectories(tempDir);
+        file = tempDir.resolve("counter");
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        FileUtils.deleteDirectory(tempDir.toFile());
+    }
+
+    @Test
+    public void lockedUpdatesAreNotLost() throws Exception {
+        AtomicFiles.replace(file, "0".getBytes(StandardCharsets.UTF_8));
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            Thread thread = new Thread(() -> {
+                for (int j = 0; j < 25; j++) {
+                    try {
+                        AtomicFiles.locked(file, () -> {
+                            int value = Integer.parseInt(new String(
+                                    Files.readAllBytes(file), StandardCharsets.UTF_8));
+                            AtomicFiles.replace(file, Integer.toString(value + 1)
+                                    .getBytes(StandardCharsets.UTF_8));
+                            return null;
+                        });
+                    } catch (IOException e) {
+                        throw new RuntimeException(e);
+                    }
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals("100", new String(Files.readAllBytes(file), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void lockFileIsNotCreatedNextToTheFile() throws IOException {
+        AtomicFiles.locked(file, () -> null);
+        assertFalse(Files.exists(tempDir.resolve("counter.lock")));
+        assertTrue(Files.exists(AtomicFiles.getLockFile(file)));
+    }
+
+    @Test
+    public void filesInDifferentDirectoriesHaveTheirOwnLocks() throws IOException {
+        Path other = tempDir.resolve("other").resolve("counter");
+        assertNotEquals(AtomicFiles.getLockFile(file), AtomicFiles.getLockFile(other));
+    }
+
+    @Test
+    public void lockIsReentrant() throws IOException {
+        String result = AtomicFiles.locked(file, () -> AtomicFiles.locked(file, () -> "inner"));
+        assertEquals("inner", result);
+    }
+
+    @Test
+    public void failedWriteKeepsTheOldFile() throws IOException {
+        AtomicFiles.replace(file, "old".getBytes(StandardCharsets.UTF_8));
+        try {
+            AtomicFiles.replace(file, out -> {
+                out.write("new".getBytes(StandardCharsets.UTF_8));
+                throw new IOException("disk full");
+            });
+        } catch (IOException e) {
+            // expected
+        }
+        assertEquals("old", new String(Files.readAllBytes(file), StandardCharsets.UTF_8));
+        for (String name : tempDir.toFile().list()) {
+            assertFalse(name.endsWith(".tmp"));
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package fi.helsinki.cs.tmc.cli.backend;
 
 import fi.helsinki.cs.tmc.core.domain.Course;
+import fi.helsinki.cs.tmc.core.domain.Exercise;
 
 import fi.helsinki.cs.tmc.core.domain.Organization;
 import junit.framework.Assert;
@@ -67,4 +68,103 @@ public class CourseInfoIoTest {
         Path courseJson = Paths.get(tempDir).resolve(".tmc.json");
         assertTrue(!Files.exists(courseJson));
     }
+
+    @Test
+    public void savingDoesNotLeaveTemporaryFiles() throws IOException {
+        CourseInfoIo.save(this.course, this.courseFile);
+        CourseInfoIo.save(this.course, this.courseFile);
+
+        for (String file : this.courseFile.getParent().toFile().list()) {
+            Assert.assertFalse(file.endsWith(".tmp"));
+        }
+    }
+
+    @Test
+    public void unchangedCourseInfoIsNotWrittenAgain() throws IOException {
+        CourseInfoIo.save(this.course, this.courseFile);
+        CourseInfo loadedInfo = CourseInfoIo.load(this.courseFile);
+        Files.write(this.courseFile, "not written".getBytes("UTF-8"));
+
+        Assert.assertTrue(CourseInfoIo.saveIfChanged(loadedInfo, this.courseFile));
+        Assert.assertEquals("not written",
+                new String(Files.readAllBytes(this.courseFile), "UTF-8"));
+    }
+
+    @Test
+    public void changedCourseInfoIsWritten() throws IOException {
+        CourseInfoIo.save(this.course, this.courseFile);
+        CourseInfo loadedInfo = CourseInfoIo.load(this.courseFile);
+        loadedInfo.addLocalCompletedExercise("test-exercise");
+
+        Assert.assertTrue(CourseInfoIo.saveIfChanged(loadedInfo, this.courseFile));
+        CourseInfo reloadedInfo = CourseInfoIo.load(this.courseFile);
+        Assert.assertTrue(reloadedInfo.isLocallyCompleted("test-exercise"));
+    }
+
+    @Test
+    public void loadingInvalidFileReturnsNull() throws IOException {
+        Files.createDirectories(this.courseFile.getParent());
+        Files.write(this.courseFile, "{\"username\": [".getBytes("UTF-8"));
+
+        Assert.assertNull(CourseInfoIo.load(this.courseFile));
+    }
+
+    @Test
+    public void loadingUsesSnapshotWhenItIsUpToDate() {
+        this.course.getExercises().add(new Exercise("test-exercise", "test-course"));
+        CourseInfoIo.save(this.course, this.courseFile);
+        Assert.assertTrue(Files.exists(CourseInfoSnapshot.getSnapshotFile(this.courseFile)));
+
+        CourseInfo loadedInfo = CourseInfoIo.load(this.courseFile);
+        Assert.assertTrue(loadedInfo.getCourse().getExercises() instanceof LazyExerciseList);
+        Assert.assertEquals("test-exercise", loadedInfo.getExercise("test-exercise").getName());
+        Assert.assertEquals(this.course.getUsername(), loadedInfo.getUsername());
+    }
+
+    @Test
+    public void loadingIgnoresSnapshotOfChangedFile() throws IOException {
+        this.course.getExercises().add(new Exercise("test-exercise", "test-course"));
+        CourseInfoIo.save(this.course, this.courseFile);
+        String json = new String(Files.readAllBytes(this.courseFile), "UTF-8");
+        Files.write(this.courseFile,
+                json.replace("test-exercise", "other-exercise").getBytes("UTF-8"));
+
+        CourseInfo loadedInfo = CourseInfoIo.load(this.courseFile);
+        Assert.assertFalse(loadedInfo.getExercises() instanceof LazyExerciseList);
+        Assert.assertNotNull(loadedInfo.getExercise("other-exercise"));
+    }
+
+    @Test
+    public void completedExercisesOfAnotherProcessAreKept() {
+        CourseInfoIo.save(this.course, this.courseFile);
+        CourseInfo first = CourseInfoIo.load(this.courseFile);
+        CourseInfo second = CourseInfoIo.load(this.courseFile);
+
+        first.addLocalCompletedExercise("first");
+        second.addLocalCompletedExercise("second");
+        CourseInfoIo.save(first, this.courseFile);
+        CourseInfoIo.save(second, this.courseFile);
+
+        CourseInfo reloadedInfo = CourseInfoIo.load(this.courseFile);
+        assertTrue(reloadedInfo.isLocallyCompleted("first"));
+        assertTrue(reloadedInfo.isLocallyCompleted("second"));
+    }
+
+    @Test
+    public void removedCompletionIsMerged() {
+        this.course.addLocalCompletedExercise("first");
+        CourseInfoIo.save(this.course, this.courseFile);
+        CourseInfo first = CourseInfoIo.load(this.courseFile);
+        CourseInfo second = CourseInfoIo.load(this.courseFile);
+
+        first.setProperty("key", "value");
+        second.removeLocalCompletedExercise("first");
+        CourseInfoIo.save(first, this.courseFile);
+        CourseInfoIo.save(second, this.courseFile);
+
+        CourseInfo reloadedInfo = CourseInfoIo.load(this.courseFile);
+        Assert.assertFalse(reloadedInfo.isLocallyCompleted("first"));
+        Assert.assertEquals("value", reloadedInfo.getPropertyString("key"));
+    }
 }
+
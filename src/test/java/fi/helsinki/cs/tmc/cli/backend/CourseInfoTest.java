@@ -111,4 +111,77 @@ public class CourseInfoTest {
         assertEquals(got.get(0), "test-exercise1");
         assertEquals(got.get(1), "test-exercise2");
     }
+
+    @Test
+    public void findsExercisesAddedDirectlyToTheList() {
+        assertEquals(null, courseInfo.getExercise("test-exercise"));
+        courseInfo.getExercises().add(new Exercise("test-exercise", "test-course"));
+
+        assertEquals("test-exercise", courseInfo.getExercise("test-exercise").getName());
+    }
+
+    @Test
+    public void findsExercisesAfterTheListIsReordered() {
+        courseInfo.getExercises().add(new Exercise("test-exercise1", "test-course"));
+        courseInfo.getExercises().add(new Exercise("test-exercise2", "test-course"));
+        assertEquals("test-exercise1", courseInfo.getExercise("test-exercise1").getName());
+
+        courseInfo.getExercises().remove(0);
+        assertEquals(null, courseInfo.getExercise("test-exercise1"));
+        assertEquals("test-exercise2", courseInfo.getExercise("test-exercise2").getName());
+    }
+
+    @Test
+    public void findsExercisesReplacedDirectlyInTheList() {
+        courseInfo.getExercises().add(new Exercise("test-exercise1", "test-course"));
+        assertEquals("test-exercise1", courseInfo.getExercise("test-exercise1").getName());
+
+        courseInfo.getExercises().set(0, new Exercise("test-exercise2", "test-course"));
+        assertEquals(null, courseInfo.getExercise("test-exercise1"));
+        assertEquals("test-exercise2", courseInfo.getExercise("test-exercise2").getName());
+        assertEquals(1, courseInfo.getExercisesMatchingPrefix("test-exercise2").size());
+    }
+
+    @Test
+    public void addsAndRemovesLocallyCompletedExercises() {
+        courseInfo.addLocalCompletedExercise("test-exercise");
+        courseInfo.addLocalCompletedExercise("test-exercise");
+        assertTrue(courseInfo.isLocallyCompleted("test-exercise"));
+        assertEquals(1, courseInfo.getLocalCompletedExercises().size());
+
+        courseInfo.removeLocalCompletedExercise("test-exercise");
+        assertFalse(courseInfo.isLocallyCompleted("test-exercise"));
+        assertTrue(courseInfo.getLocalCompletedExercises().isEmpty());
+    }
+
+    @Test
+    public void seesLocallyCompletedExercisesAddedDirectlyToTheList() {
+        assertFalse(courseInfo.isLocallyCompleted("test-exercise"));
+        courseInfo.getLocalCompletedExercises().add("test-exercise");
+
+        assertTrue(courseInfo.isLocallyCompleted("test-exercise"));
+
+        courseInfo.getLocalCompletedExercises().set(0, "other-exercise");
+        assertFalse(courseInfo.isLocallyCompleted("test-exercise"));
+        assertTrue(courseInfo.isLocallyCompleted("other-exercise"));
+    }
+
+    @Test
+    public void findsExercisesMatchingPrefixInCourseOrder() {
+        courseInfo.getExercises().add(new Exercise("week2-b", "test-course"));
+        courseInfo.getExercises().add(new Exercise("week1", "test-course"));
+        courseInfo.getExercises().add(new Exercise("week2-a", "test-course"));
+        courseInfo.getExercises().add(new Exercise("week3-a", "test-course"));
+
+        List<Exercise> got = courseInfo.getExercisesMatchingPrefix("week2");
+        assertEquals(2, got.size());
+        assertEquals("week2-b", got.get(0).getName());
+        assertEquals("week2-a", got.get(1).getName());
+
+        got = courseInfo.getExercisesMatchingPrefix("week1-src");
+        assertEquals(1, got.size());
+        assertEquals("week1", got.get(0).getName());
+
+        assertEquals(4, courseInfo.getExercisesMatchingPrefix("").size());
+    }
 }
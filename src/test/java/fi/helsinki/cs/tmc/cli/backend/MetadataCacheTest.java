@@ -0,0 +1,115 @@
+package fi.helsinki.cs.tmc.cli.backend;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import fi.helsinki.cs.tmc.core.domain.Course;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+public class MetadataCacheTest {
+
+    private Path cacheDir;
+    private Settings settings;
+    private MetadataCache cache;
+
+    @Before
+    public void setUp() {
+        cacheDir = Paths.get(System.getProperty("java.io.tmpdir")).resolve("metadata-cache-test");
+        settings = new Settings("username", null, null);
+        cache = new MetadataCache(cacheDir);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        FileUtils.deleteDirectory(cacheDir.toFile());
+    }
+
+    @Test
+    public void returnsStoredCourses() {
+        List<Course> courses = Arrays.asList(new Course("first"), new Course("second"));
+        cache.put(settings, MetadataCache.COURSES, courses);
+
+        List<Course> cached =
+                cache.get(settings, MetadataCache.COURSES, MetadataCache.COURSE_LIST_TYPE);
+        assertNotNull(cached);
+        assertEquals(2, cached.size());
+        assertEquals("second", cached.get(1).getName());
+    }
+
+    @Test
+    public void entriesAreStoredPerAccount() {
+        cache.put(settings, MetadataCache.courseDetails("course"), new Course("course"));
+
+        Settings otherSettings = new Settings("other", null, null);
+        assertNull(cache.get(otherSettings, MetadataCache.courseDetails("course"), Course.class));
+    }
+
+    @Test
+    public void expiredEntriesAreNotReturned() {
+        cache = new MetadataCache(cacheDir, -1, 1024 * 1024);
+        cache.put(settings, MetadataCache.courseDetails("course"), new Course("course"));
+
+        assertNull(cache.get(settings, MetadataCache.courseDetails("course"), Course.class));
+    }
+
+    @Test
+    public void courseIndexDoesNotExpire() {
+        cache = new MetadataCache(cacheDir, -1, 1024 * 1024);
+        cache.put(settings, MetadataCache.COURSE_INDEX,
+                Collections.singletonMap("course", new Course("course")));
+
+        Map<String, Course> index = cache.get(settings, MetadataCache.COURSE_INDEX,
+                MetadataCache.COURSE_INDEX_TYPE, MetadataCache.NEVER_EXPIRES);
+        assertNotNull(index);
+        assertEquals("course", index.get("course").getName());
+    }
+
+    @Test
+    public void invalidatedCourseIsNotReturned() {
+        cache.put(settings, MetadataCache.courseDetails("course"), new Course("course"));
+        cache.invalidateCourse(settings, "course");
+
+        assertNull(cache.get(settings, MetadataCache.courseDetails("course"), Course.class));
+    }
+
+    @Test
+    public void oldEntriesAreEvictedWhenCacheIsFull() {
+        cache = new MetadataCache(cacheDir, 60 * 1000, 1);
+        cache.put(settings, MetadataCache.courseDetails("course"), new Course("course"));
+
+        assertNull(cache.get(settings, MetadataCache.courseDetails("course"), Course.class));
+    }
+
+    @Test
+    public void disabledCacheDoesNotStoreAnything() {
+        cache = new MetadataCache(null);
+        assertFalse(cache.isEnabled());
+        cache.put(settings, MetadataCache.courseDetails("course"), new Course("course"));
+
+        assertNull(cache.get(settings, MetadataCache.courseDetails("course"), Course.class));
+    }
+
+    @Test
+    public void clearRemovesTheCacheDirectory() {
+        cache.put(settings, MetadataCache.courseDetails("course"), new Course("course"));
+        cache.clear();
+
+        assertFalse(cacheDir.toFile().exists());
+        assertTrue(cache.isEnabled());
+    }
+}
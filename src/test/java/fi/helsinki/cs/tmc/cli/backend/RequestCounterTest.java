@@ -0,0 +1,35 @@
+package fi.helsinki.cs.tmc.cli.backend;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.apache.http.HttpException;
+import org.apache.http.HttpHost;
+import org.apache.http.message.BasicHttpRequest;
+import org.apache.http.protocol.BasicHttpContext;
+import org.junit.Test;
+
+public class RequestCounterTest {
+
+    @Test
+    public void requestsAreCountedPerHost() throws HttpException {
+        RequestCounter counter = RequestCounter.getInstance();
+        HttpHost host = new HttpHost("counter.example.com", 443, "https");
+        int before = counter.getRequests().getOrDefault(host.toHostString(), 0);
+
+        counter.determineRoute(host, new BasicHttpRequest("GET", "/"), new BasicHttpContext());
+        counter.determineRoute(host, new BasicHttpRequest("POST", "/"), new BasicHttpContext());
+
+        assertEquals(before + 2, (int) counter.getRequests().get(host.toHostString()));
+    }
+
+    @Test
+    public void resetForgetsTheRequests() throws HttpException {
+        RequestCounter counter = RequestCounter.getInstance();
+        HttpHost host = new HttpHost("reset.example.com", 443, "https");
+        counter.determineRoute(host, new BasicHttpRequest("GET", "/"), new BasicHttpContext());
+
+        counter.reset();
+        assertTrue(counter.getRequests().isEmpty());
+    }
+}
@@ -13,6 +13,7 @@ import org.junit.Test;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
 import java.util.HashMap;
 
 public class SettingsIoTest {
@@ -134,4 +135,121 @@ public class SettingsIoTest {
         assertEquals("new", newList.getAccount("username").getOrganization().get().getName());
         SettingsIo.delete();
     }
+
+    @Test
+    public void propertiesAreReloadedWhenTheFileChanges() throws Exception {
+        HashMap<String, String> props = new HashMap<>();
+        props.put("key", "old");
+        SettingsIo.savePropertiesTo(props, tempDir);
+
+        Files.write(tempDir.resolve(SettingsIo.PROPERTIES_CONFIG),
+                "{\"key\":\"changed\"}".getBytes("UTF-8"));
+        assertEquals("changed", SettingsIo.loadPropertiesFrom(tempDir).get("key"));
+    }
+
+    @Test
+    public void saveKeepsChangesThatOnlyChangedTheContent() throws Exception {
+        HashMap<String, String> props = new HashMap<>();
+        props.put("key", "old");
+        SettingsIo.savePropertiesTo(props, tempDir);
+
+        // another process writes a file of the same size within the same timestamp
+        Path file = tempDir.resolve(SettingsIo.PROPERTIES_CONFIG);
+        FileTime modified = Files.getLastModifiedTime(file);
+        Files.write(file, "{\"key\":\"new\"}".getBytes("UTF-8"));
+        Files.setLastModifiedTime(file, modified);
+
+        props = SettingsIo.loadPropertiesFrom(tempDir);
+        props.put("other", "value");
+        SettingsIo.savePropertiesTo(props, tempDir);
+        assertEquals("new", SettingsIo.loadPropertiesFrom(tempDir).get("key"));
+        assertEquals("value", SettingsIo.loadPropertiesFrom(tempDir).get("other"));
+    }
+
+    @Test
+    public void unchangedFileIsNotRewritten() throws Exception {
+        HashMap<String, String> props = new HashMap<>();
+        props.put("key", "old");
+        SettingsIo.savePropertiesTo(props, tempDir);
+
+        // another process has already saved the same change
+        Path file = tempDir.resolve(SettingsIo.PROPERTIES_CONFIG);
+        Files.write(file, "{\"key\":\"newer\"}".getBytes("UTF-8"));
+        FileTime modified = FileTime.fromMillis(1000);
+        Files.setLastModifiedTime(file, modified);
+
+        props.put("key", "newer");
+        SettingsIo.savePropertiesTo(props, tempDir);
+        assertEquals(modified, Files.getLastModifiedTime(file));
+        assertEquals("newer", SettingsIo.loadPropertiesFrom(tempDir).get("key"));
+    }
+
+    @Test
+    public void loadedPropertiesAreCopies() {
+        HashMap<String, String> props = new HashMap<>();
+        props.put("key", "value");
+        SettingsIo.savePropertiesTo(props, tempDir);
+
+        SettingsIo.loadPropertiesFrom(tempDir).put("key", "changed");
+        assertEquals("value", SettingsIo.loadPropertiesFrom(tempDir).get("key"));
+    }
+
+    @Test
+    public void loadedAccountListsAreCopies() {
+        accountList.addAccount(account);
+        SettingsIo.saveAccountList(accountList, tempDir);
+        accountList.deleteAllAccounts();
+
+        AccountList loaded = SettingsIo.loadAccountList(tempDir);
+        loaded.addAccount(new Account("unsaved", "password",
+                new Organization("org", "", "", "", false)));
+        assertEquals(1, SettingsIo.loadAccountList(tempDir).getAccountCount());
+    }
+
+    @Test
+    public void accountChangesAreWrittenByFlush() {
+        Settings settings = new Settings("flushuser", "password",
+                new Organization("org", "", "", "", false));
+        settings.setServerAddress(STUB_SERVER);
+        SettingsIo.saveCurrentSettingsToAccountList(settings);
+        SettingsIo.flush();
+
+        Path file = SettingsIo.getConfigDirectory().resolve(SettingsIo.ACCOUNTS_CONFIG);
+        assertTrue(Files.exists(file));
+        assertNotNull(SettingsIo.loadAccountList().getAccount("flushuser"));
+        SettingsIo.delete();
+    }
+
+    @Test
+    public void accountsSavedByAnotherProcessAreKept() {
+        accountList.addAccount(account);
+        SettingsIo.saveAccountList(accountList, tempDir);
+
+        AccountList otherList = new AccountList();
+        otherList.addAccount(new Account("otheruser", "otherpassword"));
+        SettingsIo.saveAccountList(otherList, tempDir);
+
+        AccountList loadedList = SettingsIo.loadAccountList(tempDir);
+        assertEquals(2, loadedList.getAccountCount());
+        assertEquals("otheruser", loadedList.getAccount().getUsername().get());
+    }
+
+    @Test
+    public void propertiesSavedByAnotherProcessAreKept() throws Exception {
+        HashMap<String, String> props = new HashMap<>();
+        props.put("first", "1");
+        SettingsIo.savePropertiesTo(props, tempDir);
+        HashMap<String, String> loadedProps = SettingsIo.loadPropertiesFrom(tempDir);
+
+        Files.write(tempDir.resolve(SettingsIo.PROPERTIES_CONFIG),
+                "{\"first\":\"1\",\"second\":\"2\"}".getBytes("UTF-8"));
+        loadedProps.put("third", "3");
+        SettingsIo.savePropertiesTo(loadedProps, tempDir);
+
+        HashMap<String, String> savedProps = SettingsIo.loadPropertiesFrom(tempDir);
+        assertEquals("1", savedProps.get("first"));
+        assertEquals("2", savedProps.get("second"));
+        assertEquals("3", savedProps.get("third"));
+    }
 }
+
@@ -0,0 +1,118 @@
+package fi.helsinki.cs.tmc.cli.backend;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import fi.helsinki.cs.tmc.core.domain.Exercise;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+
+public class TemplateStoreTest {
+
+    private Path tempDir;
+    private TemplateStore store;
+
+    @Before
+    public void setUp() throws IOException {
+        tempDir = Paths.get(System.getProperty("java.io.tmpdir")).resolve("template-store-test");
+        Files.createDirectories(tempDir);
+        store = new TemplateStore(tempDir.resolve("templates"));
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        FileUtils.deleteDirectory(tempDir.toFile());
+    }
+
+    @Test
+    public void storedTemplateIsExtracted() throws IOException {
+        Exercise exercise = exercise("first", "abc");
+        store.store(exercise, createExercise("first", "template"));
+        assertTrue(store.contains(exercise));
+
+        Path target = tempDir.resolve("copy").resolve("first");
+        assertTrue(store.extract(exercise, target));
+        assertEquals("template", new String(
+                Files.readAllBytes(target.resolve("src/Main.java")), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void otherVersionIsNotExtracted() throws IOException {
+        store.store(exercise("first", "abc"), createExercise("first", "template"));
+
+        Path target = tempDir.resolve("copy").resolve("first");
+        assertFalse(store.extract(exercise("first", "def"), target));
+        assertFalse(Files.exists(target));
+    }
+
+    @Test
+    public void existingDirectoryIsNotOverwritten() throws IOException {
+        Exercise exercise = exercise("first", "abc");
+        store.store(exercise, createExercise("first", "template"));
+
+        Path target = createExercise("first", "changed");
+        assertFalse(store.extract(exercise, target));
+        assertEquals("changed", new String(
+                Files.readAllBytes(target.resolve("src/Main.java")), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void exerciseWithoutChecksumIsNotStored() throws IOException {
+        Exercise exercise = exercise("first", null);
+        store.store(exercise, createExercise("first", "template"));
+
+        assertFalse(store.contains(exercise));
+        assertTrue(store.list().isEmpty());
+    }
+
+    @Test
+    public void pruneRemovesLeastRecentlyUsedTemplates() throws IOException {
+        Exercise first = exercise("first", "abc");
+        Exercise second = exercise("second", "def");
+        store.store(first, createExercise("first", "template"));
+        store.store(second, createExercise("second", "template"));
+        Files.setLastModifiedTime(tempDir.resolve("templates").resolve("abc"),
+                java.nio.file.attribute.FileTime.fromMillis(0));
+
+        assertEquals(1, store.prune(store.getSize() - 1));
+
+        List<TemplateStore.Entry> entries = store.list();
+        assertEquals(1, entries.size());
+        assertEquals("second", entries.get(0).getName());
+        assertFalse(store.contains(first));
+    }
+
+    @Test
+    public void disabledStoreDoesNothing() throws IOException {
+        TemplateStore disabled = new TemplateStore(null);
+        Exercise exercise = exercise("first", "abc");
+        disabled.store(exercise, createExercise("first", "template"));
+
+        assertFalse(disabled.contains(exercise));
+        assertTrue(disabled.list().isEmpty());
+    }
+
+    private Path createExercise(String name, String content) throws IOException {
+        Path dir = tempDir.resolve("course").resolve(name);
+        Files.createDirectories(dir.resolve("src"));
+        Files.write(dir.resolve("src/Main.java"), content.getBytes(StandardCharsets.UTF_8));
+        return dir;
+    }
+
+    private static Exercise exercise(String name, String checksum) {
+        Exercise exercise = new Exercise(name);
+        exercise.setChecksum(checksum);
+        return exercise;
+    }
+}
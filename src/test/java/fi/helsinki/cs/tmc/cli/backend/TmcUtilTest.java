@@ -9,6 +9,7 @@ import static org.mockito.Matchers.anyListOf;
 import static org.mockito.Matchers.anyString;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -48,15 +49,22 @@ import org.powermock.api.mockito.PowerMockito;
 import org.powermock.core.classloader.annotations.PrepareForTest;
 import org.powermock.modules.junit4.PowerMockRunner;
 
+import java.io.IOException;
 import java.net.InetAddress;
 import java.net.UnknownHostException;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 @RunWith(PowerMockRunner.class)
 @PrepareForTest({RunResult.class, InetAddress.class, TmcUtil.class})
@@ -139,6 +147,15 @@ public class TmcUtilTest {
         assertFalse(TmcUtil.hasConnection(ctx));
     }
 
+    @Test
+    public void connectionIsCheckedFromTheServerAddress() throws UnknownHostException {
+        mockStatic(InetAddress.class);
+        when(InetAddress.getByName(anyString())).thenThrow(new UnknownHostException());
+        when(InetAddress.getByName("tmc.example.com")).thenReturn(null);
+        ctx.getSettings().setServerAddress("https://tmc.example.com/api");
+        assertTrue(TmcUtil.hasConnection(ctx));
+    }
+
     @Test
     public void failToLogin() throws URISyntaxException {
         when(mockCore.listCourses(any(ProgressObserver.class)))
@@ -158,6 +175,43 @@ public class TmcUtilTest {
         assertEquals(expectedResult, result);
     }
 
+    @Test
+    public void hangingAccountRequestDoesNotBlockTheMainContext() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(mockCore.listCourses(any(ProgressObserver.class))).thenAnswer(invocation -> {
+            String server = TmcSettingsHolder.get().getServerAddress();
+            return (Callable<List<Course>>) () -> {
+                if (server.equals("https://hanging.example.com")) {
+                    started.countDown();
+                    release.await();
+                }
+                return Collections.singletonList(new Course(server));
+            };
+        });
+        CliContext hanging = ctx.createAccountContext(accountOn("https://hanging.example.com"));
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            executor.submit(() -> TmcUtil.listCourses(hanging));
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+            Future<List<Course>> courses = executor.submit(() -> TmcUtil.listCourses(ctx));
+
+            assertEquals(
+                    Collections.singletonList(new Course(ctx.getSettings().getServerAddress())),
+                    courses.get(5, TimeUnit.SECONDS));
+        } finally {
+            release.countDown();
+            executor.shutdown();
+        }
+    }
+
+    private static Account accountOn(String serverAddress) {
+        Account account = new Account(USERNAME, PASSWORD, ORGANIZATION);
+        account.setServerAddress(serverAddress);
+        return account;
+    }
+
     @Test
     public void findCourseWhenItExists() {
         Course expectedResult = new Course("test-course");
@@ -170,6 +224,30 @@ public class TmcUtilTest {
         assertEquals(expectedResult, result);
     }
 
+    @Test
+    public void knownCourseIsFoundWithoutListingCourses() throws IOException {
+        ctx.setMetadataCache(new MetadataCache(Files.createTempDirectory("tmc-cache")));
+        List<Course> courses = Collections.singletonList(new Course("test-course"));
+        when(mockCore.listCourses(any(ProgressObserver.class)))
+                .thenReturn(createReturningCallback(courses));
+
+        assertEquals(new Course("test-course"), TmcUtil.findCourse(ctx, "test-course"));
+        ctx.getMetadataCache().invalidateCourse(ctx.getSettings(), "test-course");
+        assertEquals(new Course("test-course"), TmcUtil.findCourse(ctx, "test-course"));
+
+        verify(mockCore, times(1)).listCourses(any(ProgressObserver.class));
+        verify(mockCore, times(2)).getCourseDetails(any(ProgressObserver.class), any(Course.class));
+        ctx.getMetadataCache().clear();
+    }
+
+    @Test
+    public void refreshCourseFetchesDetailsDirectly() {
+        Course course = new Course("test-course");
+        assertEquals(course, TmcUtil.refreshCourse(ctx, course));
+
+        verify(mockCore, never()).listCourses(any(ProgressObserver.class));
+    }
+
     @Test
     public void returnNullWhenCourseWontExist() {
         List<Course> courses = Arrays.asList(new Course("course"), new Course("another"));
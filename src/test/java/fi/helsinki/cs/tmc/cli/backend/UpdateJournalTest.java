@@ -0,0 +1,72 @@
+package fi.helsinki.cs.tmc.cli.backend;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import fi.helsinki.cs.tmc.core.domain.Exercise;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+public class UpdateJournalTest {
+
+    private Path courseDir;
+
+    @Before
+    public void setUp() throws IOException {
+        courseDir = Paths.get(System.getProperty("java.io.tmpdir")).resolve("update-journal-test");
+        Files.createDirectories(courseDir);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        FileUtils.deleteDirectory(courseDir.toFile());
+    }
+
+    @Test
+    public void downloadedExercisesAreRememberedAfterReopening() {
+        UpdateJournal.open(courseDir).markDownloaded(exercise("first", "abc"));
+
+        UpdateJournal journal = UpdateJournal.open(courseDir);
+        assertTrue(journal.isDownloaded(exercise("first", "abc")));
+        assertFalse(journal.isDownloaded(exercise("second", "abc")));
+    }
+
+    @Test
+    public void changedExerciseIsNotDownloaded() {
+        UpdateJournal.open(courseDir).markDownloaded(exercise("first", "abc"));
+
+        assertFalse(UpdateJournal.open(courseDir).isDownloaded(exercise("first", "def")));
+    }
+
+    @Test
+    public void exerciseWithoutChecksumIsNeverDownloaded() {
+        UpdateJournal journal = UpdateJournal.open(courseDir);
+        journal.markDownloaded(exercise("first", null));
+
+        assertFalse(journal.isDownloaded(exercise("first", null)));
+    }
+
+    @Test
+    public void deleteRemovesTheJournal() {
+        UpdateJournal journal = UpdateJournal.open(courseDir);
+        journal.markDownloaded(exercise("first", "abc"));
+        journal.delete();
+
+        assertFalse(Files.exists(courseDir.resolve(UpdateJournal.JOURNAL_FILE)));
+        assertFalse(UpdateJournal.open(courseDir).isDownloaded(exercise("first", "abc")));
+    }
+
+    private static Exercise exercise(String name, String checksum) {
+        Exercise exercise = new Exercise(name);
+        exercise.setChecksum(checksum);
+        return exercise;
+    }
+}
@@ -0,0 +1,106 @@
+package fi.helsinki.cs.tmc.cli.command;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.when;
+import static org.powermock.api.mockito.PowerMockito.mockStatic;
+
+import fi.helsinki.cs.tmc.cli.Application;
+import fi.helsinki.cs.tmc.cli.analytics.AnalyticsFacade;
+import fi.helsinki.cs.tmc.cli.backend.AccountList;
+import fi.helsinki.cs.tmc.cli.backend.Settings;
+import fi.helsinki.cs.tmc.cli.backend.SettingsIo;
+import fi.helsinki.cs.tmc.cli.backend.TemplateStore;
+import fi.helsinki.cs.tmc.cli.core.CliContext;
+import fi.helsinki.cs.tmc.cli.io.TestIo;
+import fi.helsinki.cs.tmc.cli.io.WorkDir;
+
+import fi.helsinki.cs.tmc.core.TmcCore;
+import fi.helsinki.cs.tmc.core.domain.Exercise;
+import fi.helsinki.cs.tmc.langs.util.TaskExecutorImpl;
+import fi.helsinki.cs.tmc.snapshots.EventSendBuffer;
+import fi.helsinki.cs.tmc.snapshots.EventStore;
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.powermock.core.classloader.annotations.PrepareForTest;
+import org.powermock.modules.junit4.PowerMockRunner;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+@RunWith(PowerMockRunner.class)
+@PrepareForTest(SettingsIo.class)
+public class CacheCommandTest {
+
+    private Application app;
+    private TestIo io;
+    private Path tempDir;
+    private TemplateStore store;
+
+    @Before
+    public void setUp() throws IOException {
+        io = new TestIo();
+        TmcCore core = new TmcCore(new Settings(), new TaskExecutorImpl());
+        AnalyticsFacade analyticsFacade =
+                new AnalyticsFacade(new EventSendBuffer(new EventStore()));
+        CliContext ctx = new CliContext(io, core, new WorkDir(), new Settings(), analyticsFacade);
+        app = new Application(ctx);
+
+        tempDir = Files.createTempDirectory("cache-command-test");
+        store = new TemplateStore(tempDir.resolve("templates"));
+        ctx.setTemplateStore(store);
+
+        mockStatic(SettingsIo.class);
+        when(SettingsIo.loadAccountList()).thenReturn(new AccountList());
+
+        Path exerciseDir = Files.createDirectories(tempDir.resolve("course").resolve("first"));
+        Files.write(exerciseDir.resolve("README"), "template".getBytes("UTF-8"));
+        Exercise exercise = new Exercise("first");
+        exercise.setChecksum("abc");
+        store.store(exercise, exerciseDir);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        FileUtils.deleteDirectory(tempDir.toFile());
+    }
+
+    @Test
+    public void listsStoredTemplates() {
+        app.run(new String[] {"cache"});
+        io.assertContains("first");
+        io.assertContains("1 templates");
+    }
+
+    @Test
+    public void pruneToZeroRemovesTemplates() {
+        app.run(new String[] {"cache", "-p", "-s", "0"});
+        io.assertContains("Removed 1 templates.");
+        assertTrue(store.list().isEmpty());
+    }
+
+    @Test
+    public void failsWithInvalidSize() {
+        app.run(new String[] {"cache", "-p", "-s", "many"});
+        io.assertContains("The size must be a non-negative number of megabytes.");
+        assertFalse(store.list().isEmpty());
+    }
+
+    @Test
+    public void maxSizeWithoutPruneIsAnError() {
+        app.run(new String[] {"cache", "-s", "0"});
+        io.assertContains("The --max-size option can only be used with --prune.");
+        assertFalse(store.list().isEmpty());
+    }
+
+    @Test
+    public void clearRemovesEverything() {
+        app.run(new String[] {"cache", "--clear"});
+        io.assertContains("Removed all the templates");
+        assertTrue(store.list().isEmpty());
+    }
+}
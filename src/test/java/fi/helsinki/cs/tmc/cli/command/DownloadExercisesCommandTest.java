@@ -215,6 +215,14 @@ public class DownloadExercisesCommandTest {
         io.assertContains("The 'course1' course has 3 exercises");
         io.assertContains("of which 2 exercises were succesfully downloaded");
         io.assertContains("and of which 1 failed.");
+        io.assertContains("exercise2");
+    }
+
+    @Test
+    public void failsWithInvalidJobCount() {
+        String[] args = {"download", "-j", "0", "course1"};
+        app.run(args);
+        io.assertContains("The number of jobs must be a positive integer.");
     }
 
     @Test
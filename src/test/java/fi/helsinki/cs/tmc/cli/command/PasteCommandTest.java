@@ -99,12 +99,14 @@ public class PasteCommandTest {
 
         mockStatic(CourseInfoIo.class);
         when(CourseInfoIo.load(any(Path.class))).thenReturn(mockCourseInfo);
+        when(workDir.getCourseInfo()).thenReturn(mockCourseInfo);
         when(CourseInfoIo.save(any(CourseInfo.class), any(Path.class))).thenReturn(true);
     }
 
     @Test
     public void doNotRunIfNotLoggedIn() {
         when(CourseInfoIo.load(any(Path.class))).thenReturn(null);
+        when(workDir.getCourseInfo()).thenReturn(null);
         when(SettingsIo.loadAccountList()).thenReturn(new AccountList());
         app = new Application(ctx);
 
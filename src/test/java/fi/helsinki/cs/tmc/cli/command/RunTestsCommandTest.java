@@ -1,13 +1,16 @@
 package fi.helsinki.cs.tmc.cli.command;
 
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.when;
 import static org.powermock.api.mockito.PowerMockito.mockStatic;
+import static org.powermock.api.mockito.PowerMockito.verifyStatic;
 
 import fi.helsinki.cs.tmc.cli.Application;
 import fi.helsinki.cs.tmc.cli.analytics.AnalyticsFacade;
@@ -143,4 +146,65 @@ public class RunTestsCommandTest {
         app.run(args);
         io.assertContains("Testing: " + EXERCISE1_NAME);
     }
+
+    @Test
+    public void printsResultsInOrderInParallelMode() throws Exception {
+        when(TmcUtil.tryRunLocalTests(eq(ctx), any(Exercise.class))).thenReturn(runResult);
+
+        workDir.setWorkdir(pathToDummyCourse);
+
+        String[] args = {"test", "--parallel", EXERCISE1_NAME, EXERCISE2_NAME};
+        app.run(args);
+        String output = io.out();
+        assertTrue(
+                output.indexOf("Testing: " + EXERCISE1_NAME)
+                        < output.indexOf("Testing: " + EXERCISE2_NAME));
+        io.assertContains("Total results: 2/2 exercises passed");
+    }
+
+    @Test
+    public void showsErrorsOfParallelRunsInTheirPlace() throws Exception {
+        when(TmcUtil.tryRunLocalTests(eq(ctx), any(Exercise.class))).thenAnswer(invocation -> {
+            Exercise exercise = (Exercise) invocation.getArguments()[1];
+            if (exercise.getName().equals(EXERCISE1_NAME)) {
+                throw new Exception("failed");
+            }
+            return runResult;
+        });
+
+        workDir.setWorkdir(pathToDummyCourse);
+
+        String[] args = {"test", "--parallel", EXERCISE1_NAME, EXERCISE2_NAME};
+        app.run(args);
+        String output = io.out();
+        int failure = output.indexOf("Failed to run test");
+        assertTrue(output.indexOf("Testing: " + EXERCISE1_NAME) < failure);
+        assertTrue(failure < output.indexOf("Testing: " + EXERCISE2_NAME));
+        verifyStatic(times(1));
+        TmcUtil.handleTmcExceptions(eq(ctx), any(Exception.class));
+    }
+
+    @Test
+    public void printsJsonRecordsWithJsonFormat() {
+        when(TmcUtil.runLocalTests(eq(ctx), any(Exercise.class))).thenReturn(runResult);
+
+        workDir.setWorkdir(pathToDummyCourse);
+
+        String[] args = {"test", "--format=json", EXERCISE1_NAME, EXERCISE2_NAME};
+        app.run(args);
+        io.assertContains("{\"type\":\"exercise\",\"command\":\"test\",\"exercise\":\""
+                + EXERCISE1_NAME + "\",\"status\":\"PASSED\"");
+        io.assertContains("{\"type\":\"total\",\"command\":\"test\","
+                + "\"exercisesPassed\":2,\"exercisesTotal\":2}");
+        io.assertNotContains("Testing: ");
+    }
+
+    @Test
+    public void failsWithUnknownFormat() {
+        workDir.setWorkdir(pathToDummyCourse);
+
+        String[] args = {"test", "--format=xml"};
+        app.run(args);
+        io.assertContains("Unknown output format \"xml\"");
+    }
 }
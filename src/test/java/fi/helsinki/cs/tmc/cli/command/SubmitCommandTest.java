@@ -2,6 +2,9 @@ package fi.helsinki.cs.tmc.cli.command;
 
 import static junit.framework.Assert.assertNotNull;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.Matchers.any;
 import static org.mockito.Mockito.*;
 import static org.powermock.api.mockito.PowerMockito.mockStatic;
@@ -36,8 +39,11 @@ import java.net.URISyntaxException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 @RunWith(PowerMockRunner.class)
 @PrepareForTest({TmcUtil.class, CourseInfoIo.class, SettingsIo.class})
@@ -165,6 +171,64 @@ public class SubmitCommandTest {
         TmcUtil.submitExercise(any(CliContext.class), any(Exercise.class));
     }
 
+    @Test
+    public void canSubmitMultipleExercisesConcurrently() {
+        workDir.setWorkdir(pathToDummyCourse);
+        app.run(new String[] {"submit", "-j", "2", EXERCISE1_NAME, EXERCISE2_NAME});
+        String output = io.out();
+        assertTrue(
+                output.indexOf("Submitting: " + EXERCISE1_NAME)
+                        < output.indexOf("Submitting: " + EXERCISE2_NAME));
+
+        verifyStatic(times(2));
+        TmcUtil.submitExercise(any(CliContext.class), any(Exercise.class));
+    }
+
+    @Test
+    public void reportsRunningSubmissionsAfterOneFails() {
+        CountDownLatch secondStarted = new CountDownLatch(1);
+        when(TmcUtil.submitExercise(any(CliContext.class), any(Exercise.class)))
+                .thenAnswer(invocation -> {
+                    Exercise exercise = (Exercise) invocation.getArguments()[1];
+                    if (exercise.getName().equals(EXERCISE1_NAME)) {
+                        // fail while the second submission is still running
+                        secondStarted.await(5, TimeUnit.SECONDS);
+                        return null;
+                    }
+                    secondStarted.countDown();
+                    Thread.sleep(200);
+                    return result2;
+                });
+        Exercise updated1 = new Exercise(EXERCISE1_NAME);
+        Exercise updated2 = new Exercise(EXERCISE2_NAME);
+        when(TmcUtil.getCourseExercises(any(CliContext.class)))
+                .thenReturn(Arrays.asList(new Exercise(EXERCISE1_NAME),
+                        new Exercise(EXERCISE2_NAME)))
+                .thenReturn(Arrays.asList(updated1, updated2));
+
+        workDir.setWorkdir(pathToDummyCourse);
+        app.run(new String[] {"submit", "-j", "2", EXERCISE1_NAME, EXERCISE2_NAME});
+
+        io.assertContains("Submission failed.");
+        io.assertContains("Submitting: " + EXERCISE2_NAME);
+        // only the exercise that was submitted is updated from the server
+        assertSame(updated2, ctx.getCourseInfo().getExercise(EXERCISE2_NAME));
+        assertNotSame(updated1, ctx.getCourseInfo().getExercise(EXERCISE1_NAME));
+
+        verifyStatic(times(2));
+        TmcUtil.submitExercise(any(CliContext.class), any(Exercise.class));
+    }
+
+    @Test
+    public void abortIfInvalidJobCountIsGiven() {
+        workDir.setWorkdir(pathToDummyCourse);
+        app.run(new String[] {"submit", "--jobs", "0", EXERCISE1_NAME});
+        io.assertContains("The number of jobs must be a positive integer.");
+
+        verifyStatic(times(0));
+        TmcUtil.submitExercise(any(CliContext.class), any(Exercise.class));
+    }
+
     @Test
     public void doesNotSubmitExtraExercisesFromCourseDir() {
         workDir.setWorkdir(pathToDummyCourse);
@@ -16,7 +16,7 @@ import fi.helsinki.cs.tmc.cli.backend.CourseInfo;
 import fi.helsinki.cs.tmc.cli.backend.CourseInfoIo;
 import fi.helsinki.cs.tmc.cli.backend.Settings;
 import fi.helsinki.cs.tmc.cli.backend.SettingsIo;
-import fi.helsinki.cs.tmc.cli.io.TerminalIo;
+import fi.helsinki.cs.tmc.cli.io.BufferedTerminalIo;
 import fi.helsinki.cs.tmc.cli.io.TestIo;
 import fi.helsinki.cs.tmc.cli.io.WorkDir;
 
@@ -28,6 +28,7 @@ import org.powermock.modules.junit4.PowerMockRunner;
 import org.powermock.reflect.Whitebox;
 
 import java.nio.file.Path;
+import java.nio.file.Paths;
 
 @RunWith(PowerMockRunner.class)
 @PrepareForTest({CourseInfoIo.class, SettingsIo.class})
@@ -52,10 +53,20 @@ public class CliContextTest {
         assertEquals(io, ctx.getIo());
     }
 
+    @Test
+    public void daemonContextUsesTheGivenIoOutsideOfTests() {
+        when(SettingsIo.getConfigDirectory()).thenReturn(Paths.get("tmc-config"));
+        CliContext ctx = new CliContext(io, null, new WorkDir(), new Settings(), null, true);
+        assertEquals(io, ctx.getIo());
+        assertTrue(ctx.inDaemon());
+        assertFalse(ctx.inTests());
+        assertTrue(ctx.getMetadataCache().isEnabled());
+    }
+
     @Test
     public void getIoWhenItsNotGiven() {
         CliContext ctx = new CliContext(null, null, null, null, null);
-        assertEquals(TerminalIo.class, ctx.getIo().getClass());
+        assertEquals(BufferedTerminalIo.class, ctx.getIo().getClass());
     }
 
     @Test
@@ -115,7 +126,7 @@ public class CliContextTest {
         WorkDir workDir = mock(WorkDir.class);
         Path path = mock(Path.class);
 
-        when(CourseInfoIo.load(eq(path))).thenReturn(info);
+        when(workDir.getCourseInfo()).thenReturn(info);
         when(workDir.getConfigFile()).thenReturn(path);
         CliContext ctx = new CliContext(io, null, workDir, new Settings(), null);
 
@@ -147,7 +158,7 @@ public class CliContextTest {
         CourseInfo info = mock(CourseInfo.class);
 
         when(info.getUsername()).thenReturn("user");
-        when(CourseInfoIo.load(eq(path))).thenReturn(info);
+        when(workDir.getCourseInfo()).thenReturn(info);
         when(workDir.getConfigFile()).thenReturn(path);
         CliContext ctx = new CliContext(io, null, workDir, new Settings(), null);
 
@@ -144,7 +144,7 @@ public class CommandAnnotationProcessorTest {
 
         Set<TypeElement> annotations = new HashSet<>();
         assertTrue(processor.process(annotations, roundEnv));
-        assertThat("" + stringWriter, not(containsString(".class")));
+        assertThat("" + stringWriter, not(containsString("addCommand")));
     }
 
     @Test
@@ -163,7 +163,8 @@ public class CommandAnnotationProcessorTest {
 
         Set<TypeElement> annotations = new HashSet<>();
         assertTrue(processor.process(annotations, roundEnv));
-        assertThat("" + stringWriter, containsString("TestTest.class"));
+        assertThat("" + stringWriter, containsString("\"abc.TestTest\""));
+        assertThat("" + stringWriter, not(containsString("import")));
     }
 
     @Test
@@ -191,7 +192,9 @@ public class CommandAnnotationProcessorTest {
 
         Set<TypeElement> annotations = new HashSet<>();
         assertTrue(processor.process(annotations, roundEnv));
-        assertThat("" + stringWriter, containsString("(\"commmand1\", \"?\", TestTest1.class)"));
-        assertThat("" + stringWriter, containsString("(\"commmand2\", \"?\", TestTest2.class)"));
+        assertThat("" + stringWriter,
+                containsString("(\"commmand1\", \"?\", \"abc.TestTest1\", \"abc\")"));
+        assertThat("" + stringWriter,
+                containsString("(\"commmand2\", \"?\", \"abc.TestTest2\", \"abc\")"));
     }
 }
@@ -82,6 +82,20 @@ public class CommandFactoryTest {
                 CommandFactory.castToCommandClass(GoodCommand.class)));
     }
 
+    @Test
+    public void commandInfoHasTheDescriptionOfTheCommand() {
+        CommandInfo info = CommandFactory.getCommandInfo("help");
+        assertEquals(HelpCommand.class.getName(), info.getClassName());
+        assertEquals("List every command", info.getDescription());
+        assertEquals("", info.getCategory());
+    }
+
+    @Test
+    public void createCommandLoadsClassByName() {
+        CommandFactory.addCommand("good", "", GoodCommand.class.getName(), "test");
+        assertTrue(CommandFactory.createCommand("good") instanceof GoodCommand);
+    }
+
     @Test
     public void getCategoryCommandsWhenItsEmpty() {
         assertEquals(null, CommandFactory.getCategoryCommands("xyz"));
@@ -0,0 +1,156 @@
+package fi.helsinki.cs.tmc.cli.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+import fi.helsinki.cs.tmc.cli.Application;
+import fi.helsinki.cs.tmc.cli.io.EnvironmentUtil;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.powermock.api.mockito.PowerMockito;
+import org.powermock.core.classloader.annotations.PrepareForTest;
+import org.powermock.modules.junit4.PowerMockRunner;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+@RunWith(PowerMockRunner.class)
+@PrepareForTest(DaemonServer.class)
+public class DaemonServerTest {
+
+    private static final long IDLE_TIMEOUT = 1000;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Application app;
+    private Path daemonFile;
+    private Path statusFile;
+    private Thread serverThread;
+    private String port;
+    private String token;
+
+    @Before
+    public void setUp() throws Exception {
+        app = mock(Application.class);
+        PowerMockito.whenNew(Application.class).withAnyArguments().thenReturn(app);
+
+        daemonFile = folder.getRoot().toPath().resolve(DaemonServer.DAEMON_FILE);
+        statusFile = folder.newFile("status").toPath();
+        DaemonServer server = new DaemonServer(daemonFile, IDLE_TIMEOUT);
+        serverThread = new Thread(server::run);
+        serverThread.start();
+
+        long deadline = System.currentTimeMillis() + IDLE_TIMEOUT;
+        while (!Files.exists(daemonFile) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        String[] parts = new String(Files.readAllBytes(daemonFile), StandardCharsets.UTF_8)
+                .trim().split(" ");
+        port = parts[0];
+        token = parts[1];
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        // the server stops after the idle timeout
+        serverThread.join();
+    }
+
+    @Test
+    public void requestWithWrongTokenIsRejected() throws Exception {
+        String output = request("wrong");
+
+        assertEquals("", output);
+        assertEquals("", readStatus());
+        verify(app, never()).run(any(String[].class));
+    }
+
+    @Test
+    public void runsCommandAndWritesItsExitStatus() throws Exception {
+        request(token, "/", "", "", statusFile.toString(), "", "2", "info", "-a");
+
+        verify(app).run(new String[] {"info", "-a"});
+        assertEquals("0\n", readStatus());
+    }
+
+    @Test
+    public void failedCommandHasFailureStatus() throws Exception {
+        doThrow(new RuntimeException()).when(app).run(any(String[].class));
+
+        String output = request(token, "/", "", "", statusFile.toString(), "", "1", "info");
+
+        assertTrue(output.contains("Command failed"));
+        assertEquals("1\n", readStatus());
+    }
+
+    @Test
+    public void errorsAreWrittenToTheErrorFile() throws Exception {
+        doThrow(new RuntimeException()).when(app).run(any(String[].class));
+        Path errorFile = folder.newFile("error").toPath();
+
+        String output = request(token, "/", "", "", statusFile.toString(),
+                errorFile.toString(), "1", "info");
+
+        assertEquals("", output);
+        String errors = new String(Files.readAllBytes(errorFile), StandardCharsets.UTF_8);
+        assertTrue(errors.contains("Command failed"));
+    }
+
+    @Test
+    public void terminalOfTheClientIsForwardedToTheCommand() throws Exception {
+        int[] width = new int[1];
+        boolean[] interactive = new boolean[1];
+        doAnswer(invocation -> {
+            width[0] = EnvironmentUtil.getTerminalWidth();
+            interactive[0] = EnvironmentUtil.isInteractiveOutput();
+            return null;
+        }).when(app).run(any(String[].class));
+
+        request(token, "/", "123", "1", statusFile.toString(), "", "1", "info");
+        assertEquals(123, width[0]);
+        assertTrue(interactive[0]);
+
+        request(token, "/", "45", "0", statusFile.toString(), "", "1", "info");
+        assertEquals(45, width[0]);
+        assertFalse(interactive[0]);
+    }
+
+    /**
+     * Send the lines to the daemon and read the output until the daemon closes the
+     * connection.
+     */
+    private String request(String... lines) throws IOException {
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(),
+                Integer.parseInt(port))) {
+            StringBuilder request = new StringBuilder();
+            for (String line : lines) {
+                request.append(line).append('\n');
+            }
+            socket.getOutputStream().write(request.toString().getBytes(StandardCharsets.UTF_8));
+            socket.shutdownOutput();
+            return IOUtils.toString(socket.getInputStream(), "UTF-8");
+        }
+    }
+
+    private String readStatus() throws IOException {
+        return new String(Files.readAllBytes(statusFile), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,107 @@
+package fi.helsinki.cs.tmc.cli.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import fi.helsinki.cs.tmc.cli.io.TestIo;
+
+import fi.helsinki.cs.tmc.core.domain.ProgressObserver;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+public class MetricsTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Before
+    public void setUp() {
+        Metrics.reset();
+    }
+
+    @Test
+    public void operationsAreCountedByName() {
+        Metrics.start("submit").stop(true);
+        Metrics.start("submit").stop(false);
+        Metrics.Timer timer = Metrics.start("download exercises");
+        timer.addItems(3);
+        timer.stop(true);
+
+        JsonObject json = parse(Metrics.toJson("submit"));
+        JsonObject submit = json.getAsJsonArray("operations").get(0).getAsJsonObject();
+        assertEquals("submit", submit.get("name").getAsString());
+        assertEquals(2, submit.get("count").getAsInt());
+        assertEquals(1, submit.get("failures").getAsInt());
+        JsonObject download = json.getAsJsonArray("operations").get(1).getAsJsonObject();
+        assertEquals(3, download.get("items").getAsLong());
+    }
+
+    @Test
+    public void progressMessagesAreRecordedAsPhases() {
+        Metrics.Timer timer = Metrics.start("submit");
+        ProgressObserver observer = timer.observe(ProgressObserver.NULL_OBSERVER);
+        observer.progress(1, "Zipping");
+        observer.progress(1, 0.5, "Submitting");
+        observer.progress(1, "Waiting for results");
+        timer.stop(true);
+
+        JsonObject phases = parse(Metrics.toJson("submit")).getAsJsonArray("operations")
+                .get(0).getAsJsonObject().getAsJsonObject("phases");
+        assertEquals(3, phases.size());
+        assertTrue(phases.has("Zipping"));
+        assertTrue(phases.has("Waiting for results"));
+    }
+
+    @Test
+    public void stoppingTwiceRecordsOnce() {
+        Metrics.Timer timer = Metrics.start("submit");
+        timer.stop(true);
+        timer.stop(false);
+
+        JsonObject submit = parse(Metrics.toJson("submit")).getAsJsonArray("operations")
+                .get(0).getAsJsonObject();
+        assertEquals(1, submit.get("count").getAsInt());
+        assertEquals(0, submit.get("failures").getAsInt());
+    }
+
+    @Test
+    public void tableContainsOperations() {
+        TestIo io = new TestIo();
+        Metrics.start("list courses").stop(true);
+        Metrics.print(io);
+        assertTrue(io.out().contains("list courses"));
+    }
+
+    @Test
+    public void logGetsOneLinePerCommand() throws IOException {
+        Path log = folder.getRoot().toPath().resolve("config").resolve(Metrics.LOG_FILE);
+        Metrics.start("submit").stop(true);
+        Metrics.appendToLog(log, "submit");
+        Metrics.appendToLog(log, "submit");
+
+        List<String> lines = Files.readAllLines(log);
+        assertEquals(2, lines.size());
+        assertEquals("submit", parse(lines.get(1)).get("command").getAsString());
+    }
+
+    @Test
+    public void resetRemovesOperations() {
+        Metrics.start("submit").stop(true);
+        Metrics.reset();
+        assertTrue(Metrics.isEmpty());
+    }
+
+    private static JsonObject parse(String json) {
+        return new JsonParser().parse(json).getAsJsonObject();
+    }
+}
@@ -0,0 +1,77 @@
+package fi.helsinki.cs.tmc.cli.io;
+
+import static org.junit.Assert.assertEquals;
+
+import fi.helsinki.cs.tmc.cli.io.BufferedTerminalIo.FlushPolicy;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+
+public class BufferedTerminalIoTest {
+
+    private ByteArrayOutputStream os;
+    private PrintStream out;
+
+    @Before
+    public void setUp() {
+        os = new ByteArrayOutputStream();
+        out = new PrintStream(os);
+    }
+
+    @Test
+    public void lineBufferedOutputIsFlushedAtNewLine() {
+        Io io = new BufferedTerminalIo(null, out, FlushPolicy.LINE);
+        io.print("foo");
+        assertEquals("", os.toString());
+        io.println("bar");
+        assertEquals("foobar\n", os.toString());
+    }
+
+    @Test
+    public void lineBufferedOutputIsFlushedAtCarriageReturn() {
+        Io io = new BufferedTerminalIo(null, out, FlushPolicy.LINE);
+        io.print("\r[###   ]");
+        assertEquals("\r[###   ]", os.toString());
+    }
+
+    @Test
+    public void blockBufferedOutputIsFlushedOnlyWhenAsked() {
+        BufferedTerminalIo io = new BufferedTerminalIo(null, out, FlushPolicy.BLOCK);
+        io.println("foo");
+        io.println("bar");
+        assertEquals("", os.toString());
+        io.flush();
+        assertEquals("foo\nbar\n", os.toString());
+    }
+
+    @Test
+    public void fullBufferIsFlushed() {
+        Io io = new BufferedTerminalIo(null, out, FlushPolicy.BLOCK);
+        StringBuilder line = new StringBuilder();
+        for (int i = 0; i < 10000; i++) {
+            line.append('a');
+        }
+        io.print(line.toString());
+        assertEquals(10000, os.size());
+    }
+
+    @Test
+    public void writtenCharactersAreBuffered() {
+        BufferedTerminalIo io = new BufferedTerminalIo(null, out, FlushPolicy.BLOCK);
+        io.write("xfoox", 1, 3);
+        io.write(new char[] {'b', 'a', 'r'}, 0, 3);
+        io.flush();
+        assertEquals("foobar", os.toString());
+    }
+
+    @Test
+    public void printNull() {
+        BufferedTerminalIo io = new BufferedTerminalIo(null, out, FlushPolicy.BLOCK);
+        io.print(null);
+        io.flush();
+        assertEquals("null", os.toString());
+    }
+}
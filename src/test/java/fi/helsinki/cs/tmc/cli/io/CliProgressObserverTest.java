@@ -1,6 +1,7 @@
 package fi.helsinki.cs.tmc.cli.io;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 import static org.powermock.api.mockito.PowerMockito.mockStatic;
 import static org.powermock.api.mockito.PowerMockito.when;
@@ -16,12 +17,14 @@ import org.powermock.modules.junit4.PowerMockRunner;
 public class CliProgressObserverTest {
 
     private TestIo io;
+    private long time;
 
     @Before
     public void setup() {
         this.io = new TestIo();
         mockStatic(EnvironmentUtil.class);
         when(EnvironmentUtil.getTerminalWidth()).thenReturn(50);
+        when(EnvironmentUtil.isInteractiveOutput()).thenReturn(true);
     }
 
     @Test
@@ -48,6 +51,75 @@ public class CliProgressObserverTest {
         assertTrue("Prints the end of the progress bar", io.out().contains("]"));
     }
 
+    @Test
+    public void progressIsRedrawnAtMostTenTimesPerSecond() {
+        CliProgressObserver progobs = createTimedObserver();
+        for (int i = 0; i < 1000; i++) {
+            progobs.progress(0, i / 1000.0, "Downloading");
+            time += 2000000;
+        }
+        // 1000 updates in two seconds
+        assertEquals(20, count(io.out(), "%["));
+    }
+
+    @Test
+    public void progressIsRedrawnOnlyWhenItChanges() {
+        CliProgressObserver progobs = createTimedObserver();
+        progobs.progress(0, 0.5, "Downloading");
+        time += 1000000000;
+        progobs.progress(0, 0.501, "Downloading");
+        assertEquals(1, count(io.out(), "%["));
+    }
+
+    @Test
+    public void finishedProgressIsAlwaysShown() {
+        CliProgressObserver progobs = createTimedObserver();
+        progobs.progress(0, 0.5, "Downloading");
+        progobs.progress(0, 1.0, "Downloading");
+        assertTrue(io.out().contains("100%["));
+    }
+
+    @Test
+    public void concurrentOperationsHaveTheirOwnBars() {
+        CliProgressObserver progobs = createTimedObserver();
+        progobs.progress(1, 0.2, "first");
+        time += 1000000000;
+        progobs.progress(2, 0.7, "second");
+        assertTrue(io.out().contains(" 20%[███"));
+        assertTrue(io.out().contains(" 70%["));
+        assertTrue(io.out().contains("] second"));
+
+        time += 1000000000;
+        progobs.progress(1, 0.3, "first");
+        assertTrue("Moves back to the first bar", io.out().contains("\u001b[1A\r 30%["));
+    }
+
+    @Test
+    public void concurrentOperationsShareOneLineWhenOutputIsNotTerminal() {
+        when(EnvironmentUtil.isInteractiveOutput()).thenReturn(false);
+        CliProgressObserver progobs = createTimedObserver();
+        progobs.progress(1, 0.2, "first");
+        time += 1000000000;
+        progobs.progress(2, 0.7, "second");
+        time += 1000000000;
+        progobs.progress(1, 0.3, "first");
+        progobs.end(2);
+        progobs.end(1);
+        assertFalse("Doesn't move the cursor", io.out().contains("\u001b["));
+    }
+
+    @Test
+    public void endedBarsAreCleared() {
+        CliProgressObserver progobs = createTimedObserver();
+        progobs.progress(1, 0.2, "first");
+        progobs.progress(2, 0.7, "second");
+        time += 1000000000;
+        progobs.progress(1, 0.3, "first");
+        progobs.end(2);
+        progobs.end(1);
+        assertTrue(io.out().endsWith("\u001b[1A\r"));
+    }
+
     @Test
     public void testResultBarWorks() {
         String string = CliProgressObserver.getPassedTestsBar(1, 2, Color.NONE, Color.NONE);
@@ -76,4 +148,16 @@ public class CliProgressObserverTest {
         assertEquals(" 20%", CliProgressObserver.percentage(0.2));
         assertEquals("100%", CliProgressObserver.percentage(1.0));
     }
+
+    private CliProgressObserver createTimedObserver() {
+        return new CliProgressObserver(io, Color.NONE, Color.NONE, () -> time);
+    }
+
+    private static int count(String str, String part) {
+        int count = 0;
+        for (int i = str.indexOf(part); i >= 0; i = str.indexOf(part, i + 1)) {
+            count++;
+        }
+        return count;
+    }
 }
@@ -62,4 +62,16 @@ public class EnvironmentUtilTest {
         when(mockProperties.get(eq("version"))).thenReturn("0.1.0");
         assertEquals("0.1.0", EnvironmentUtil.getVersion());
     }
+
+    @Test
+    public void clientTerminalOverridesTheEnvironment() {
+        when(System.getenv(eq("TMC_OUTPUT_TTY"))).thenReturn("1");
+        EnvironmentUtil.setInteractiveOutput("0");
+        try {
+            assertEquals(false, EnvironmentUtil.isInteractiveOutput());
+        } finally {
+            EnvironmentUtil.setInteractiveOutput(null);
+        }
+        assertEquals(true, EnvironmentUtil.isInteractiveOutput());
+    }
 }
@@ -0,0 +1,42 @@
+package fi.helsinki.cs.tmc.cli.io;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+
+public class StreamIoTest {
+
+    private ByteArrayOutputStream out;
+    private ByteArrayOutputStream err;
+
+    @Before
+    public void setUp() {
+        out = new ByteArrayOutputStream();
+        err = new ByteArrayOutputStream();
+    }
+
+    @Test
+    public void errorsAreWrittenToTheErrorStream() {
+        Io io = new StreamIo(new ByteArrayInputStream(new byte[0]),
+                new PrintStream(out), new PrintStream(err));
+        io.println("{\"type\":\"total\"}");
+        io.errorln("Failed");
+
+        assertEquals("{\"type\":\"total\"}\n", out.toString());
+        assertEquals("Failed\n", err.toString());
+    }
+
+    @Test
+    public void errorsAreWrittenToTheOutputWithoutErrorStream() {
+        Io io = new StreamIo(new ByteArrayInputStream(new byte[0]), new PrintStream(out));
+        io.println("Testing");
+        io.errorln("Failed");
+
+        assertEquals("Testing\nFailed\n", out.toString());
+    }
+}
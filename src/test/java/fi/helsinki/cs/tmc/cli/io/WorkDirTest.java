@@ -222,4 +222,36 @@ public class WorkDirTest {
         assertTrue(exercises.contains(exercise3));
         assertTrue(exercises.contains(nonexistentExercise));
     }
+
+    @Test
+    public void returnsExercisesInCourseOrderForPrefixPath() {
+        WorkDir workDir = new WorkDir();
+        workDir.setWorkdir(TEST_DIR);
+        workDir.addPath("viikko2");
+        workDir.addPath("viikko2-teht2");
+        List<Exercise> exercises = workDir.getExercises();
+        assertEquals(2, exercises.size());
+        assertEquals(exercise2, exercises.get(0));
+        assertEquals(exercise3, exercises.get(1));
+    }
+
+    @Test
+    public void courseInfoIsLoadedOnlyOnce() {
+        WorkDir workDir = new WorkDir();
+        workDir.setWorkdir(TEST_DIR.resolve("viikko1-teht1"));
+        CourseInfo info = workDir.getCourseInfo();
+        assertNotNull(info);
+        assertTrue(info == workDir.getCourseInfo());
+        assertTrue(info == workDir.getWorkspace().getCourseInfo());
+    }
+
+    @Test
+    public void changingWorkingDirectorySearchesTheCourseAgain() {
+        WorkDir workDir = new WorkDir();
+        workDir.setWorkdir(TEST_DIR);
+        assertNotNull(workDir.getWorkspace());
+        workDir.setWorkdir(Paths.get(System.getProperty("java.io.tmpdir")));
+        assertNull(workDir.getWorkspace());
+        assertNull(workDir.getCourseInfo());
+    }
 }
@@ -0,0 +1,132 @@
+package fi.helsinki.cs.tmc.cli.shared;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.when;
+import static org.powermock.api.mockito.PowerMockito.mockStatic;
+
+import fi.helsinki.cs.tmc.cli.analytics.AnalyticsFacade;
+import fi.helsinki.cs.tmc.cli.backend.Account;
+import fi.helsinki.cs.tmc.cli.backend.AccountList;
+import fi.helsinki.cs.tmc.cli.backend.Settings;
+import fi.helsinki.cs.tmc.cli.backend.SettingsIo;
+import fi.helsinki.cs.tmc.cli.backend.TmcUtil;
+import fi.helsinki.cs.tmc.cli.core.CliContext;
+import fi.helsinki.cs.tmc.cli.io.TestIo;
+import fi.helsinki.cs.tmc.cli.io.WorkDir;
+
+import fi.helsinki.cs.tmc.core.TmcCore;
+import fi.helsinki.cs.tmc.core.domain.Course;
+import fi.helsinki.cs.tmc.core.domain.Organization;
+
+import fi.helsinki.cs.tmc.langs.util.TaskExecutorImpl;
+import fi.helsinki.cs.tmc.snapshots.EventSendBuffer;
+import fi.helsinki.cs.tmc.snapshots.EventStore;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.powermock.core.classloader.annotations.PrepareForTest;
+import org.powermock.modules.junit4.PowerMockRunner;
+
+import java.util.concurrent.CountDownLatch;
+
+@RunWith(PowerMockRunner.class)
+@PrepareForTest({TmcUtil.class, SettingsIo.class})
+public class CourseFinderTest {
+
+    private CliContext ctx;
+    private TestIo io;
+    private Account firstAccount;
+    private Account secondAccount;
+
+    @Before
+    public void setUp() {
+        Settings settings = new Settings();
+        TmcCore core = new TmcCore(settings, new TaskExecutorImpl());
+        EventSendBuffer eventSendBuffer = new EventSendBuffer(new EventStore());
+        AnalyticsFacade analyticsFacade = new AnalyticsFacade(eventSendBuffer);
+        io = new TestIo();
+        ctx = new CliContext(io, core, new WorkDir(), settings, analyticsFacade);
+
+        Organization organization = new Organization("test", "test", "hy", "test", false);
+        firstAccount = new Account("first", organization);
+        secondAccount = new Account("second", organization);
+        AccountList accountList = new AccountList();
+        accountList.addAccount(secondAccount);
+        accountList.addAccount(firstAccount);
+
+        mockStatic(TmcUtil.class);
+        mockStatic(SettingsIo.class);
+        when(SettingsIo.loadAccountList()).thenReturn(accountList);
+    }
+
+    private void courseExistsFor(String... usernames) {
+        when(TmcUtil.findCourse(any(CliContext.class), eq("course"))).thenAnswer(invocation -> {
+            CliContext accountContext = (CliContext) invocation.getArguments()[0];
+            String username = accountContext.getSettings().getUsername().get();
+            for (String name : usernames) {
+                if (name.equals(username)) {
+                    return new Course("course");
+                }
+            }
+            return null;
+        });
+    }
+
+    @Test
+    public void findsCourseFromAnyAccount() {
+        courseExistsFor("second");
+
+        CourseFinder finder = new CourseFinder(ctx);
+        assertTrue(finder.search("course"));
+        assertEquals(secondAccount, finder.getAccount());
+        assertEquals("course", finder.getCourse().getName());
+    }
+
+    @Test
+    public void failsIfNoAccountHasTheCourse() {
+        courseExistsFor();
+
+        CourseFinder finder = new CourseFinder(ctx);
+        assertFalse(finder.search("course"));
+        io.assertContains("Course doesn't exist.");
+    }
+
+    @Test
+    public void asksAboutMatchesInAccountOrder() {
+        courseExistsFor("first", "second");
+        io.addConfirmationPrompt(false);
+        io.addConfirmationPrompt(true);
+
+        CourseFinder finder = new CourseFinder(ctx);
+        assertTrue(finder.search("course"));
+        assertEquals(secondAccount, finder.getAccount());
+        assertTrue(io.out().indexOf("'first'") < io.out().indexOf("'second'"));
+        io.assertAllPromptsUsed();
+    }
+
+    @Test
+    public void hangingAccountDoesNotStopTheSearch() {
+        CountDownLatch release = new CountDownLatch(1);
+        when(TmcUtil.findCourse(any(CliContext.class), eq("course"))).thenAnswer(invocation -> {
+            CliContext accountContext = (CliContext) invocation.getArguments()[0];
+            if (accountContext.getSettings().getUsername().get().equals("second")) {
+                release.await();
+                return null;
+            }
+            return new Course("course");
+        });
+
+        CourseFinder finder = new CourseFinder(ctx, 100);
+        try {
+            assertTrue(finder.search("course"));
+            assertEquals(firstAccount, finder.getAccount());
+            io.assertContains("didn't respond in time.");
+        } finally {
+            release.countDown();
+        }
+    }
+}
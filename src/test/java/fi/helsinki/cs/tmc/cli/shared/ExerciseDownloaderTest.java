@@ -0,0 +1,110 @@
+package fi.helsinki.cs.tmc.cli.shared;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyListOf;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.when;
+import static org.powermock.api.mockito.PowerMockito.mockStatic;
+import static org.powermock.api.mockito.PowerMockito.verifyStatic;
+
+import fi.helsinki.cs.tmc.cli.backend.Settings;
+import fi.helsinki.cs.tmc.cli.backend.TmcUtil;
+import fi.helsinki.cs.tmc.cli.core.CliContext;
+import fi.helsinki.cs.tmc.cli.io.TestIo;
+import fi.helsinki.cs.tmc.cli.io.WorkDir;
+
+import fi.helsinki.cs.tmc.core.TmcCore;
+import fi.helsinki.cs.tmc.core.domain.Exercise;
+import fi.helsinki.cs.tmc.core.domain.ProgressObserver;
+
+import fi.helsinki.cs.tmc.langs.util.TaskExecutorImpl;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.powermock.core.classloader.annotations.PrepareForTest;
+import org.powermock.modules.junit4.PowerMockRunner;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+@RunWith(PowerMockRunner.class)
+@PrepareForTest(TmcUtil.class)
+public class ExerciseDownloaderTest {
+
+    private CliContext ctx;
+    private List<Exercise> exercises;
+
+    @Before
+    public void setUp() {
+        Settings settings = new Settings();
+        TmcCore core = new TmcCore(settings, new TaskExecutorImpl());
+        ctx = new CliContext(new TestIo(), core, new WorkDir(), settings, null);
+        exercises = Arrays.asList(
+                new Exercise("first"), new Exercise("second"), new Exercise("third"));
+
+        mockStatic(TmcUtil.class);
+    }
+
+    @Test
+    public void downloadsExercisesInParallel() throws Exception {
+        when(TmcUtil.tryDownloadExercises(
+                eq(ctx), anyListOf(Exercise.class), any(ProgressObserver.class)))
+                .thenAnswer(invocation -> invocation.getArguments()[1]);
+
+        ExerciseDownloader downloader = new ExerciseDownloader(ctx, 2);
+        List<Exercise> result = downloader.download(exercises, ProgressObserver.NULL_OBSERVER);
+
+        assertEquals(exercises, result);
+        assertTrue(downloader.getFailedExercises().isEmpty());
+        verifyStatic(times(3));
+        TmcUtil.tryDownloadExercises(
+                eq(ctx), anyListOf(Exercise.class), any(ProgressObserver.class));
+    }
+
+    @Test
+    public void skippedExercisesAreRetriedAndReported() throws Exception {
+        when(TmcUtil.tryDownloadExercises(
+                eq(ctx), anyListOf(Exercise.class), any(ProgressObserver.class)))
+                .thenReturn(Arrays.asList(exercises.get(0), exercises.get(2)));
+
+        ExerciseDownloader downloader = new ExerciseDownloader(ctx, 2);
+        List<Exercise> result = downloader.download(exercises, ProgressObserver.NULL_OBSERVER);
+
+        assertEquals(Arrays.asList(exercises.get(0), exercises.get(2)), result);
+        assertEquals(Collections.singletonList(exercises.get(1)),
+                downloader.getFailedExercises());
+        // the second exercise is tried three times
+        verifyStatic(times(5));
+        TmcUtil.tryDownloadExercises(
+                eq(ctx), anyListOf(Exercise.class), any(ProgressObserver.class));
+    }
+
+    @Test
+    public void returnsNullIfEveryDownloadFails() {
+        when(TmcUtil.downloadExercises(
+                eq(ctx), anyListOf(Exercise.class), any(ProgressObserver.class)))
+                .thenReturn(null);
+
+        ExerciseDownloader downloader = new ExerciseDownloader(ctx, 1);
+        assertNull(downloader.download(exercises, ProgressObserver.NULL_OBSERVER));
+        assertEquals(exercises, downloader.getFailedExercises());
+    }
+
+    @Test
+    public void errorOfParallelDownloadsIsShownOnce() throws Exception {
+        when(TmcUtil.tryDownloadExercises(
+                eq(ctx), anyListOf(Exercise.class), any(ProgressObserver.class)))
+                .thenThrow(new Exception("failed"));
+
+        ExerciseDownloader downloader = new ExerciseDownloader(ctx, 3);
+        assertNull(downloader.download(exercises, ProgressObserver.NULL_OBSERVER));
+        assertEquals(exercises, downloader.getFailedExercises());
+        verifyStatic(times(1));
+        TmcUtil.handleTmcExceptions(eq(ctx), any(Exception.class));
+    }
+}
@@ -0,0 +1,130 @@
+package fi.helsinki.cs.tmc.cli.shared;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import fi.helsinki.cs.tmc.cli.io.TestIo;
+
+import fi.helsinki.cs.tmc.core.domain.submission.SubmissionResult;
+import fi.helsinki.cs.tmc.langs.domain.RunResult;
+import fi.helsinki.cs.tmc.langs.domain.RunResult.Status;
+import fi.helsinki.cs.tmc.langs.domain.SpecialLogs;
+import fi.helsinki.cs.tmc.langs.domain.TestResult;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class JsonResultSinkTest {
+
+    private TestIo io;
+    private JsonResultSink sink;
+
+    @Before
+    public void setUp() {
+        io = new TestIo();
+        sink = new JsonResultSink(io, "test", false);
+    }
+
+    @Test
+    public void everyRecordIsOnItsOwnLine() {
+        sink.startExercise("Testing", "first");
+        sink.printLocalTestResult(runResult(Status.TESTS_FAILED,
+                new TestResult("test1", true, ""),
+                new TestResult("test2", false, "Not good.")), null, false);
+        sink.endExercise();
+
+        String[] lines = io.out().split("\n");
+        assertEquals(3, lines.length);
+        JsonObject failed = parse(lines[1]);
+        assertEquals("test", failed.get("type").getAsString());
+        assertEquals("first", failed.get("exercise").getAsString());
+        assertEquals("test2", failed.get("name").getAsString());
+        assertFalse(failed.get("passed").getAsBoolean());
+        assertEquals("Not good.", failed.get("message").getAsString());
+
+        JsonObject exercise = parse(lines[2]);
+        assertEquals("exercise", exercise.get("type").getAsString());
+        assertEquals("TESTS_FAILED", exercise.get("status").getAsString());
+        assertEquals(1, exercise.get("testsPassed").getAsInt());
+        assertEquals(2, exercise.get("testsTotal").getAsInt());
+    }
+
+    @Test
+    public void passedExercisesAreCounted() {
+        sink.startExercise("Testing", "first");
+        assertTrue(sink.printLocalTestResult(
+                runResult(Status.PASSED, new TestResult("test1", true, "")), null, false));
+        sink.startExercise("Testing", "second");
+        sink.addFailedExercise("Failed to run test");
+        sink.printTotalExerciseResults();
+
+        String[] lines = io.out().split("\n");
+        JsonObject failed = parse(lines[2]);
+        assertEquals("ERROR", failed.get("status").getAsString());
+        assertEquals("Failed to run test", failed.get("message").getAsString());
+
+        JsonObject total = parse(lines[3]);
+        assertEquals("total", total.get("type").getAsString());
+        assertEquals(1, total.get("exercisesPassed").getAsInt());
+        assertEquals(2, total.get("exercisesTotal").getAsInt());
+    }
+
+    @Test
+    public void submissionResultHasThePoints() {
+        sink = new JsonResultSink(io, "submit", false);
+        SubmissionResult result = mock(SubmissionResult.class);
+        when(result.getStatus()).thenReturn(SubmissionResult.Status.OK);
+        when(result.getTestCases()).thenReturn(
+                ImmutableList.of(new TestResult("test1", true, "")));
+        when(result.getPoints()).thenReturn(ImmutableList.of("1.1"));
+
+        sink.startExercise("Submitting", "first");
+        assertTrue(sink.printSubmissionResult(result, false));
+
+        String[] lines = io.out().split("\n");
+        JsonObject exercise = parse(lines[1]);
+        assertEquals("submit", exercise.get("command").getAsString());
+        assertEquals("OK", exercise.get("status").getAsString());
+        assertEquals("1.1", exercise.get("points").getAsJsonArray().get(0).getAsString());
+        assertFalse(exercise.has("solutionUrl"));
+    }
+
+    @Test
+    public void compileFailureHasTheCompilerOutput() {
+        sink.startExercise("Testing", "first");
+        assertFalse(sink.printLocalTestResult(new RunResult(Status.COMPILE_FAILED,
+                ImmutableList.<TestResult>of(),
+                ImmutableMap.of(SpecialLogs.STDOUT, "Virhe: ä puuttuu".getBytes(UTF_8),
+                        SpecialLogs.STDERR, new byte[0])), null, false));
+
+        JsonObject exercise = parse(io.out().split("\n")[0]);
+        assertEquals("COMPILE_FAILED", exercise.get("status").getAsString());
+        assertEquals("Virhe: ä puuttuu", exercise.get("message").getAsString());
+    }
+
+    @Test
+    public void nothingIsPrintedForMissingResults() {
+        assertFalse(sink.printLocalTestResult(null, null, false));
+        assertFalse(sink.printSubmissionResult(null, false));
+        sink.printTotalExerciseResults();
+        io.assertEquals("");
+    }
+
+    private static RunResult runResult(Status status, TestResult... tests) {
+        return new RunResult(
+                status, ImmutableList.copyOf(tests), ImmutableMap.<String, byte[]>of());
+    }
+
+    private static JsonObject parse(String line) {
+        return new JsonParser().parse(line).getAsJsonObject();
+    }
+}
@@ -1,5 +1,6 @@
 package fi.helsinki.cs.tmc.cli.updater;
 
+import static junit.framework.Assert.assertFalse;
 import static junit.framework.Assert.assertNotNull;
 import static junit.framework.Assert.assertTrue;
 
@@ -64,7 +65,7 @@ public class AutoUpdaterTest {
         doReturn(latestJson).when(updater).fetchLatestReleaseJson();
         //when(updater.fetchLatestReleaseJson()).thenReturn(latestJson);
         updater.run();
-        verify(updater, never()).fetchTmcCliBinary(any(String.class), any(File.class));
+        verify(updater, never()).fetchTmcCliBinary(any(ReleaseInfo.class), any(File.class));
         assertTrue(io.out().isEmpty());
     }
 
@@ -74,7 +75,7 @@ public class AutoUpdaterTest {
         doReturn(null).when(updater).fetchLatestReleaseJson();
         //when(updater.fetchLatestReleaseJson()).thenReturn(null);
         updater.run();
-        verify(updater, never()).fetchTmcCliBinary(any(String.class), any(File.class));
+        verify(updater, never()).fetchTmcCliBinary(any(ReleaseInfo.class), any(File.class));
         assertTrue(io.out().isEmpty());
     }
 
@@ -84,7 +85,7 @@ public class AutoUpdaterTest {
         doReturn(apiLimitExeededJson).when(updater).fetchLatestReleaseJson();
         //when(updater.fetchLatestReleaseJson()).thenReturn(apiLimitExeededJson);
         updater.run();
-        verify(updater, never()).fetchTmcCliBinary(any(String.class), any(File.class));
+        verify(updater, never()).fetchTmcCliBinary(any(ReleaseInfo.class), any(File.class));
         assertTrue(io.out().isEmpty());
     }
 
@@ -96,7 +97,7 @@ public class AutoUpdaterTest {
         //when(updater.fetchLatestReleaseJson()).thenReturn(latestJson);
         updater.run();
         assertThat(io.out(), containsString("A new version of tmc-cli is available!"));
-        verify(updater, never()).fetchTmcCliBinary(any(String.class), any(File.class));
+        verify(updater, never()).fetchTmcCliBinary(any(ReleaseInfo.class), any(File.class));
         io.assertAllPromptsUsed();
     }
 
@@ -106,12 +107,12 @@ public class AutoUpdaterTest {
         AutoUpdater updater = spy(new AutoUpdater(io, "0.1.0", false));
         doReturn(latestJson).when(updater).fetchLatestReleaseJson();
         //when(updater.fetchLatestReleaseJson()).thenReturn(latestJson);
-        doReturn(true).when(updater).fetchTmcCliBinary(any(String.class), any(File.class));
+        doReturn(true).when(updater).fetchTmcCliBinary(any(ReleaseInfo.class), any(File.class));
         when(updater.runNewTmcCliBinary(any(String.class))).thenReturn(true);
         updater.run();
         assertThat(io.out(), containsString("A new version of tmc-cli is available!"));
         assertThat(io.out(), containsString("Downloading..."));
-        verify(updater, times(1)).fetchTmcCliBinary(any(String.class), any(File.class));
+        verify(updater, times(1)).fetchTmcCliBinary(any(ReleaseInfo.class), any(File.class));
         verify(updater, times(1)).runNewTmcCliBinary(any(String.class));
         io.assertAllPromptsUsed();
     }
@@ -125,7 +126,7 @@ public class AutoUpdaterTest {
         updater.run();
         assertThat(io.out(), containsString("A new version of tmc-cli is available!"));
         assertThat(io.out(), containsString("Download: https://"));
-        verify(updater, never()).fetchTmcCliBinary(any(String.class), any(File.class));
+        verify(updater, never()).fetchTmcCliBinary(any(ReleaseInfo.class), any(File.class));
     }
 
     @Test
@@ -134,7 +135,7 @@ public class AutoUpdaterTest {
         doReturn(malformedJson).when(updater).fetchLatestReleaseJson();
         //when(updater.fetchLatestReleaseJson()).thenReturn(malformedJson);
         updater.run();
-        verify(updater, never()).fetchTmcCliBinary(any(String.class), any(File.class));
+        verify(updater, never()).fetchTmcCliBinary(any(ReleaseInfo.class), any(File.class));
         assertTrue(io.out().isEmpty());
     }
 
@@ -144,7 +145,32 @@ public class AutoUpdaterTest {
         doReturn(changedJson).when(updater).fetchLatestReleaseJson();
         //when(updater.fetchLatestReleaseJson()).thenReturn(changedJson);
         updater.run();
-        verify(updater, never()).fetchTmcCliBinary(any(String.class), any(File.class));
+        verify(updater, never()).fetchTmcCliBinary(any(ReleaseInfo.class), any(File.class));
+        assertTrue(io.out().isEmpty());
+    }
+
+    @Test
+    public void installsReleaseFromEarlierCheck() {
+        io.addConfirmationPrompt(true);
+        AutoUpdater updater = spy(new AutoUpdater(io, "0.1.0", false));
+        doReturn(true).when(updater).fetchTmcCliBinary(any(ReleaseInfo.class), any(File.class));
+        when(updater.runNewTmcCliBinary(any(String.class))).thenReturn(true);
+        ReleaseInfo release = new ReleaseInfo(null, "0.9.0", "tmc", "https://example.com/tmc",
+                -1, null);
+        assertTrue(updater.install(release));
+        assertThat(io.out(), containsString("A new version of tmc-cli is available!"));
+        verify(updater, never()).fetchLatestReleaseJson();
+        verify(updater, times(1)).fetchTmcCliBinary(any(ReleaseInfo.class), any(File.class));
+        io.assertAllPromptsUsed();
+    }
+
+    @Test
+    public void doNothingIfEarlierReleaseIsNotNewer() {
+        AutoUpdater updater = spy(new AutoUpdater(io, "0.9.0", false));
+        ReleaseInfo release = new ReleaseInfo(null, "0.9.0", "tmc", "https://example.com/tmc",
+                -1, null);
+        assertFalse(updater.install(release));
+        verify(updater, never()).fetchTmcCliBinary(any(ReleaseInfo.class), any(File.class));
         assertTrue(io.out().isEmpty());
     }
 
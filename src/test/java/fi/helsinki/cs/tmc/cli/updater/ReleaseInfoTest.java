@@ -0,0 +1,59 @@
+package fi.helsinki.cs.tmc.cli.updater;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+public class ReleaseInfoTest {
+
+    @Test
+    public void releaseIsRestoredFromProperties() {
+        Map<String, String> properties = new HashMap<>();
+        new ReleaseInfo("\"abc\"", "0.9.0", "tmc", "https://example.com/tmc", 1234,
+                "sha256:00ff").saveTo(properties);
+
+        assertEquals("\"abc\"", properties.get(ReleaseInfo.ETAG_KEY));
+        ReleaseInfo release = ReleaseInfo.fromProperties(properties);
+        assertTrue(release.isUpdate());
+        assertEquals("0.9.0", release.getVersion());
+        assertEquals("tmc", release.getAssetName());
+        assertEquals("https://example.com/tmc", release.getDownloadUrl());
+        assertEquals(1234, release.getSize());
+        assertEquals("sha256:00ff", release.getDigest());
+    }
+
+    @Test
+    public void noUpdateStoresOnlyTheEtag() {
+        Map<String, String> properties = new HashMap<>();
+        ReleaseInfo.noUpdate("\"abc\"").saveTo(properties);
+
+        assertFalse(properties.containsKey(ReleaseInfo.RELEASE_KEY));
+        assertEquals("\"abc\"", properties.get(ReleaseInfo.ETAG_KEY));
+        assertNull(ReleaseInfo.fromProperties(properties));
+    }
+
+    @Test
+    public void removedReleaseIsNotRestored() {
+        Map<String, String> properties = new HashMap<>();
+        new ReleaseInfo("\"abc\"", "0.9.0", "tmc", "https://example.com/tmc", -1, null)
+                .saveTo(properties);
+        ReleaseInfo.removeFrom(properties);
+
+        assertNull(ReleaseInfo.fromProperties(properties));
+        assertFalse(properties.containsKey(ReleaseInfo.ETAG_KEY));
+    }
+
+    @Test
+    public void invalidReleaseInPropertiesIsIgnored() {
+        Map<String, String> properties = new HashMap<>();
+        properties.put(ReleaseInfo.RELEASE_KEY, "{not json");
+
+        assertNull(ReleaseInfo.fromProperties(properties));
+    }
+}